@@ -0,0 +1,62 @@
+package bench;
+
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import logic.InventoryManager;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * BulkSaveBenchmark measures how fast InventoryManager.saveAllItemsToDatabase writes a large floor
+ * to a fresh SQLite file at several batch sizes, and reports rows per second for each.
+ *
+ * <p>Needs the SQLite JDBC driver on the classpath, e.g.
+ * {@code java -cp out:sqlite-jdbc.jar bench.BulkSaveBenchmark 100000}.</p>
+ */
+
+public class BulkSaveBenchmark {
+    private static final int ITEM_COUNT = 100_000;
+    private static final int[] BATCH_SIZES = {1, 10, 100, 1_000, 10_000};
+    private static final String[] TYPES = {"Weapon", "Armor", "Consumable", "Scroll", "Misc"};
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : ITEM_COUNT;
+
+        Floor floor = new Floor();
+        for (int id = 0; id < count; id++) {
+            floor.addItem(new Item(id, "Item " + id, TYPES[id % TYPES.length], 1 + id % 10, (id % 200) / 10.0, "Description " + id));
+        }
+
+        System.out.printf("Rows: %,d%n", count);
+        for (int batchSize : BATCH_SIZES) {
+            File dbFile = File.createTempFile("bulk-save", ".sqlite");
+            try {
+                createTables(dbFile.getPath());
+                InventoryManager manager = new InventoryManager(new Inventory(0), floor, dbFile.getPath());
+                manager.setBatchSize(batchSize);
+
+                long start = System.nanoTime();
+                manager.saveAllItemsToDatabase();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Batch size %,6d: %8.2f s, %,12.0f rows/s%n", batchSize, seconds, count / seconds);
+            } finally {
+                dbFile.delete();
+            }
+        }
+    }
+
+    private static void createTables(String dbFilePath) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFilePath);
+             Statement stmt = conn.createStatement()) {
+            for (String table : new String[]{"inventory_items", "floor_items"}) {
+                stmt.executeUpdate("CREATE TABLE " + table + " (id INTEGER PRIMARY KEY, name TEXT NOT NULL, type TEXT NOT NULL, "
+                        + "quantity INTEGER NOT NULL, weight REAL NOT NULL, description TEXT NOT NULL)");
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import logic.InventoryManager;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DatabaseLoadBenchmark writes a large floor_items table to a fresh SQLite file and then times
+ * InventoryManager.loadItemsFromDatabase reading it back, printing progress as it goes. Loads of
+ * several sizes are timed so the growth can be checked to be linear.
+ *
+ * <p>Needs the SQLite JDBC driver on the classpath, e.g.
+ * {@code java -Xmx2g -cp out:sqlite-jdbc.jar bench.DatabaseLoadBenchmark 1000000}.</p>
+ */
+
+public class DatabaseLoadBenchmark {
+    private static final int ITEM_COUNT = 1_000_000;
+    private static final String[] TYPES = {"Weapon", "Armor", "Consumable", "Scroll", "Misc"};
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : ITEM_COUNT;
+        for (int rows = count / 4; rows <= count; rows *= 2) {
+            run(rows);
+        }
+    }
+
+    private static void run(int rows) throws Exception {
+        File dbFile = File.createTempFile("load", ".sqlite");
+        try {
+            createTables(dbFile.getPath());
+            Floor source = new Floor();
+            for (int id = 0; id < rows; id++) {
+                source.addItem(new Item(id, "Item " + (id % 500), TYPES[id % TYPES.length], 1 + id % 10, (id % 200) / 10.0, "Description " + (id % 500)));
+            }
+            InventoryManager writer = new InventoryManager(new Inventory(0), source, dbFile.getPath());
+            writer.saveAllItemsToDatabase();
+            writer.close();
+
+            Floor floor = new Floor();
+            InventoryManager manager = new InventoryManager(new Inventory(0), floor, dbFile.getPath());
+            long start = System.nanoTime();
+            manager.loadItemsFromDatabase((table, loaded, total) -> {
+                if (loaded % 262_144 < InventoryManager.LOAD_FETCH_SIZE || loaded == total) {
+                    System.out.printf("  %s: %,d / %,d%n", table, loaded, total);
+                }
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+            manager.close();
+            System.out.printf("Loaded %,d rows in %.2f s (%,.0f rows/s)%n", floor.size(), seconds, floor.size() / seconds);
+        } finally {
+            dbFile.delete();
+        }
+    }
+
+    private static void createTables(String dbFilePath) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFilePath);
+             Statement stmt = conn.createStatement()) {
+            for (String table : new String[]{"inventory_items", "floor_items"}) {
+                stmt.executeUpdate("CREATE TABLE " + table + " (id INTEGER PRIMARY KEY, name TEXT NOT NULL, type TEXT NOT NULL, "
+                        + "quantity INTEGER NOT NULL, weight REAL NOT NULL, description TEXT NOT NULL)");
+            }
+        }
+    }
+}
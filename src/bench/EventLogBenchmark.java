@@ -0,0 +1,65 @@
+package bench;
+
+import data.Item;
+import logic.EventLogItemStorage;
+import logic.EventLogItemStorage.FsyncPolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * EventLogBenchmark measures how many small writes per second EventLogItemStorage takes under each
+ * FsyncPolicy. Each write is one pickup-sized group: an item leaves one table and lands in the other.
+ * Segments are kept small so that rolling and background snapshots happen during the run.
+ *
+ * <p>Run with {@code java -cp out bench.EventLogBenchmark 100000}.</p>
+ */
+
+public class EventLogBenchmark {
+    private static final int WRITE_COUNT = 100_000;
+    private static final int ITEM_COUNT = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : WRITE_COUNT;
+
+        System.out.printf("Writes: %,d%n", count);
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            // Forcing every write is bounded by the disk's sync latency, so time fewer of them
+            int writes = policy == FsyncPolicy.ALWAYS ? Math.max(1, count / 100) : count;
+            Path directory = Files.createTempDirectory("event-log-bench");
+            try {
+                EventLogItemStorage storage = new EventLogItemStorage(directory, policy, 4L << 20);
+                Random random = new Random(1);
+                long start = System.nanoTime();
+                for (int i = 0; i < writes; i++) {
+                    int id = random.nextInt(ITEM_COUNT);
+                    Map<String, Map<Integer, Item>> rows = new LinkedHashMap<>();
+                    Map<Integer, Item> removed = new LinkedHashMap<>();
+                    removed.put(id, null);
+                    rows.put("floor_items", removed);
+                    rows.put("inventory_items", Map.of(id, new Item(id, "Item " + id, "Misc", 1 + i % 10, 1.5, "Generated")));
+                    storage.write(rows);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                storage.close();
+                System.out.printf("%-8s: %,8d writes in %6.2f s, %,12.0f writes/s%n", policy, writes, seconds, writes / seconds);
+            } finally {
+                delete(directory);
+            }
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package bench;
+
+import data.Floor;
+import data.Item;
+import data.ItemFileExporter;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * ItemExportBenchmark compares writing an items file the old way, with String.format per item through a
+ * BufferedWriter, against ItemFileExporter, reporting time and bytes allocated per item for each.
+ *
+ * <p>Run with {@code java -cp out bench.ItemExportBenchmark 1000000}.</p>
+ */
+
+public class ItemExportBenchmark {
+    private static final int ITEM_COUNT = 1_000_000;
+    private static final String[] TYPES = {"Weapon", "Armor", "Consumable", "Scroll", "Misc"};
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : ITEM_COUNT;
+
+        Floor floor = new Floor();
+        for (int id = 0; id < count; id++) {
+            floor.addItem(new Item(id, "Item " + (id % 500), TYPES[id % TYPES.length], 1 + id % 10, (id % 200) / 10.0, "Description " + (id % 500)));
+        }
+        System.out.printf("Items: %,d%n", count);
+
+        Path file = Files.createTempFile("items", ".txt");
+        try {
+            ItemFileExporter exporter = new ItemFileExporter();
+            for (int run = 0; run < 3; run++) {
+                long allocated = allocatedBytes();
+                long start = System.nanoTime();
+                try (BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile()))) {
+                    for (Item item : floor.getItems()) {
+                        bw.write(String.format("%d;%s;%s;%d;%.2f;%s", item.getId(), item.getName(), item.getType(),
+                                item.getQuantity(), item.getWeight(), item.getDescription()) + "\n");
+                    }
+                }
+                report(run, "String.format", start, allocated, count);
+
+                allocated = allocatedBytes();
+                start = System.nanoTime();
+                exporter.export(file, floor.getItems());
+                report(run, "exporter", start, allocated, count);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void report(int run, String label, long start, long allocatedBefore, int count) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double bytesPerItem = (double) (allocatedBytes() - allocatedBefore) / count;
+        System.out.printf("Run %d %-14s %6.2f s, %,12.0f items/s, %8.1f bytes allocated per item%n",
+                run + 1, label + ":", seconds, count / seconds, bytesPerItem);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import data.Floor;
+import data.Item;
+import data.ItemFileImporter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * ItemImportBenchmark compares Floor.loadItemsFromFile, which reads and splits one line at a time,
+ * with the parallel ItemFileImporter on the same generated items file, and reports MB/s for each.
+ *
+ * <p>Run with {@code java -cp out bench.ItemImportBenchmark 1000000}.</p>
+ */
+
+public class ItemImportBenchmark {
+    private static final int ITEM_COUNT = 1_000_000;
+    private static final String[] TYPES = {"Weapon", "Armor", "Consumable", "Scroll", "Misc"};
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : ITEM_COUNT;
+
+        Path file = Files.createTempFile("items", ".txt");
+        try {
+            Floor source = new Floor();
+            for (int id = 0; id < count; id++) {
+                source.addItem(new Item(id, "Item " + (id % 500), TYPES[id % TYPES.length], 1 + id % 10, (id % 200) / 10.0, "Description " + (id % 500)));
+            }
+            source.saveItemsToFile(file.toString());
+            double megabytes = Files.size(file) / 1e6;
+            System.out.printf("Items: %,d (%.1f MB), %d cores%n", count, megabytes, Runtime.getRuntime().availableProcessors());
+
+            for (int run = 0; run < 3; run++) {
+                long start = System.nanoTime();
+                new Floor().loadItemsFromFile(file.toString());
+                double lineByLine = (System.nanoTime() - start) / 1e9;
+
+                start = System.nanoTime();
+                ItemFileImporter.Report report = new ItemFileImporter().importItems(file, new Floor());
+                double parallel = (System.nanoTime() - start) / 1e9;
+
+                // Parsing alone, into a container that throws the items away
+                start = System.nanoTime();
+                new ItemFileImporter().importItems(file, new Floor() {
+                    @Override
+                    public int addLoadedItems(Collection<Item> loaded) {
+                        return loaded.size();
+                    }
+                });
+                double parseOnly = (System.nanoTime() - start) / 1e9;
+
+                System.out.printf("Run %d: line by line %.2f s (%.0f MB/s), importer %.2f s (%.0f MB/s), importer parse only %.2f s (%.0f MB/s) - %s%n",
+                        run + 1, lineByLine, megabytes / lineByLine, parallel, megabytes / parallel, parseOnly, megabytes / parseOnly, report);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package bench;
+
+import data.Item;
+import data.ItemTemplate;
+
+/**
+ * ItemTemplateBenchmark measures what sharing ItemTemplates saves on a floor of one million items
+ * drawn from a few hundred kinds of item. Every row gets freshly allocated strings, as rows read from
+ * SQLite or from a save file do. The "before" layout keeps those strings per item, the way Item did
+ * before templates; the "after" layout is today's Item, which interns them into shared templates.
+ *
+ * <p>Run with a fixed heap so the numbers are comparable, e.g. {@code java -Xms2g -Xmx2g bench.ItemTemplateBenchmark}.</p>
+ */
+
+public class ItemTemplateBenchmark {
+    private static final int ITEM_COUNT = 1_000_000;
+    private static final int KINDS = 500;
+    private static final String[] TYPES = {"Weapon", "Armor", "Consumable", "Scroll", "Misc"};
+
+    // The field layout Item had before templates: every item owns its three strings
+    private static final class PerItemStrings {
+        private final int id;
+        private final String name;
+        private final String type;
+        private final int quantity;
+        private final long weightUnits;
+        private final String description;
+
+        private PerItemStrings(int id, String name, String type, int quantity, long weightUnits, String description) {
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.quantity = quantity;
+            this.weightUnits = weightUnits;
+            this.description = description;
+        }
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : ITEM_COUNT;
+
+        long baseline = usedHeap();
+        PerItemStrings[] before = new PerItemStrings[count];
+        for (int id = 0; id < count; id++) {
+            int kind = id % KINDS;
+            before[id] = new PerItemStrings(id, name(kind), type(kind), 1 + id % 10, (id % 200) * 100L, description(kind));
+        }
+        long beforeHeap = usedHeap() - baseline;
+
+        baseline = usedHeap();
+        long start = System.nanoTime();
+        Item[] after = new Item[count];
+        for (int id = 0; id < count; id++) {
+            int kind = id % KINDS;
+            after[id] = new Item(id, name(kind), type(kind), 1 + id % 10, (id % 200) / 10.0, description(kind));
+        }
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+        long afterHeap = usedHeap() - baseline;
+
+        System.out.printf("Items: %,d of %,d kinds (%,d templates pooled)%n", count, KINDS, ItemTemplate.poolSize());
+        System.out.printf("Per-item strings heap: %,d bytes (%.1f bytes/item)%n", beforeHeap, (double) beforeHeap / count);
+        System.out.printf("Shared templates heap: %,d bytes (%.1f bytes/item)%n", afterHeap, (double) afterHeap / count);
+        System.out.printf("Interning build time:  %.1f ms%n", buildMillis);
+        System.out.println("(checksum " + (before[count - 1].id + after[count - 1].getId()) + ")");
+    }
+
+    // New String instances on every call, like the values a JDBC driver or file reader hands back
+    private static String name(int kind) {
+        return new String("Item of kind " + kind);
+    }
+
+    private static String type(int kind) {
+        return new String(TYPES[kind % TYPES.length].toCharArray());
+    }
+
+    private static String description(int kind) {
+        return new String("A description shared by every item of kind " + kind + ".");
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,102 @@
+package bench;
+
+import data.ConcurrentFloor;
+import data.ConcurrentInventory;
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import data.ItemContainer;
+import logic.ItemTransfer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ItemTransferBenchmark measures how pickup and drop throughput grows with the number of threads. Every
+ * thread is a player moving its own items back and forth between one shared floor and its inventory, so
+ * the threads only contend on the floor. It runs once with ConcurrentFloor/ConcurrentInventory and striped
+ * item locks, and once with a plain Floor and Inventory, which ItemTransfer serializes.
+ *
+ * <p>Run with {@code java bench.ItemTransferBenchmark [maxThreads] [seconds]}; the numbers only scale up
+ * to the number of cores the machine has.</p>
+ */
+
+public class ItemTransferBenchmark {
+    private static final int ITEMS_PER_PLAYER = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(8, Runtime.getRuntime().availableProcessors());
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2.0;
+        System.out.printf("Cores: %d, %.1f s per run%n", Runtime.getRuntime().availableProcessors(), seconds);
+
+        for (boolean striped : new boolean[] {true, false}) {
+            double single = 0;
+            for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+                double movesPerSecond = run(threads, striped, seconds);
+                if (threads == 1) {
+                    single = movesPerSecond;
+                }
+                System.out.printf("%-8s threads=%-3d %,12.0f moves/s  (%.2fx one thread)%n",
+                        striped ? "striped" : "plain", threads, movesPerSecond, movesPerSecond / single);
+            }
+        }
+    }
+
+    private static double run(int threads, boolean striped, double seconds) throws Exception {
+        ItemContainer floor = striped ? new ConcurrentFloor() : new Floor();
+        List<ItemContainer> inventories = new ArrayList<>();
+        for (int p = 0; p < threads; p++) {
+            ItemContainer inventory = striped ? new ConcurrentInventory(Double.MAX_VALUE) : new Inventory(Double.MAX_VALUE);
+            inventories.add(inventory);
+            for (int i = 0; i < ITEMS_PER_PLAYER; i++) {
+                int id = p * ITEMS_PER_PLAYER + i;
+                floor.addItem(new Item(id, "Coin", "Currency", 1, 0.01, "A coin"));
+            }
+        }
+        List<ItemContainer> all = new ArrayList<>(inventories);
+        all.add(floor);
+        ItemTransfer transfers = ItemTransfer.forContainers(all.toArray(new ItemContainer[0]));
+
+        LongAdder moves = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> players = new ArrayList<>();
+        for (int p = 0; p < threads; p++) {
+            ItemContainer inventory = inventories.get(p);
+            int firstId = p * ITEMS_PER_PLAYER;
+            Thread player = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long done = 0;
+                // Pick up every item, then drop them all again, until time is up
+                while (running.get()) {
+                    for (int i = 0; i < ITEMS_PER_PLAYER; i++) {
+                        transfers.transfer(floor, inventory, firstId + i);
+                    }
+                    for (int i = 0; i < ITEMS_PER_PLAYER; i++) {
+                        transfers.transfer(inventory, floor, firstId + i);
+                    }
+                    done += 2L * ITEMS_PER_PLAYER;
+                }
+                moves.add(done);
+            });
+            players.add(player);
+            player.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep((long) (seconds * 1000));
+        running.set(false);
+        for (Thread player : players) {
+            player.join();
+        }
+        return moves.sum() / ((System.nanoTime() - begin) / 1e9);
+    }
+}
@@ -0,0 +1,87 @@
+package bench;
+
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import data.ItemSnapshot;
+import logic.InventoryManager;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * SnapshotLoadBenchmark compares the ways a floor can be loaded at startup: the text items file,
+ * a SQLite database and a binary ItemSnapshot. For the snapshot it also times opening the file alone,
+ * since items are only decoded when read. Runs at 100k and 1M items unless sizes are given.
+ *
+ * <p>The SQLite row is skipped when the driver is not on the classpath, e.g. run
+ * {@code java -cp out:sqlite-jdbc.jar bench.SnapshotLoadBenchmark 100000 1000000}.</p>
+ */
+
+public class SnapshotLoadBenchmark {
+    private static final int[] ITEM_COUNTS = {100_000, 1_000_000};
+    private static final String[] TYPES = {"Weapon", "Armor", "Consumable", "Scroll", "Misc"};
+
+    public static void main(String[] args) throws Exception {
+        int[] counts = ITEM_COUNTS;
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        for (int count : counts) {
+            Floor source = new Floor();
+            for (int id = 0; id < count; id++) {
+                source.addItem(new Item(id, "Item " + (id % 500), TYPES[id % TYPES.length], 1 + id % 10, (id % 200) / 10.0, "Description " + (id % 500)));
+            }
+            System.out.printf("Items: %,d%n", count);
+
+            Path text = Files.createTempFile("items", ".txt");
+            Path snapshot = Files.createTempFile("items", ".snap");
+            File dbFile = File.createTempFile("items", ".sqlite");
+            try {
+                source.saveItemsToFile(text.toString());
+                source.saveItemsToSnapshot(snapshot.toString());
+                System.out.printf("  sizes: text %,d bytes, snapshot %,d bytes%n", Files.size(text), Files.size(snapshot));
+
+                time("text load", () -> new Floor().loadItemsFromFile(text.toString()));
+                time("snapshot open", () -> ItemSnapshot.open(snapshot).size());
+                time("snapshot load", () -> new Floor().loadItemsFromSnapshot(snapshot.toString()));
+
+                try {
+                    Class.forName("org.sqlite.JDBC");
+                    InventoryManager writer = new InventoryManager(new Inventory(0), source, dbFile.getPath());
+                    writer.saveAllItemsToDatabase();
+                    writer.close();
+                    InventoryManager manager = new InventoryManager(new Inventory(0), new Floor(), dbFile.getPath());
+                    time("sqlite load", manager::loadItemsFromDatabase);
+                    manager.close();
+                } catch (ClassNotFoundException e) {
+                    System.out.println("  sqlite load: skipped, no SQLite driver on the classpath");
+                }
+            } finally {
+                Files.deleteIfExists(text);
+                Files.deleteIfExists(snapshot);
+                dbFile.delete();
+            }
+        }
+    }
+
+    private interface Load {
+        Object run() throws Exception;
+    }
+
+    // Best of three runs, so the first run's class loading and JIT warm-up do not count
+    private static void time(String label, Load load) throws Exception {
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            load.run();
+            best = Math.min(best, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.printf("  %-14s %10.1f ms%n", label + ":", best);
+    }
+}
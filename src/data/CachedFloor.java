@@ -0,0 +1,465 @@
+package data;
+
+import exceptions.StorageException;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * CachedFloor is a Floor for worlds whose floor_items table is far larger than the heap. Only a bounded
+ * set of recently used items is kept in memory; the rest stay in the table and are fetched by primary key
+ * through an ItemSource when they are asked for. When the estimated size of the items in memory goes over
+ * the budget, the least recently used ones are dropped again.
+ *
+ * <p>Items that were added, stacked or taken since the last save are pinned: they are never evicted, and
+ * a taken item is remembered as deleted so it is not fetched back, until InventoryManager reports their
+ * rows written through {@link #rowsSaved}. Evicting an item therefore never loses a change.</p>
+ *
+ * <p>Lookups by ID see the whole table. Whole-floor reads such as getItems, size, the sorted views and
+ * the type and name searches only see the items currently in memory; {@link #scan} pages through the
+ * table in ID order instead. A cached floor cannot be cleared, loaded from a file or swapped with
+ * replaceContents, since that would need the whole table in memory.</p>
+ *
+ * <p>Every method locks the floor, since rowsSaved can evict items from a background writer thread.
+ * For the same reason getItems returns a snapshot instead of the live view a plain Floor returns. The
+ * sorted views stay live, taking the lock on every read, so a grid reads only the rows it shows; an
+ * eviction between reading the size and a row can still leave a position out of range. Iterating a
+ * sorted view walks a copy taken when the iteration starts.</p>
+ */
+
+public class CachedFloor extends Floor {
+    private static final long ITEM_OVERHEAD_BYTES = 160; // Item, its counters and its entries in the indexes
+
+    private final ItemSource source;
+    private final long maxBytes;
+    private final LinkedHashMap<Integer, Long> recency = new LinkedHashMap<>(16, 0.75f, true); // ID -> estimated bytes, eldest first
+    private final Set<Integer> pinned = new HashSet<>(); // Changed since the last save; not resident means taken
+    private long residentBytes;
+    private long hits;
+    private long misses;
+    private long prefetched;
+    private long evictions;
+    private long evictedBytes;
+
+    /**
+     * Constructs a cached floor over a stored table. Nothing is read until an item is asked for.
+     *
+     * @param source reads the floor's rows by primary key
+     * @param maxBytes the estimated size the items in memory may take up; pinned items can push it over
+     */
+
+    public CachedFloor(ItemSource source, long maxBytes) {
+        this.source = source;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Estimates the heap an item takes up in the floor: a fixed cost for the item and its index entries,
+     * plus its strings. Templates are often shared, so this errs on the large side.
+     *
+     * @param item the item to weigh
+     * @return the estimated size in bytes
+     */
+
+    public static long estimateBytes(Item item) {
+        return ITEM_OVERHEAD_BYTES + 2L * (length(item.getName()) + length(item.getType()) + length(item.getDescription()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    @Override
+    public synchronized Item getItemById(int id) {
+        try {
+            Item item = lookup(id);
+            evictIfNeeded();
+            return item;
+        } catch (StorageException e) {
+            System.out.println("Error reading floor item " + id + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Finds an item in memory or reads it into memory; callers evict afterwards, once it is safe to
+    private Item lookup(int id) throws StorageException {
+        Item item = super.getItemById(id);
+        if (item != null) {
+            hits++;
+            recency.get(id); // Marks it most recently used
+            return item;
+        }
+        if (pinned.contains(id)) {
+            return null; // Taken since the last save; the row is still in the table until then
+        }
+        misses++;
+        item = source.fetch(id);
+        if (item != null) {
+            admit(item);
+        }
+        return item;
+    }
+
+    /**
+     * Returns the items with the given IDs, fetching every one not in memory with a single batched read.
+     *
+     * @param ids the item IDs
+     * @return the items found, in the order of the IDs
+     */
+
+    public synchronized List<Item> getItemsByIds(Collection<Integer> ids) {
+        List<Integer> missing = new ArrayList<>();
+        for (int id : ids) {
+            if (super.getItemById(id) == null && !pinned.contains(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            try {
+                for (Item item : source.fetchAll(missing)) {
+                    admit(item);
+                    prefetched++;
+                }
+            } catch (StorageException e) {
+                System.out.println("Error reading floor items: " + e.getMessage());
+            }
+        }
+        List<Item> found = new ArrayList<>();
+        for (int id : ids) {
+            Item item = super.getItemById(id);
+            if (item != null) {
+                recency.get(id);
+                found.add(item);
+            }
+        }
+        evictIfNeeded();
+        return found;
+    }
+
+    /**
+     * Returns a page of the floor in ID order, reading the rows with one range query. Items changed in
+     * memory but not saved yet are shown as they are now: taken items are left out and new ones included.
+     *
+     * @param fromId the smallest ID to return
+     * @param limit the most items to return
+     * @return up to limit items with IDs of at least fromId, in ascending ID order
+     */
+
+    public synchronized List<Item> scan(int fromId, int limit) {
+        List<Item> rows;
+        try {
+            rows = source.fetchRange(fromId, limit);
+        } catch (StorageException e) {
+            System.out.println("Error reading floor items: " + e.getMessage());
+            return List.of();
+        }
+
+        TreeMap<Integer, Item> page = new TreeMap<>();
+        for (Item row : rows) {
+            Item resident = super.getItemById(row.getId());
+            if (resident != null) {
+                recency.get(row.getId());
+                page.put(row.getId(), resident);
+            } else if (!pinned.contains(row.getId())) {
+                admit(row);
+                prefetched++;
+                page.put(row.getId(), row);
+            }
+        }
+        // Items added since the last save are not in the table yet
+        long lastId = rows.size() < limit ? Long.MAX_VALUE : rows.get(rows.size() - 1).getId();
+        for (int id : pinned) {
+            Item item = super.getItemById(id);
+            if (item != null && id >= fromId && id <= lastId) {
+                page.put(id, item);
+            }
+        }
+        while (page.size() > limit) {
+            page.pollLastEntry();
+        }
+        evictIfNeeded();
+        return new ArrayList<>(page.values());
+    }
+
+    // Fetches the current item first, so an item already in the table is stacked rather than shadowed
+    @Override
+    public synchronized boolean addItem(Item item) {
+        try {
+            lookup(item.getId());
+        } catch (StorageException e) {
+            System.out.println("Error reading floor item " + item.getId() + ": " + e.getMessage());
+            return false; // Adding blind could overwrite a row we could not read
+        }
+        if (super.getItemById(item.getId()) == null) {
+            recency.put(item.getId(), estimateBytes(item));
+            residentBytes += estimateBytes(item);
+        }
+        super.addItem(item);
+        pinned.add(item.getId());
+        evictIfNeeded();
+        return true;
+    }
+
+    // Rows read from storage are only admitted to the cache
+    @Override
+    public synchronized int addLoadedItems(Collection<Item> loaded) {
+        for (Item item : loaded) {
+            if (super.getItemById(item.getId()) == null && !pinned.contains(item.getId())) {
+                admit(item);
+            }
+        }
+        evictIfNeeded();
+        return loaded.size();
+    }
+
+    @Override
+    public synchronized Item takeItem(int id) {
+        try {
+            if (lookup(id) == null) {
+                return null;
+            }
+        } catch (StorageException e) {
+            System.out.println("Error reading floor item " + id + ": " + e.getMessage());
+            return null;
+        }
+        Item item = super.takeItem(id);
+        forget(id);
+        pinned.add(id);
+        evictIfNeeded();
+        return item;
+    }
+
+    @Override
+    public synchronized List<Item> getItems() {
+        return List.copyOf(super.getItems());
+    }
+
+    // Live, so a grid refresh reads only its visible rows instead of copying the order; each read takes the lock
+    @Override
+    public List<Item> getItemsSortedBy(SortKey key) {
+        return new AbstractList<>() {
+            @Override
+            public Item get(int index) {
+                synchronized (CachedFloor.this) {
+                    return CachedFloor.super.getItemsSortedBy(key).get(index);
+                }
+            }
+
+            @Override
+            public int size() {
+                synchronized (CachedFloor.this) {
+                    return CachedFloor.super.getItemsSortedBy(key).size();
+                }
+            }
+
+            // Reading every item costs a pass anyway, so iteration works on one copy taken under the lock
+            @Override
+            public Iterator<Item> iterator() {
+                synchronized (CachedFloor.this) {
+                    return List.copyOf(CachedFloor.super.getItemsSortedBy(key)).iterator();
+                }
+            }
+        };
+    }
+
+    @Override
+    public synchronized int size() {
+        return super.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return super.isEmpty();
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<? super Item> action) {
+        super.forEach(action);
+    }
+
+    @Override
+    public synchronized List<Item> filterItemsByType(String type) {
+        return super.filterItemsByType(type); // Already a new list
+    }
+
+    @Override
+    public synchronized List<Item> searchByName(String query) {
+        return super.searchByName(query);
+    }
+
+    @Override
+    public synchronized Set<String> getCategories() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(super.getCategories()));
+    }
+
+    /**
+     * Unpins items whose rows have been written. InventoryManager calls this after each successful write
+     * of floor rows; an item changed again since then stays pinned for the next save.
+     *
+     * @param rows the written rows by item ID, null for deletes
+     */
+
+    public synchronized void rowsSaved(Map<Integer, Item> rows) {
+        for (int id : rows.keySet()) {
+            if (!getChangeTracker().isPending(id)) {
+                pinned.remove(id);
+            }
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Drops one item from memory so its next read comes from the table, unless it has unsaved changes.
+     * Used when another process has changed its row.
+     *
+     * @param id the item ID
+     */
+
+    public synchronized void invalidate(int id) {
+        if (!pinned.contains(id) && recency.containsKey(id)) {
+            evictItem(id);
+            forget(id);
+        }
+    }
+
+    /**
+     * Drops every item from memory, pinned ones included, so the next reads come from the table. Used when
+     * the table is reloaded; unsaved changes are discarded like in any other load.
+     */
+
+    public synchronized void invalidateAll() {
+        for (int id : new ArrayList<>(recency.keySet())) {
+            evictItem(id);
+        }
+        recency.clear();
+        pinned.clear();
+        residentBytes = 0;
+    }
+
+    private void admit(Item item) {
+        long bytes = estimateBytes(item);
+        admitItem(item);
+        recency.put(item.getId(), bytes);
+        residentBytes += bytes;
+    }
+
+    private void forget(int id) {
+        Long bytes = recency.remove(id);
+        if (bytes != null) {
+            residentBytes -= bytes;
+        }
+    }
+
+    // Drops least recently used items until the estimate fits the budget again, skipping pinned ones
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Integer, Long>> eldest = recency.entrySet().iterator();
+        while (residentBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Integer, Long> entry = eldest.next();
+            if (pinned.contains(entry.getKey())) {
+                continue;
+            }
+            evictItem(entry.getKey());
+            eldest.remove();
+            residentBytes -= entry.getValue();
+            evictions++;
+            evictedBytes += entry.getValue();
+        }
+    }
+
+    @Override
+    public void clearItems() {
+        throw new UnsupportedOperationException("A cached floor cannot be cleared in memory; delete the rows from floor_items instead.");
+    }
+
+    @Override
+    public CachedFloor emptyCopy() {
+        throw new UnsupportedOperationException("A cached floor is never loaded in full.");
+    }
+
+    @Override
+    public void replaceContents(ItemContainer staged) {
+        throw new UnsupportedOperationException("A cached floor is never loaded in full.");
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, prefetched, evictions, evictedBytes, recency.size(), residentBytes);
+    }
+
+    /**
+     * Stats is a snapshot of a cached floor's counters since it was created.
+     */
+
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long prefetched;
+        private final long evictions;
+        private final long evictedBytes;
+        private final int residentItems;
+        private final long residentBytes;
+
+        private Stats(long hits, long misses, long prefetched, long evictions, long evictedBytes, int residentItems, long residentBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.prefetched = prefetched;
+            this.evictions = evictions;
+            this.evictedBytes = evictedBytes;
+            this.residentItems = residentItems;
+            this.residentBytes = residentBytes;
+        }
+
+        // Lookups by ID answered from memory
+        public long getHits() {
+            return hits;
+        }
+
+        // Lookups by ID that had to read the table
+        public long getMisses() {
+            return misses;
+        }
+
+        // Rows read ahead by getItemsByIds and scan
+        public long getPrefetched() {
+            return prefetched;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getEvictedBytes() {
+            return evictedBytes;
+        }
+
+        public int getResidentItems() {
+            return residentItems;
+        }
+
+        public long getResidentBytes() {
+            return residentBytes;
+        }
+
+        // Fraction of lookups by ID answered from memory, or 0 before the first lookup
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d hitRate=%.3f prefetched=%d evictions=%d evictedBytes=%d residentItems=%d residentBytes=%d",
+                    hits, misses, getHitRate(), prefetched, evictions, evictedBytes, residentItems, residentBytes);
+        }
+    }
+}
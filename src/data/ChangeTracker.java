@@ -0,0 +1,160 @@
+package data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * ChangeTracker records which items of one container have been inserted, updated or deleted since
+ * the container was last saved, so a save only has to write those rows instead of the whole table.
+ *
+ * <p>Changes to the same ID are folded together as they arrive: an item inserted and then deleted
+ * before a save never reaches the database at all, and one deleted and then re-added is simply
+ * updated. A save {@link #drain drains} the pending changes; if the write fails it {@link #restore
+ * restores} them, merged with anything that changed in the meantime, so nothing is lost.</p>
+ */
+
+public class ChangeTracker {
+    public enum Change { INSERTED, UPDATED, DELETED }
+
+    private Map<Integer, Change> pending = new LinkedHashMap<>();
+
+    /**
+     * The changes taken by one {@link #drain}, grouped by the kind of write they need.
+     */
+
+    public static class Changes {
+        private final Map<Integer, Change> changes;
+
+        private Changes(Map<Integer, Change> changes) {
+            this.changes = changes;
+        }
+
+        // IDs whose current row has to be written, whether new or changed
+        public Set<Integer> getUpserts() {
+            return idsWhere(change -> change != Change.DELETED);
+        }
+
+        public Set<Integer> getDeletes() {
+            return idsWhere(change -> change == Change.DELETED);
+        }
+
+        public Change get(int id) {
+            return changes.get(id);
+        }
+
+        public int size() {
+            return changes.size();
+        }
+
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+
+        private Set<Integer> idsWhere(Predicate<Change> filter) {
+            Set<Integer> ids = new TreeSet<>(); // Primary key order keeps the writes sequential in the table
+            for (Map.Entry<Integer, Change> entry : changes.entrySet()) {
+                if (filter.test(entry.getValue())) {
+                    ids.add(entry.getKey());
+                }
+            }
+            return Collections.unmodifiableSet(ids);
+        }
+    }
+
+    public synchronized void markInserted(int id) {
+        Change previous = pending.get(id);
+        // A row deleted earlier in this batch still exists in the database, so re-adding it is an update
+        pending.put(id, previous == Change.DELETED || previous == Change.UPDATED ? Change.UPDATED : Change.INSERTED);
+    }
+
+    public synchronized void markUpdated(int id) {
+        if (pending.get(id) == null) {
+            pending.put(id, Change.UPDATED);
+        }
+    }
+
+    public synchronized void markDeleted(int id) {
+        if (pending.get(id) == Change.INSERTED) {
+            pending.remove(id); // Never written, so there is nothing to delete
+        } else {
+            pending.put(id, Change.DELETED);
+        }
+    }
+
+    /**
+     * Records that the container's items were replaced wholesale, for example by a file import: IDs that
+     * are gone are deleted and every current item is written, so the next save brings the table in line
+     * with the new items just as if they had been removed and added one by one.
+     *
+     * @param before the items the container held before the replacement
+     * @param after the items it holds now
+     */
+
+    public synchronized void markReplaced(Collection<Item> before, Collection<Item> after) {
+        Set<Integer> previousIds = new HashSet<>(before.size() * 2);
+        for (Item item : before) {
+            previousIds.add(item.getId());
+        }
+        for (Item item : after) {
+            if (previousIds.remove(item.getId())) {
+                markUpdated(item.getId());
+            } else {
+                markInserted(item.getId());
+            }
+        }
+        for (int id : previousIds) {
+            markDeleted(id);
+        }
+    }
+
+    // Takes every pending change, leaving the tracker empty for changes made while the save runs
+    public synchronized Changes drain() {
+        Changes drained = new Changes(pending);
+        pending = new LinkedHashMap<>();
+        return drained;
+    }
+
+    /**
+     * Puts back changes from a failed save. A change made since the drain describes the newer state
+     * and wins, except that a row the failed save did not get to delete or update still exists in the
+     * database, so re-adding it since counts as an update rather than an insert.
+     *
+     * @param failed the changes that could not be written
+     */
+
+    public synchronized void restore(Changes failed) {
+        for (Map.Entry<Integer, Change> entry : failed.changes.entrySet()) {
+            Change newer = pending.get(entry.getKey());
+            if (newer == null) {
+                pending.put(entry.getKey(), entry.getValue());
+            } else if (newer == Change.INSERTED && entry.getValue() != Change.INSERTED) {
+                pending.put(entry.getKey(), Change.UPDATED);
+            }
+        }
+    }
+
+    // Whether the item has changed since it was last drained
+    public synchronized boolean isPending(int id) {
+        return pending.containsKey(id);
+    }
+
+    // Forgets the pending change to one item, once it has been settled some other way
+    public synchronized void discard(int id) {
+        pending.remove(id);
+    }
+
+    // Forgets every pending change, e.g. once the container has just been loaded from the database
+    public synchronized void reset() {
+        pending = new LinkedHashMap<>();
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,131 @@
+package data;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * ConcurrentFloor is a thread-safe Floor for worlds where many players pick up and drop items at once.
+ * Items are kept in a StripedItemTable, so operations on items in different stripes never block each other.
+ *
+ * <p>Whole-floor reads such as getItems return snapshots grouped by stripe rather than live views.</p>
+ */
+
+public class ConcurrentFloor extends Floor {
+    private volatile StripedItemTable items = new StripedItemTable(getChangeTracker()); // Swapped whole by replaceContents
+
+    @Override
+    public boolean addItem(Item item) {
+        ItemTable stripe = items.stripeFor(item.getId());
+        synchronized (stripe) {
+            Item existingItem = stripe.get(item.getId());
+            if (existingItem != null) {
+                stripe.addQuantity(existingItem, item.getQuantity());
+            } else {
+                stripe.add(item);
+            }
+        }
+        return true;
+    }
+
+    // Stripes lock independently, so loaded items are added one at a time without being recorded as changes
+    @Override
+    public int addLoadedItems(Collection<Item> loaded) {
+        StripedItemTable target = items;
+        for (Item item : loaded) {
+            if (!target.addLoaded(item)) {
+                addItem(item); // Same ID twice, so stack it the usual way
+            }
+        }
+        return loaded.size();
+    }
+
+    @Override
+    public ConcurrentFloor emptyCopy() {
+        return new ConcurrentFloor();
+    }
+
+    // Readers switch over in one step; writes racing the swap may still land in the old items
+    @Override
+    public void replaceContents(ItemContainer staged) {
+        if (staged.getClass() != getClass()) {
+            throw new IllegalArgumentException("Staged container must come from emptyCopy.");
+        }
+        ConcurrentFloor source = (ConcurrentFloor) staged;
+        source.items.reportTo(getChangeTracker());
+        items = source.items;
+        source.items = new StripedItemTable(source.getChangeTracker());
+    }
+
+    @Override
+    public Item takeItem(int id) {
+        ItemTable stripe = items.stripeFor(id);
+        synchronized (stripe) {
+            return stripe.remove(id);
+        }
+    }
+
+    @Override
+    public Item getItemById(int id) {
+        ItemTable stripe = items.stripeFor(id);
+        synchronized (stripe) {
+            return stripe.get(id);
+        }
+    }
+
+    @Override
+    public void clearItems() {
+        for (int i = 0; i < items.stripeCount(); i++) {
+            ItemTable stripe = items.stripe(i);
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    @Override
+    public List<Item> getItems() {
+        return items.snapshot();
+    }
+
+    @Override
+    public List<Item> getItemsSortedBy(SortKey key) {
+        return items.sortedBy(key);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Item> action) {
+        items.snapshot().forEach(action);
+    }
+
+    @Override
+    public List<Item> filterItemsByType(String type) {
+        return items.filterByType(type);
+    }
+
+    @Override
+    public List<Item> searchByName(String query) {
+        return items.searchByName(query);
+    }
+
+    @Override
+    public Set<String> getCategories() {
+        return items.categories();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+}
@@ -0,0 +1,218 @@
+package data;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * ConcurrentInventory is a thread-safe Inventory that many threads can add to, remove from and update at once.
+ * Weight is tracked as fixed-point units in an AtomicLong: an add reserves its weight with a
+ * compare-and-set loop against the capacity, so concurrent adds can never push the total over the maximum.
+ * Items are kept in a StripedItemTable, so operations on items in different stripes do not block each other.
+ *
+ * <p>Whole-inventory reads such as getItems return snapshots grouped by stripe rather than live views.</p>
+ */
+
+public class ConcurrentInventory extends Inventory {
+    private final AtomicLong currentWeightUnits = new AtomicLong();
+    private volatile StripedItemTable items = new StripedItemTable(getChangeTracker()); // Swapped whole by replaceContents
+
+    /**
+     * Constructs a ConcurrentInventory with a specified maximum weight capacity.
+     *
+     * @param maxWeightCapacity the maximum allowable weight for the inventory
+     */
+
+    public ConcurrentInventory(double maxWeightCapacity) {
+        super(maxWeightCapacity);
+    }
+
+    @Override
+    public boolean addItem(Item item) {
+        ItemTable stripe = items.stripeFor(item.getId());
+        synchronized (stripe) {
+            Item existingItem = stripe.get(item.getId());
+            // A stacked item takes on the existing item's weight, so reserve what the stack will really weigh
+            long unitWeight = existingItem != null ? existingItem.getWeightUnits() : item.getWeightUnits();
+            if (!reserve(unitWeight * item.getQuantity())) {
+                System.out.println("Cannot add item. Exceeds maximum weight capacity.");
+                return false;
+            }
+            if (existingItem != null) {
+                stripe.addQuantity(existingItem, item.getQuantity());
+            } else {
+                stripe.add(item);
+            }
+        }
+        return true;
+    }
+
+    // Stripes lock independently, so loaded items are added one at a time without being recorded as changes
+    @Override
+    public int addLoadedItems(Collection<Item> loaded) {
+        StripedItemTable target = items;
+        int added = 0;
+        for (Item item : loaded) {
+            long units = Weights.stackUnits(item);
+            if (!reserve(units)) {
+                System.out.println("Cannot add item. Exceeds maximum weight capacity.");
+            } else if (target.addLoaded(item)) {
+                added++;
+            } else {
+                currentWeightUnits.addAndGet(-units); // Same ID twice, so stack it the usual way, which reserves for itself
+                if (addItem(item)) {
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public ConcurrentInventory emptyCopy() {
+        return new ConcurrentInventory(getMaxWeightCapacity());
+    }
+
+    // Readers switch over in one step; writes racing the swap may still land in the old items
+    @Override
+    public void replaceContents(ItemContainer staged) {
+        if (staged.getClass() != getClass()) {
+            throw new IllegalArgumentException("Staged container must come from emptyCopy.");
+        }
+        ConcurrentInventory source = (ConcurrentInventory) staged;
+        source.items.reportTo(getChangeTracker());
+        items = source.items;
+        currentWeightUnits.set(source.currentWeightUnits.get());
+        source.items = new StripedItemTable(source.getChangeTracker());
+        source.currentWeightUnits.set(0);
+    }
+
+    @Override
+    public Item takeItem(int id) {
+        ItemTable stripe = items.stripeFor(id);
+        synchronized (stripe) {
+            Item item = stripe.remove(id);
+            if (item != null) {
+                currentWeightUnits.addAndGet(-Weights.stackUnits(item));
+            }
+            return item;
+        }
+    }
+
+    @Override
+    public Item getItemById(int id) {
+        ItemTable stripe = items.stripeFor(id);
+        synchronized (stripe) {
+            return stripe.get(id);
+        }
+    }
+
+    @Override
+    public void clearItems() {
+        for (int i = 0; i < items.stripeCount(); i++) {
+            ItemTable stripe = items.stripe(i);
+            long units = 0;
+            synchronized (stripe) {
+                for (Item item : stripe) {
+                    units += Weights.stackUnits(item);
+                }
+                stripe.clear();
+            }
+            currentWeightUnits.addAndGet(-units);
+        }
+    }
+
+    /**
+     * Updates an item's details. An update that would make the item heavier has to reserve the extra
+     * weight first; if that would exceed the capacity the item is left unchanged.
+     */
+
+    @Override
+    public void updateItemDetails(int id, String name, String type, int quantity, double weight, String description) {
+        ItemTable stripe = items.stripeFor(id);
+        synchronized (stripe) {
+            Item item = stripe.get(id);
+            if (item == null) {
+                return;
+            }
+            // Item setters ignore negative values, so work out the weight the item will actually end up with
+            int newQuantity = quantity >= 0 ? quantity : item.getQuantity();
+            double newWeight = weight >= 0 ? weight : item.getWeight();
+            long delta = Weights.toUnits(newWeight) * newQuantity - Weights.stackUnits(item);
+            if (delta > 0 && !reserve(delta)) {
+                System.out.println("Cannot update item. Exceeds maximum weight capacity.");
+                return;
+            }
+            stripe.updateDetails(item, name, type, quantity, weight, description);
+            if (delta < 0) {
+                currentWeightUnits.addAndGet(delta);
+            }
+        }
+    }
+
+    @Override
+    public List<Item> getItems() {
+        return items.snapshot();
+    }
+
+    @Override
+    public List<Item> getItemsSortedBy(SortKey key) {
+        return items.sortedBy(key);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Item> action) {
+        items.snapshot().forEach(action);
+    }
+
+    @Override
+    public long getTotalWeightUnits() {
+        return currentWeightUnits.get();
+    }
+
+    @Override
+    public List<Item> filterItemsByType(String type) {
+        return items.filterByType(type);
+    }
+
+    @Override
+    public List<Item> searchByName(String query) {
+        return items.searchByName(query);
+    }
+
+    @Override
+    public Set<String> getCategories() {
+        return items.categories();
+    }
+
+    // Atomically claims weight units, failing instead of going over the capacity
+    private boolean reserve(long units) {
+        while (true) {
+            long current = currentWeightUnits.get();
+            long updated = current + units;
+            if (updated > getMaxWeightUnits()) {
+                return false;
+            }
+            if (currentWeightUnits.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+}
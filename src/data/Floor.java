@@ -4,68 +4,162 @@ import exceptions.InvalidItemFormatException;
 
 import java.util.*;
 import java.io.*;
+import java.nio.file.Path;
+import java.util.function.Consumer;
 
 /**
  * Floor class manages a collection of items placed on the floor.
  * Provides methods to add, remove, display, load from a file, and save items to a file.
  */
 
-public class Floor {
-    private List<Item> items;
+public class Floor implements ItemContainer {
+    private ItemTable items;
+    private final ChangeTracker changes = new ChangeTracker();
 
     /**
-     * Constructs a Floor object and initializes an empty list of items.
+     * Constructs a Floor object and initializes an empty item table.
      */
 
     public Floor() {
-        this.items = new ArrayList<>();
+        this.items = new ItemTable(changes);
     }
 
-    public void addItem(Item item) {
-        items.add(item);
+    // Items with an ID already on the floor are stacked onto the existing item; the floor has no capacity limit
+    @Override
+    public boolean addItem(Item item) {
+        Item existingItem = items.get(item.getId());
+        if (existingItem != null) {
+            items.addQuantity(existingItem, item.getQuantity());
+        } else {
+            items.add(item);
+        }
+        return true;
+    }
+
+    @Override
+    public int addLoadedItems(Collection<Item> loaded) {
+        items.ensureCapacity(items.size() + loaded.size());
+        for (Item item : loaded) {
+            if (!items.addLoaded(item)) {
+                addItem(item); // Same ID twice, so stack it the usual way
+            }
+        }
+        return loaded.size();
     }
 
+    @Override
     public void clearItems() {
         items.clear();
     }
 
+    @Override
+    public Floor emptyCopy() {
+        return new Floor();
+    }
+
+    @Override
+    public void replaceContents(ItemContainer staged) {
+        if (staged.getClass() != getClass()) {
+            throw new IllegalArgumentException("Staged container must come from emptyCopy.");
+        }
+        Floor source = (Floor) staged;
+        source.items.reportTo(changes);
+        items = source.items;
+        source.items = new ItemTable(source.changes);
+    }
+
+    @Override
     public boolean removeItem(int id) {
-        Item item = getItemById(id);
-        if (item != null) {
-            items.remove(item);
+        if (takeItem(id) != null) {
             return true;
         }
         System.out.println("Item not found on the floor.");
         return false;
     }
 
+    @Override
+    public Item takeItem(int id) {
+        return items.remove(id);
+    }
+
+    // Cache hooks for CachedFloor: move a stored row into or out of memory without recording a change
+    boolean admitItem(Item item) {
+        return items.addLoaded(item);
+    }
+
+    Item evictItem(int id) {
+        return items.evict(id);
+    }
+
     public void displayItems() {
-        if (items.isEmpty()) {
+        if (isEmpty()) {
             System.out.println("No items on the floor.");
         } else {
-            for (Item item : items) {
-                System.out.println(item.getDetails());
-            }
+            forEach(item -> System.out.println(item.getDetails()));
         }
     }
 
+    @Override
     public Item getItemById(int id) {
-        for (Item item : items) {
-            if (item.getId() == id) {
-                return item;
-            }
-        }
-        return null;
+        return items.get(id);
     }
 
+    /**
+     * Returns a read-only view of the items on the floor. The view is not a copy: it reflects later
+     * changes and rejects modification, so callers that need a snapshot should copy it themselves.
+     *
+     * @return an unmodifiable live view of the items, in the order they were added
+     */
+
+    @Override
     public List<Item> getItems() {
-        return new ArrayList<>(items); // Returning a copy to prevent external modifications.
+        return items.asList();
+    }
+
+    @Override
+    public List<Item> getItemsSortedBy(SortKey key) {
+        return items.sortedBy(key);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Item> action) {
+        items.forEach(action);
+    }
+
+    // Case-insensitive lookup through the type index; only the matching items are visited
+    public List<Item> filterItemsByType(String type) {
+        return items.filterByType(type);
+    }
+
+    // Case-insensitive substring search on item names, answered from the name index
+    public List<Item> searchByName(String query) {
+        return items.searchByName(query);
+    }
+
+    // Read-only live view of the distinct item types currently on the floor
+    public Set<String> getCategories() {
+        return items.categories();
+    }
+
+    // Inserted, updated and deleted item IDs since the floor was last saved or loaded
+    public ChangeTracker getChangeTracker() {
+        return changes;
     }
 
     public boolean loadItemsFromFile(String filename) throws InvalidItemFormatException {
         try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
             String line;
-            items.clear(); // Clear existing items before loading new ones
+            clearItems(); // Clear existing items before loading new ones
             while ((line = br.readLine()) != null) {
                 String[] parts = line.split(";");
                 if (parts.length == 6) {
@@ -92,13 +186,76 @@ public class Floor {
         }
     }
 
+    /**
+     * Replaces the floor's items with those of an items file, read by an ItemFileImporter: the file is
+     * parsed in parallel chunks, and lines that cannot be parsed are reported instead of ending the load.
+     * The items are built off to the side and swapped in at once, then recorded as changes against the old
+     * ones, so the next save deletes the rows that are gone and writes the imported items.
+     *
+     * @param filename the items file to read
+     * @return the import report, or null if the file could not be read
+     */
+
+    public ItemFileImporter.Report importItemsFromFile(String filename) {
+        try {
+            Floor staged = emptyCopy();
+            ItemFileImporter.Report report = new ItemFileImporter().importItems(Path.of(filename), staged);
+            List<Item> before = getItems();
+            replaceContents(staged);
+            getChangeTracker().markReplaced(before, getItems());
+            return report;
+        } catch (IOException e) {
+            System.out.println("Error reading items from file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Written by an ItemFileExporter: no per-item formatting garbage, and the old file is replaced atomically
     public void saveItemsToFile(String filename) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
-            for (Item item : items) {
-                bw.write(item.toFileString() + "\n");
-            }
+        try {
+            new ItemFileExporter().export(Path.of(filename), getItems());
         } catch (IOException e) {
             System.out.println("Error saving items to file: " + e.getMessage());
         }
     }
+
+    /**
+     * Saves the items to a binary snapshot file, which loads far faster than the text format.
+     *
+     * @param filename the snapshot file to create or replace
+     * @see ItemSnapshot
+     */
+
+    public void saveItemsToSnapshot(String filename) {
+        try {
+            ItemSnapshot.write(Path.of(filename), getItems());
+        } catch (IOException e) {
+            System.out.println("Error saving items to snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the floor's items with those of a binary snapshot file. The items are built off to the side
+     * and swapped in at once, then recorded as changes against the old ones, so the next save deletes the
+     * rows that are gone and writes the snapshot's items.
+     *
+     * @param filename the snapshot file to read
+     * @return true if the snapshot was loaded, false if it could not be read
+     * @throws InvalidItemFormatException if the file is not a valid snapshot
+     */
+
+    public boolean loadItemsFromSnapshot(String filename) throws InvalidItemFormatException {
+        try {
+            ItemSnapshot snapshot = ItemSnapshot.open(Path.of(filename));
+            Floor staged = emptyCopy();
+            staged.addLoadedItems(snapshot.items());
+            List<Item> before = getItems();
+            replaceContents(staged);
+            getChangeTracker().markReplaced(before, getItems());
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error reading items from snapshot: " + e.getMessage());
+            return false;
+        }
+    }
 }
@@ -0,0 +1,155 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * IdTable is an open-addressing hash table that maps primitive int item IDs to int positions.
+ * Keys and values live in plain int arrays, so lookups never box an ID into an Integer.
+ * Collisions are resolved with linear probing and removals use backward-shift deletion,
+ * which keeps probe sequences short without leaving tombstones behind.
+ */
+
+class IdTable {
+    static final int NO_VALUE = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values; // NO_VALUE marks an empty bucket
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    IdTable() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs an IdTable sized to hold the expected number of entries without resizing.
+     *
+     * @param expectedSize the number of entries the table is expected to hold
+     */
+
+    IdTable(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Returns the value stored for the key, or NO_VALUE if the key is absent
+    int get(int key) {
+        int slot = slotOf(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    // Stores the value for the key and returns the previous value, or NO_VALUE if there was none
+    int put(int key, int value) {
+        int slot = slotOf(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return NO_VALUE;
+    }
+
+    // Removes the key and returns its value, or NO_VALUE if the key was absent
+    int remove(int key) {
+        int slot = slotOf(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    void clear() {
+        Arrays.fill(values, NO_VALUE);
+        size = 0;
+    }
+
+    // Grows the table up front so that expectedSize entries fit without intermediate rehashes
+    void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    // Fills the gap left at the given slot by moving later entries of the same probe run back
+    private void shiftBack(int gap) {
+        int current = gap;
+        while (true) {
+            current = (current + 1) & mask;
+            if (values[current] == NO_VALUE) {
+                break;
+            }
+            int home = slotOf(keys[current]);
+            // An entry may only move back if the gap is not before its home slot in probe order.
+            if (((current - home) & mask) >= ((current - gap) & mask)) {
+                keys[gap] = keys[current];
+                values[gap] = values[current];
+                gap = current;
+            }
+        }
+        values[gap] = NO_VALUE;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                int slot = slotOf(oldKeys[i]);
+                while (values[slot] != NO_VALUE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+        resizeThreshold = capacity >> 1; // Keep the load factor at or below 0.5
+    }
+
+    private int slotOf(int key) {
+        int h = key * 0x9E3779B9; // Fibonacci hashing spreads sequential IDs across the table
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity >> 1 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -1,20 +1,24 @@
 package data;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import exceptions.InvalidItemFormatException;
+
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Inventory class manages a collection of items and keeps track of the total weight of all items.
  * Provides methods to add, remove, update, and display items, and to save the items to a file.
  */
 
-public class Inventory {
-    private double maxWeightCapacity;
-    private double currentWeight;
-    private List<Item> items;
+public class Inventory implements ItemContainer {
+    private long maxWeightUnits;     // Capacity and running total in fixed-point Weights units,
+    private long currentWeightUnits; // so repeated adds and removes never drift
+    private ItemTable items;
+    private final ChangeTracker changes = new ChangeTracker();
 
     /**
      * Constructs an Inventory object with a specified maximum weight capacity.
@@ -23,22 +27,24 @@ public class Inventory {
      */
 
     public Inventory(double maxWeightCapacity) {
-        this.maxWeightCapacity = maxWeightCapacity;
-        this.currentWeight = 0;
-        this.items = new ArrayList<>();
+        this.maxWeightUnits = Weights.toUnits(maxWeightCapacity);
+        this.currentWeightUnits = 0;
+        this.items = new ItemTable(changes);
     }
 
+    @Override
     public boolean addItem(Item item) {
-        double itemWeight = item.getWeight() * item.getQuantity();
-        double totalWeight = currentWeight + itemWeight;
-        if (totalWeight <= maxWeightCapacity) {
-            Item existingItem = getItemById(item.getId());
+        Item existingItem = items.get(item.getId());
+        // A stacked item takes on the existing item's weight, so count what the stack will really weigh
+        long unitWeight = existingItem != null ? existingItem.getWeightUnits() : item.getWeightUnits();
+        long totalWeightUnits = currentWeightUnits + unitWeight * item.getQuantity();
+        if (totalWeightUnits <= maxWeightUnits) {
             if (existingItem != null) {
-                existingItem.setQuantity(existingItem.getQuantity() + item.getQuantity());
+                items.addQuantity(existingItem, item.getQuantity());
             } else {
                 items.add(item);
             }
-            currentWeight = totalWeight;
+            currentWeightUnits = totalWeightUnits;
             return true;
         } else {
             System.out.println("Cannot add item. Exceeds maximum weight capacity.");
@@ -46,75 +52,202 @@ public class Inventory {
         }
     }
 
+    @Override
+    public int addLoadedItems(Collection<Item> loaded) {
+        items.ensureCapacity(items.size() + loaded.size());
+        int added = 0;
+        for (Item item : loaded) {
+            long units = Weights.stackUnits(item);
+            if (currentWeightUnits + units > maxWeightUnits) {
+                System.out.println("Cannot add item. Exceeds maximum weight capacity.");
+            } else if (items.addLoaded(item)) {
+                currentWeightUnits += units;
+                added++;
+            } else if (addItem(item)) { // Same ID twice, so stack it the usual way
+                added++;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public Inventory emptyCopy() {
+        return new Inventory(getMaxWeightCapacity());
+    }
+
+    @Override
+    public void replaceContents(ItemContainer staged) {
+        if (staged.getClass() != getClass()) {
+            throw new IllegalArgumentException("Staged container must come from emptyCopy.");
+        }
+        Inventory source = (Inventory) staged;
+        source.items.reportTo(changes);
+        items = source.items;
+        currentWeightUnits = source.currentWeightUnits;
+        source.items = new ItemTable(source.changes);
+        source.currentWeightUnits = 0;
+    }
+
+    @Override
     public boolean removeItem(int id) {
-        Item item = getItemById(id);
+        return takeItem(id) != null;
+    }
+
+    @Override
+    public Item takeItem(int id) {
+        Item item = items.remove(id);
         if (item != null) {
-            currentWeight -= item.getWeight() * item.getQuantity();
-            items.remove(item);
-            return true;
+            currentWeightUnits -= Weights.stackUnits(item);
         }
-        return false;
+        return item;
     }
 
+    @Override
     public Item getItemById(int id) {
-        for (Item item : items) {
-            if (item.getId() == id) {
-                return item;
-            }
-        }
-        return null;
+        return items.get(id);
     }
 
+    @Override
     public void clearItems() {
         items.clear();
-        currentWeight = 0;
+        currentWeightUnits = 0;
     }
 
+    /**
+     * Returns a read-only view of the items in the inventory. The view is not a copy: it reflects later
+     * changes and rejects modification, so callers that need a snapshot should copy it themselves.
+     *
+     * @return an unmodifiable live view of the items, in the order they were added
+     */
+
+    @Override
     public List<Item> getItems() {
-        return new ArrayList<>(items);
+        return items.asList();
+    }
+
+    @Override
+    public List<Item> getItemsSortedBy(SortKey key) {
+        return items.sortedBy(key);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Item> action) {
+        items.forEach(action);
     }
 
     public void updateItemDetails(int id, String name, String type, int quantity, double weight, String description) {
         Item item = getItemById(id);
         if (item != null) {
-            currentWeight -= item.getWeight() * item.getQuantity();
-            item.updateDetails(name, type, quantity, weight, description);
-            currentWeight += item.getWeight() * item.getQuantity();
+            currentWeightUnits -= Weights.stackUnits(item);
+            items.updateDetails(item, name, type, quantity, weight, description);
+            currentWeightUnits += Weights.stackUnits(item);
         }
     }
 
+    // The double accessors are a conversion layer over the exact unit counters
     public double getTotalWeight() {
-        return currentWeight;
+        return Weights.toWeight(getTotalWeightUnits());
+    }
+
+    public long getTotalWeightUnits() {
+        return currentWeightUnits;
+    }
+
+    public double getMaxWeightCapacity() {
+        return Weights.toWeight(maxWeightUnits);
+    }
+
+    public long getMaxWeightUnits() {
+        return maxWeightUnits;
     }
 
     public void displayItems() {
-        if (items.isEmpty()) {
+        if (isEmpty()) {
             System.out.println("No items in inventory.");
         } else {
-            for (Item item : items) {
-                System.out.println(item.getDetails());
-            }
+            forEach(item -> System.out.println(item.getDetails()));
         }
     }
 
+    // Case-insensitive lookup through the type index; only the matching items are visited
     public List<Item> filterItemsByType(String type) {
-        List<Item> filteredItems = new ArrayList<>();
-        for (Item item : items) {
-            if (item.getType().equalsIgnoreCase(type)) {
-                filteredItems.add(item);
-            }
-        }
-        return filteredItems;
+        return items.filterByType(type);
+    }
+
+    // Case-insensitive substring search on item names, answered from the name index
+    public List<Item> searchByName(String query) {
+        return items.searchByName(query);
+    }
+
+    // Read-only live view of the distinct item types currently in the inventory
+    public Set<String> getCategories() {
+        return items.categories();
+    }
+
+    // Inserted, updated and deleted item IDs since the inventory was last saved or loaded
+    public ChangeTracker getChangeTracker() {
+        return changes;
     }
 
+    // Written by an ItemFileExporter: no per-item formatting garbage, and the old file is replaced atomically
     public void saveItemsToFile(String filename) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
-            for (Item item : items) {
-                bw.write(item.toFileString() + "\n");
-            }
+        try {
+            new ItemFileExporter().export(Path.of(filename), getItems());
             System.out.println("Inventory items saved successfully to " + filename);
         } catch (IOException e) {
             System.out.println("Error saving inventory items to file: " + e.getMessage());
         }
     }
+
+    /**
+     * Saves the items to a binary snapshot file, which loads far faster than the text format.
+     *
+     * @param filename the snapshot file to create or replace
+     * @see ItemSnapshot
+     */
+
+    public void saveItemsToSnapshot(String filename) {
+        try {
+            ItemSnapshot.write(Path.of(filename), getItems());
+            System.out.println("Inventory items saved successfully to " + filename);
+        } catch (IOException e) {
+            System.out.println("Error saving inventory items to snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the inventory's items with those of a binary snapshot file. The items are built off to the
+     * side and swapped in at once, then recorded as changes against the old ones, so the next save deletes
+     * the rows that are gone and writes the snapshot's items.
+     * Items beyond the weight capacity are skipped.
+     *
+     * @param filename the snapshot file to read
+     * @return true if the snapshot was loaded, false if it could not be read
+     * @throws InvalidItemFormatException if the file is not a valid snapshot
+     */
+
+    public boolean loadItemsFromSnapshot(String filename) throws InvalidItemFormatException {
+        try {
+            ItemSnapshot snapshot = ItemSnapshot.open(Path.of(filename));
+            Inventory staged = emptyCopy();
+            staged.addLoadedItems(snapshot.items());
+            List<Item> before = getItems();
+            replaceContents(staged);
+            getChangeTracker().markReplaced(before, getItems());
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error reading inventory items from snapshot: " + e.getMessage());
+            return false;
+        }
+    }
 }
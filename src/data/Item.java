@@ -2,11 +2,9 @@ package data;
 
 public class Item {
     private final int id;
-    private String name;
-    private String type;
+    private ItemTemplate template; // Shared name, type and description; see ItemTemplate
     private int quantity;
-    private double weight;
-    private String description;
+    private long weightUnits; // Per-item weight in fixed-point Weights units, so sums stay exact
 
     /**
      * Constructs an Item object with the specified properties.
@@ -20,24 +18,40 @@ public class Item {
      */
 
     public Item(int id, String name, String type, int quantity, double weight, String description) {
+        this(id, ItemTemplate.of(name, type, description), quantity, Weights.toUnits(weight));
+    }
+
+    private Item(int id, ItemTemplate template, int quantity, long weightUnits) {
         this.id = id;
-        this.name = name;
-        this.type = type;
+        this.template = template;
         this.quantity = quantity;
-        this.weight = weight;
-        this.description = description;
+        this.weightUnits = weightUnits;
+    }
+
+    // Creates an item whose weight is already in fixed-point units, skipping the double conversion
+    public static Item withWeightUnits(int id, String name, String type, int quantity, long weightUnits, String description) {
+        return new Item(id, ItemTemplate.of(name, type, description), quantity, weightUnits);
+    }
+
+    // Creates an item from an already interned template, e.g. when many items of one kind are loaded
+    public static Item fromTemplate(int id, ItemTemplate template, int quantity, long weightUnits) {
+        return new Item(id, template, quantity, weightUnits);
     }
     // Getters for each property
     public int getId() {
         return id;
     }
 
+    public ItemTemplate getTemplate() {
+        return template;
+    }
+
     public String getName() {
-        return name;
+        return template.getName();
     }
 
     public String getType() {
-        return type;
+        return template.getType();
     }
 
     public int getQuantity() {
@@ -45,23 +59,27 @@ public class Item {
     }
 
     public double getWeight() {
-        return weight;
+        return Weights.toWeight(getWeightUnits());
+    }
+
+    public long getWeightUnits() {
+        return weightUnits;
     }
 
     public String getDescription() {
-        return description;
+        return template.getDescription();
     }
 
     // Setters for each property
     public void setName(String name) {
         if (name != null && !name.isEmpty()) {
-            this.name = name;
+            this.template = template.withName(name);
         }
     }
 
     public void setType(String type) {
         if (type != null && !type.isEmpty()) {
-            this.type = type;
+            this.template = template.withType(type);
         }
     }
 
@@ -75,13 +93,19 @@ public class Item {
 
     public void setWeight(double weight) {
         if (weight >= 0) {
-            this.weight = weight;
+            setWeightUnits(Weights.toUnits(weight));
+        }
+    }
+
+    public void setWeightUnits(long weightUnits) {
+        if (weightUnits >= 0) {
+            this.weightUnits = weightUnits;
         }
     }
 
     public void setDescription(String description) {
         if (description != null && !description.isEmpty()) {
-            this.description = description;
+            this.template = template.withDescription(description);
         }
     }
 
@@ -95,12 +119,16 @@ public class Item {
     }
 
     public String getDetails() {
-        return String.format("ID: %d, Name: %s, Type: %s, Quantity: %d, Weight: %.2f, Description: %s", id, name, type, quantity, weight, description);
+        StringBuilder details = new StringBuilder(96).append("ID: ").append(getId()).append(", Name: ").append(getName())
+                .append(", Type: ").append(getType()).append(", Quantity: ").append(getQuantity()).append(", Weight: ");
+        return Weights.appendHundredths(details, getWeightUnits()).append(", Description: ").append(getDescription()).toString();
     }
 
-    // Use semicolons as the delimiter for file saving.
+    // Use semicolons as the delimiter for file saving; ItemFileExporter writes the same format for whole files
     public String toFileString() {
-        return String.format("%d;%s;%s;%d;%.2f;%s", id, name, type, quantity, weight, description);
+        StringBuilder line = new StringBuilder(64).append(getId()).append(';').append(getName()).append(';')
+                .append(getType()).append(';').append(getQuantity()).append(';');
+        return Weights.appendHundredths(line, getWeightUnits()).append(';').append(getDescription()).toString();
     }
 
 
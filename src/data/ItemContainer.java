@@ -0,0 +1,89 @@
+package data;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ItemContainer is the common view of anything that holds items by ID, such as an Inventory or a Floor.
+ * It lets logic that moves items around (pickups, drops, trades) work with any pair of containers.
+ */
+
+public interface ItemContainer {
+    Item getItemById(int id);
+
+    /**
+     * Adds an item, stacking it onto an existing item with the same ID.
+     *
+     * @param item the item to add
+     * @return true if the item was added, false if the container refused it (for example, over capacity)
+     */
+    boolean addItem(Item item);
+
+    /**
+     * Removes the item with the given ID and returns it.
+     *
+     * @param id the ID of the item to remove
+     * @return the removed item, or null if the container did not hold it
+     */
+    Item takeItem(int id);
+
+    /**
+     * Adds a batch of items that were just read from storage, such as one chunk of a database load.
+     * Items are stacked and checked against capacity like addItem, but they are not recorded as changes
+     * to save, and the container can size itself for the whole batch up front.
+     *
+     * @param items the loaded items
+     * @return the number of items that were added or stacked
+     */
+    int addLoadedItems(Collection<Item> items);
+
+    /**
+     * Returns a new, empty container of the same kind and with the same settings, such as capacity.
+     * A load can fill it off to the side, for example on a loader thread, and then hand it to replaceContents.
+     *
+     * @return an empty container like this one
+     */
+    ItemContainer emptyCopy();
+
+    /**
+     * Replaces this container's items with those of a container made by emptyCopy. The staged container's
+     * storage and indexes are taken over rather than copied, so the switch happens in one step and readers
+     * see either the old items or the new ones, never a mix. Like a load, it is not recorded as changes to
+     * save. The staged container is left empty.
+     *
+     * @param staged a container made by this container's emptyCopy
+     */
+    void replaceContents(ItemContainer staged);
+
+    boolean removeItem(int id);
+
+    void clearItems();
+
+    List<Item> getItems();
+
+    /**
+     * Returns the items ordered by the given key, with ties broken by ID. Containers keep each order
+     * up to date as items change, so asking for an order does not sort the items again.
+     *
+     * @param key the order to return the items in
+     * @return the items in that order; not meant to be modified by the caller
+     */
+    List<Item> getItemsSortedBy(SortKey key);
+
+    int size();
+
+    boolean isEmpty();
+
+    void forEach(Consumer<? super Item> action);
+
+    /**
+     * Tells whether every method may be called by several threads at once. ItemTransfer only moves
+     * items with different IDs in parallel when both containers are thread-safe.
+     *
+     * @return true if the container is safe for concurrent use
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+}
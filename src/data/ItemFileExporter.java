@@ -0,0 +1,190 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ItemFileExporter writes items files in the id;name;type;quantity;weight;description format of
+ * Item.toFileString, one item per line. Each record is encoded straight into one reusable byte buffer:
+ * numbers are formatted digit by digit (weights from their fixed-point units, rounded to two decimals)
+ * and strings are encoded as UTF-8 char by char, so exporting an item allocates nothing. Full buffers
+ * go out through a FileChannel.
+ *
+ * <p>The file is written under a temporary name next to the target and moved into place once it is
+ * complete and forced to disk, so readers never see a half-written file.</p>
+ */
+
+public final class ItemFileExporter {
+    public static final int DEFAULT_BUFFER_BYTES = 1 << 20;
+    private static final int MAX_NUMBER_BYTES = 24; // Longest formatted number, such as a long with its sign
+
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[20];
+    private int position;
+    private FileChannel channel;
+
+    public ItemFileExporter() {
+        this(DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * Constructs an exporter whose buffer holds the given number of bytes. An exporter can be reused
+     * for any number of files, but not by two threads at once.
+     *
+     * @param bufferBytes the size of the write buffer
+     */
+
+    public ItemFileExporter(int bufferBytes) {
+        this.bytes = new byte[Math.max(bufferBytes, 64)];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Writes the items to a file, replacing it atomically.
+     *
+     * @param file the file to create or replace
+     * @param items the items to write, in order
+     * @return the number of items written
+     * @throws IOException if the file cannot be written; the previous file, if any, is left untouched
+     */
+
+    public long export(Path file, Iterable<Item> items) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long written = 0;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel = out;
+            position = 0;
+            for (Item item : items) {
+                writeRecord(item);
+                written++;
+            }
+            flush();
+            out.force(false);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            channel = null;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    private void writeRecord(Item item) throws IOException {
+        writeLong(item.getId());
+        writeByte(';');
+        writeString(item.getName());
+        writeByte(';');
+        writeString(item.getType());
+        writeByte(';');
+        writeLong(item.getQuantity());
+        writeByte(';');
+        writeHundredths(item.getWeightUnits());
+        writeByte(';');
+        writeString(item.getDescription());
+        writeByte('\n');
+    }
+
+    // Two decimals with a '.' separator, matching Weights.appendHundredths
+    private void writeHundredths(long units) throws IOException {
+        long hundredths = Weights.toHundredths(units);
+        if (hundredths < 0) {
+            writeByte('-');
+            hundredths = -hundredths;
+        }
+        writeLong(hundredths / 100);
+        ensure(3);
+        long fraction = hundredths % 100;
+        bytes[position++] = '.';
+        bytes[position++] = (byte) ('0' + fraction / 10);
+        bytes[position++] = (byte) ('0' + fraction % 10);
+    }
+
+    private void writeLong(long value) throws IOException {
+        ensure(MAX_NUMBER_BYTES);
+        if (value < 0) {
+            bytes[position++] = '-';
+            if (value == Long.MIN_VALUE) {
+                writeAscii("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            bytes[position++] = digits[--count];
+        }
+    }
+
+    // Encodes UTF-8 straight from the chars; null is written as "null", like string concatenation does
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeAscii("null");
+            return;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                ensure(2);
+                bytes[position++] = (byte) (0xC0 | c >> 6);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensure(4);
+                bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                ensure(1);
+                bytes[position++] = '?'; // An unpaired surrogate has no UTF-8 form; String.getBytes does the same
+            } else {
+                ensure(3);
+                bytes[position++] = (byte) (0xE0 | c >> 12);
+                bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private void writeAscii(String text) throws IOException {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            bytes[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensure(1);
+        bytes[position++] = (byte) c;
+    }
+
+    // Makes room for the next n bytes, writing the buffer out if it is too full
+    private void ensure(int n) throws IOException {
+        if (position + n > bytes.length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.clear().limit(position);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        position = 0;
+    }
+}
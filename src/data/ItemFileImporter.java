@@ -0,0 +1,443 @@
+package data;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ItemFileImporter reads items files in the id;name;type;quantity;weight;description format written by
+ * saveItemsToFile, fast enough for multi-gigabyte dumps. The file is cut into chunks at line boundaries,
+ * each chunk is memory-mapped and parsed on its own thread, and the parsed chunks are added to the
+ * target container in file order while later chunks are still being parsed.
+ *
+ * <p>Lines are parsed straight from their bytes: fields are found by scanning for ';', numbers are
+ * read digit by digit (weights straight into fixed-point units), and recently seen names, types and
+ * descriptions are reused instead of being decoded again. A line that cannot be parsed is recorded in
+ * the Report with its line number and the import carries on. Blank lines are skipped.</p>
+ */
+
+public final class ItemFileImporter {
+    public static final int DEFAULT_CHUNK_BYTES = 16 << 20;
+    public static final int MAX_REPORTED_ERRORS = 1_000; // Further errors are counted but not kept
+
+    private final int threads;
+    private final int chunkBytes;
+
+    public ItemFileImporter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Constructs an importer.
+     *
+     * @param threads the number of chunks parsed at once
+     * @param chunkBytes the size of a chunk before it is extended to the end of its last line
+     */
+
+    public ItemFileImporter(int threads, int chunkBytes) {
+        this.threads = Math.max(1, threads);
+        this.chunkBytes = Math.max(1, chunkBytes);
+    }
+
+    /**
+     * Parses an items file and adds every valid line to the container, in file order.
+     *
+     * @param file the items file
+     * @param target the container to add the items to
+     * @return what was imported, and which lines were rejected and why
+     * @throws IOException if the file cannot be read
+     */
+
+    public Report importItems(Path file, ItemContainer target) throws IOException {
+        Report report = new Report();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "item-importer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Long> bounds = chunkBounds(channel);
+            // A bounded window of chunks in flight keeps memory flat however large the file is
+            Deque<Future<Chunk>> parsing = new ArrayDeque<>();
+            int next = 0;
+            while (next < bounds.size() - 1 || !parsing.isEmpty()) {
+                while (next < bounds.size() - 1 && parsing.size() < threads * 2) {
+                    long start = bounds.get(next);
+                    long end = bounds.get(++next);
+                    parsing.add(parsers.submit(() -> parse(channel, start, end)));
+                }
+                Chunk chunk = parsing.poll().get();
+                report.add(chunk, target.addLoadedItems(chunk.items));
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while importing " + file);
+        } finally {
+            parsers.shutdownNow();
+        }
+        return report;
+    }
+
+    // Chunk start offsets, each just after a newline, followed by the file size
+    private List<Long> chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long position = chunkBytes;
+        while (position < size) {
+            long boundary = nextLineStart(channel, position - 1, probe);
+            if (boundary >= size) {
+                break;
+            }
+            bounds.add(boundary);
+            position = boundary + chunkBytes;
+        }
+        bounds.add(size);
+        return bounds;
+    }
+
+    // Offset just past the first newline at or after from, or the file size if there is none
+    private static long nextLineStart(FileChannel channel, long from, ByteBuffer probe) throws IOException {
+        long position = from;
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    // Runs on a parser thread
+    private static Chunk parse(FileChannel channel, long start, long end) {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new UncheckedIOException(new IOException("Line too long near offset " + start));
+        }
+        MappedByteBuffer data;
+        try {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new LineParser().parse(data);
+    }
+
+    /**
+     * LineParser turns the lines of one chunk into items. It reuses one line buffer for the whole chunk
+     * and keeps small caches of decoded strings and templates, since item files repeat them heavily.
+     */
+
+    private static final class LineParser {
+        private static final long INVALID = Long.MIN_VALUE;
+
+        private final Chunk chunk = new Chunk();
+        private final String[] cachedStrings = new String[4096];
+        private final byte[][] cachedBytes = new byte[4096][];
+        private final ItemTemplate[] cachedTemplates = new ItemTemplate[1024];
+        private final String[] templateNames = new String[1024]; // The strings each cached template was looked up with
+        private final String[] templateTypes = new String[1024];
+        private final String[] templateDescriptions = new String[1024];
+        private final int[] fieldStart = new int[6];
+        private final int[] fieldEnd = new int[6];
+        private byte[] line = new byte[256];
+
+        private Chunk parse(ByteBuffer data) {
+            int limit = data.limit();
+            int start = 0;
+            while (start < limit) {
+                int end = start;
+                while (end < limit && data.get(end) != '\n') {
+                    end++;
+                }
+                int length = end - start;
+                if (length > line.length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                data.get(start, line, 0, length);
+                chunk.lines++;
+                parseLine(length);
+                start = end + 1;
+            }
+            return chunk;
+        }
+
+        private void parseLine(int length) {
+            int fields = 0;
+            int from = 0;
+            for (int i = 0; i <= length; i++) {
+                if (i == length || line[i] == ';') {
+                    if (fields < 6) {
+                        fieldStart[fields] = trimStart(from, i);
+                        fieldEnd[fields] = trimEnd(fieldStart[fields], i);
+                    }
+                    fields++;
+                    from = i + 1;
+                }
+            }
+            if (fields == 1 && fieldStart[0] == fieldEnd[0]) {
+                return; // Blank line
+            }
+            if (fields != 6) {
+                chunk.error("Expected 6 fields separated by ';' but found " + fields, line, length);
+                return;
+            }
+
+            long id = parseInt(0);
+            long quantity = parseInt(3);
+            long weightUnits = parseUnits(4);
+            if (id == INVALID) {
+                chunk.error("Invalid ID", line, length);
+            } else if (quantity == INVALID) {
+                chunk.error("Invalid quantity", line, length);
+            } else if (weightUnits == INVALID) {
+                chunk.error("Invalid weight", line, length);
+            } else {
+                ItemTemplate template = template(string(1), string(2), string(5));
+                chunk.items.add(Item.fromTemplate((int) id, template, (int) quantity, weightUnits));
+            }
+        }
+
+        private int trimStart(int from, int to) {
+            while (from < to && (line[from] & 0xFF) <= ' ') {
+                from++;
+            }
+            return from;
+        }
+
+        private int trimEnd(int from, int to) {
+            while (to > from && (line[to - 1] & 0xFF) <= ' ') {
+                to--;
+            }
+            return to;
+        }
+
+        // An optionally signed decimal int, or INVALID
+        private long parseInt(int field) {
+            int i = fieldStart[field];
+            int end = fieldEnd[field];
+            boolean negative = i < end && line[i] == '-';
+            if (i < end && (line[i] == '-' || line[i] == '+')) {
+                i++;
+            }
+            if (i == end) {
+                return INVALID;
+            }
+            long value = 0;
+            for (; i < end; i++) {
+                int digit = line[i] - '0';
+                if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+                    return INVALID;
+                }
+                value = value * 10 + digit;
+            }
+            value = negative ? -value : value;
+            return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? INVALID : value;
+        }
+
+        // A plain decimal weight read straight into Weights units, rounding half up past the third decimal
+        private long parseUnits(int field) {
+            int i = fieldStart[field];
+            int end = fieldEnd[field];
+            boolean negative = i < end && line[i] == '-';
+            if (i < end && (line[i] == '-' || line[i] == '+')) {
+                i++;
+            }
+            long whole = 0;
+            int digits = 0;
+            for (; i < end && line[i] >= '0' && line[i] <= '9'; i++, digits++) {
+                whole = whole * 10 + (line[i] - '0');
+            }
+            long fraction = 0;
+            int scale = 1;
+            boolean roundUp = false;
+            if (i < end && line[i] == '.') {
+                for (i++; i < end && line[i] >= '0' && line[i] <= '9'; i++, digits++) {
+                    if (scale < Weights.UNITS_PER_WEIGHT) {
+                        fraction = fraction * 10 + (line[i] - '0');
+                        scale *= 10;
+                    } else if (scale == Weights.UNITS_PER_WEIGHT) {
+                        roundUp = line[i] >= '5';
+                        scale++; // Only the first digit past the units decides the rounding
+                    }
+                }
+            }
+            if (i != end || digits == 0 || digits > 15) {
+                return parseUnitsSlowly(field); // Exponents, NaN, very long numbers and the like
+            }
+            long units = whole * Weights.UNITS_PER_WEIGHT + fraction * (Weights.UNITS_PER_WEIGHT / Math.min(scale, Weights.UNITS_PER_WEIGHT))
+                    + (roundUp ? 1 : 0);
+            return negative ? -units : units;
+        }
+
+        private long parseUnitsSlowly(int field) {
+            try {
+                double weight = Double.parseDouble(string(field));
+                return Double.isFinite(weight) ? Weights.toUnits(weight) : INVALID;
+            } catch (NumberFormatException e) {
+                return INVALID;
+            }
+        }
+
+        // Decodes a field, reusing the String from the last time the same bytes were seen
+        private String string(int field) {
+            int from = fieldStart[field];
+            int to = fieldEnd[field];
+            int h = 1;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + line[i];
+            }
+            int slot = (h ^ (h >>> 16)) & (cachedStrings.length - 1);
+            byte[] cached = cachedBytes[slot];
+            if (cached != null && Arrays.equals(cached, 0, cached.length, line, from, to)) {
+                return cachedStrings[slot];
+            }
+            String value = new String(line, from, to - from, StandardCharsets.UTF_8);
+            cachedBytes[slot] = Arrays.copyOfRange(line, from, to);
+            cachedStrings[slot] = value;
+            return value;
+        }
+
+        // Cached strings come back as the same instances, so templates can be matched by identity
+        // without hashing all three strings in the shared ItemTemplate pool every time
+        private ItemTemplate template(String name, String type, String description) {
+            int h = (System.identityHashCode(name) * 31 + System.identityHashCode(type)) * 31 + System.identityHashCode(description);
+            int slot = (h ^ (h >>> 16)) & (cachedTemplates.length - 1);
+            if (cachedTemplates[slot] != null && templateNames[slot] == name && templateTypes[slot] == type
+                    && templateDescriptions[slot] == description) {
+                return cachedTemplates[slot];
+            }
+            ItemTemplate template = ItemTemplate.of(name, type, description);
+            cachedTemplates[slot] = template;
+            templateNames[slot] = name;
+            templateTypes[slot] = type;
+            templateDescriptions[slot] = description;
+            return template;
+        }
+    }
+
+    // The items and errors of one parsed chunk, with line numbers counted from the start of the chunk
+    private static final class Chunk {
+        private final List<Item> items = new ArrayList<>();
+        private final List<LineError> errors = new ArrayList<>();
+        private long errorCount;
+        private long lines;
+
+        private void error(String message, byte[] line, int length) {
+            if (++errorCount <= MAX_REPORTED_ERRORS) {
+                String text = new String(line, 0, Math.min(length, 200), StandardCharsets.UTF_8);
+                errors.add(new LineError(lines, message, text));
+            }
+        }
+    }
+
+    /**
+     * Report sums up an import: how many lines were read and imported, and which lines were rejected.
+     * Only the first MAX_REPORTED_ERRORS rejected lines are kept; the error count includes them all.
+     */
+
+    public static final class Report {
+        private long linesRead;
+        private long itemsImported;
+        private long errorCount;
+        private final List<LineError> errors = new ArrayList<>();
+
+        private void add(Chunk chunk, int imported) {
+            for (LineError error : chunk.errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(new LineError(linesRead + error.lineNumber, error.message, error.line));
+                }
+            }
+            linesRead += chunk.lines;
+            itemsImported += imported;
+            errorCount += chunk.errorCount;
+        }
+
+        public long getLinesRead() {
+            return linesRead;
+        }
+
+        // Lines the container accepted; an inventory can still refuse valid lines that exceed its capacity
+        public long getItemsImported() {
+            return itemsImported;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public boolean hasErrors() {
+            return errorCount > 0;
+        }
+
+        public List<LineError> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        @Override
+        public String toString() {
+            return "Read " + linesRead + " lines, imported " + itemsImported + " items, rejected " + errorCount + " lines";
+        }
+    }
+
+    /**
+     * LineError is one rejected line: its 1-based line number, what was wrong, and the start of its text.
+     */
+
+    public static final class LineError {
+        private final long lineNumber;
+        private final String message;
+        private final String line;
+
+        private LineError(long lineNumber, String message, String line) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+            this.line = line;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + message + ": " + line;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package data;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * ItemIndex stores items keyed by their ID with constant-time lookup and cheap insertion and removal.
+ * Items are kept in a dense array in insertion order and an IdTable maps each ID to its position,
+ * so iteration follows the order items were added, just like the list it replaces.
+ * Removed positions are left empty and the array is compacted once more than a third of it is holes,
+ * so compaction is paid for by the removals that made the holes. Positional reads skip the holes
+ * through a Fenwick tree counting the items in each block of 64 positions, which each insertion and
+ * removal updates in O(log(n / 64)).
+ */
+
+public class ItemIndex implements Iterable<Item> {
+    private static final int MIN_COMPACT_HOLES = 16;
+    private static final int BLOCK_SHIFT = 6; // Positions per counted block, as a power of two
+
+    private final IdTable positions;
+    private Item[] entries;
+    private int end;  // One past the last used position in entries
+    private int size;
+    private int holeCount; // Positions below end that hold no item
+    private int[] blockCounts; // Fenwick tree, 1-based, of the items in each block of positions
+    private int modCount;
+    private final List<Item> view = new View();
+
+    public ItemIndex() {
+        this(16);
+    }
+
+    /**
+     * Constructs an ItemIndex sized for the expected number of items.
+     *
+     * @param expectedSize the number of items the index is expected to hold
+     */
+
+    public ItemIndex(int expectedSize) {
+        this.positions = new IdTable(expectedSize);
+        this.entries = new Item[Math.max(expectedSize, 16)];
+        this.blockCounts = new int[blockCountsLength(entries.length)];
+    }
+
+    public Item get(int id) {
+        int position = positions.get(id);
+        return position == IdTable.NO_VALUE ? null : entries[position];
+    }
+
+    public boolean contains(int id) {
+        return positions.get(id) != IdTable.NO_VALUE;
+    }
+
+    /**
+     * Adds an item at the end of the iteration order.
+     *
+     * @param item the item to add
+     * @return true if the item was added, false if an item with the same ID is already present
+     */
+
+    public boolean add(Item item) {
+        if (contains(item.getId())) {
+            return false;
+        }
+        if (end == entries.length) {
+            makeRoom();
+        }
+        entries[end] = item;
+        positions.put(item.getId(), end);
+        countChange(end, 1);
+        end++;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    // Grows the index up front so that expectedSize items fit without repeated resizing
+    public void ensureCapacity(int expectedSize) {
+        positions.ensureCapacity(expectedSize);
+        int needed = end + Math.max(0, expectedSize - size);
+        if (needed > entries.length) {
+            entries = Arrays.copyOf(entries, needed);
+            rebuildCounts();
+        }
+    }
+
+    /**
+     * Removes the item with the given ID.
+     *
+     * @param id the ID of the item to remove
+     * @return the removed item, or null if no item has that ID
+     */
+
+    public Item remove(int id) {
+        int position = positions.remove(id);
+        if (position == IdTable.NO_VALUE) {
+            return null;
+        }
+        Item removed = entries[position];
+        entries[position] = null;
+        countChange(position, -1);
+        size--;
+        modCount++;
+        if (position == end - 1) {
+            end--;
+            while (end > 0 && entries[end - 1] == null) {
+                end--; // Holes just before the end are now past it
+                holeCount--;
+            }
+        } else {
+            holeCount++;
+        }
+        // Compacting costs O(end), which is paid for by the removals that made the holes
+        if (holeCount > MIN_COMPACT_HOLES && holeCount > size >> 1) {
+            compact();
+        }
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < end; i++) {
+            entries[i] = null;
+        }
+        positions.clear();
+        Arrays.fill(blockCounts, 0);
+        end = 0;
+        size = 0;
+        holeCount = 0;
+        modCount++;
+    }
+
+    // Returns a new list holding the items in insertion order
+    public List<Item> toList() {
+        List<Item> list = new ArrayList<>(size);
+        for (int i = 0; i < end; i++) {
+            if (entries[i] != null) {
+                list.add(entries[i]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns a read-only list view backed by this index. The view is never copied: it always
+     * reflects the current items in insertion order, and size, isEmpty and iteration cost nothing extra.
+     * Positional access is O(1) with no holes and O(log n) otherwise, found through the block counts.
+     * Reading the view never changes the index.
+     *
+     * @return an unmodifiable live view of the indexed items
+     */
+
+    public List<Item> asList() {
+        return view;
+    }
+
+    @Override
+    public Iterator<Item> iterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private int cursor = skipHoles(0);
+
+            @Override
+            public boolean hasNext() {
+                return cursor < end;
+            }
+
+            @Override
+            public Item next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (cursor >= end) {
+                    throw new NoSuchElementException();
+                }
+                Item item = entries[cursor];
+                cursor = skipHoles(cursor + 1);
+                return item;
+            }
+        };
+    }
+
+    private class View extends AbstractList<Item> {
+        @Override
+        public Item get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (holeCount == 0) {
+                return entries[index];
+            }
+            // Walk down the tree to the block holding the item, then count the items inside that block
+            int block = 0;
+            int remaining = index;
+            for (int step = Integer.highestOneBit(blockCounts.length - 1); step > 0; step >>= 1) {
+                int next = block + step;
+                if (next < blockCounts.length && blockCounts[next] <= remaining) {
+                    block = next;
+                    remaining -= blockCounts[next];
+                }
+            }
+            int position = block << BLOCK_SHIFT;
+            while (entries[position] == null || remaining-- > 0) {
+                position++;
+            }
+            return entries[position];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public Iterator<Item> iterator() {
+            return ItemIndex.this.iterator();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Item && ItemIndex.this.get(((Item) o).getId()) == o;
+        }
+    }
+
+    private int skipHoles(int position) {
+        while (position < end && entries[position] == null) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int blockCountsLength(int capacity) {
+        return ((capacity + (1 << BLOCK_SHIFT) - 1) >> BLOCK_SHIFT) + 1;
+    }
+
+    private void countChange(int position, int delta) {
+        for (int i = (position >> BLOCK_SHIFT) + 1; i < blockCounts.length; i += i & -i) {
+            blockCounts[i] += delta;
+        }
+    }
+
+    // Recounts every block in O(n), after the array was resized or its items moved
+    private void rebuildCounts() {
+        int[] counts = new int[blockCountsLength(entries.length)];
+        for (int i = 0; i < end; i++) {
+            if (entries[i] != null) {
+                counts[(i >> BLOCK_SHIFT) + 1]++;
+            }
+        }
+        for (int i = 1; i < counts.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < counts.length) {
+                counts[parent] += counts[i];
+            }
+        }
+        blockCounts = counts;
+    }
+
+    // Called when the array is full: reclaim holes if there are enough of them, otherwise grow
+    private void makeRoom() {
+        if (holeCount > end >> 2) {
+            compact();
+        } else {
+            Item[] grown = new Item[entries.length << 1];
+            System.arraycopy(entries, 0, grown, 0, end);
+            entries = grown;
+            rebuildCounts();
+        }
+    }
+
+    // Slides live items down over the holes and re-points their IDs at the new positions
+    private void compact() {
+        int target = 0;
+        for (int i = 0; i < end; i++) {
+            Item item = entries[i];
+            if (item != null) {
+                if (i != target) {
+                    entries[target] = item;
+                    entries[i] = null;
+                    positions.put(item.getId(), target);
+                }
+                target++;
+            }
+        }
+        end = target;
+        holeCount = 0;
+        rebuildCounts();
+        modCount++; // Positions moved, so open iterators must not continue
+    }
+}
@@ -0,0 +1,298 @@
+package data;
+
+import exceptions.InvalidItemFormatException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+
+/**
+ * ItemSnapshot is a compact binary file of items that is read through a memory map, so opening one costs
+ * a checksum pass rather than parsing. Items are stored as fixed-width little-endian columns, and their
+ * names, types and descriptions are dictionary-encoded: each item points at a template row, and each
+ * template row points at strings in a shared string table, so a string used by many items is stored once.
+ *
+ * <p>Layout, after a 32-byte header of magic, version, item, template and string counts and a CRC32 of
+ * everything after the header:</p>
+ * <pre>
+ *   long weightUnits[items]   int id[items]   int quantity[items]   int template[items]
+ *   int name[templates]   int type[templates]   int description[templates]   (string index, -1 for null)
+ *   int stringEnd[strings]   UTF-8 bytes of every string, back to back
+ * </pre>
+ *
+ * <p>Items are decoded from the mapped region only when asked for. Each string and template is decoded
+ * once and then shared, so loaded items share templates like any others.</p>
+ */
+
+public final class ItemSnapshot {
+    private static final int MAGIC = 0x504E5349; // "ISNP" read as little-endian bytes
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int CHECKSUM_OFFSET = 24;
+
+    private final ByteBuffer data;
+    private final int itemCount;
+    private final int templateCount;
+    private final int stringCount;
+    private final int idColumn;
+    private final int quantityColumn;
+    private final int templateColumn;
+    private final int nameColumn;
+    private final int typeColumn;
+    private final int descriptionColumn;
+    private final int stringEnds;
+    private final int stringBytes;
+    private final String[] strings;         // Decoded on first use
+    private final ItemTemplate[] templates; // Built on first use
+
+    private ItemSnapshot(ByteBuffer data, int itemCount, int templateCount, int stringCount) {
+        this.data = data;
+        this.itemCount = itemCount;
+        this.templateCount = templateCount;
+        this.stringCount = stringCount;
+        this.idColumn = HEADER_BYTES + itemCount * 8;
+        this.quantityColumn = idColumn + itemCount * 4;
+        this.templateColumn = quantityColumn + itemCount * 4;
+        this.nameColumn = templateColumn + itemCount * 4;
+        this.typeColumn = nameColumn + templateCount * 4;
+        this.descriptionColumn = typeColumn + templateCount * 4;
+        this.stringEnds = descriptionColumn + templateCount * 4;
+        this.stringBytes = stringEnds + stringCount * 4;
+        this.strings = new String[stringCount];
+        this.templates = new ItemTemplate[templateCount];
+    }
+
+    /**
+     * Maps a snapshot file and checks its header and checksum. No items are decoded yet.
+     *
+     * @param path the snapshot file
+     * @return the opened snapshot
+     * @throws IOException if the file cannot be read
+     * @throws InvalidItemFormatException if the file is not a snapshot, has another version, or is damaged
+     */
+
+    public static ItemSnapshot open(Path path) throws IOException, InvalidItemFormatException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new InvalidItemFormatException("Not an item snapshot: " + path);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays valid after the channel closes
+        }
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.getInt(0) != MAGIC) {
+            throw new InvalidItemFormatException("Not an item snapshot: " + path);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new InvalidItemFormatException("Unsupported item snapshot version " + data.getInt(4) + ": " + path);
+        }
+        if (data.getLong(CHECKSUM_OFFSET) != checksum(data)) {
+            throw new InvalidItemFormatException("Item snapshot is damaged: " + path);
+        }
+
+        int itemCount = data.getInt(8);
+        int templateCount = data.getInt(12);
+        int stringCount = data.getInt(16);
+        long columnBytes = HEADER_BYTES + (long) itemCount * 20 + (long) templateCount * 12 + (long) stringCount * 4;
+        if (itemCount < 0 || templateCount < 0 || stringCount < 0 || columnBytes > data.capacity()) {
+            throw new InvalidItemFormatException("Item snapshot is damaged: " + path);
+        }
+        ItemSnapshot snapshot = new ItemSnapshot(data, itemCount, templateCount, stringCount);
+        int stringByteCount = stringCount == 0 ? 0 : data.getInt(snapshot.stringEnds + (stringCount - 1) * 4);
+        if (columnBytes + stringByteCount != data.capacity()) {
+            throw new InvalidItemFormatException("Item snapshot is damaged: " + path);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Writes items to a snapshot file. The file is filled through a memory map under a temporary name
+     * and then moved into place, so a crash never leaves a half-written snapshot behind.
+     *
+     * @param path the snapshot file to create or replace
+     * @param items the items to write
+     * @throws IOException if the file cannot be written
+     */
+
+    public static void write(Path path, Collection<Item> items) throws IOException {
+        int itemCount = items.size();
+        int[] templateOf = new int[itemCount];
+        Map<ItemTemplate, Integer> templateRefs = new HashMap<>();
+        List<ItemTemplate> templateList = new ArrayList<>();
+        Map<String, Integer> stringRefs = new HashMap<>();
+        List<byte[]> stringList = new ArrayList<>();
+        long stringByteCount = 0;
+
+        int row = 0;
+        for (Item item : items) {
+            ItemTemplate template = item.getTemplate();
+            Integer ref = templateRefs.get(template);
+            if (ref == null) {
+                ref = templateList.size();
+                templateRefs.put(template, ref);
+                templateList.add(template);
+                for (String value : new String[]{template.getName(), template.getType(), template.getDescription()}) {
+                    if (value != null && !stringRefs.containsKey(value)) {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        stringRefs.put(value, stringList.size());
+                        stringList.add(bytes);
+                        stringByteCount += bytes.length;
+                    }
+                }
+            }
+            templateOf[row++] = ref;
+        }
+
+        int templateCount = templateList.size();
+        int stringCount = stringList.size();
+        long size = HEADER_BYTES + (long) itemCount * 20 + (long) templateCount * 12 + (long) stringCount * 4 + stringByteCount;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Too many items for one snapshot file.");
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            ItemSnapshot layout = new ItemSnapshot(data, itemCount, templateCount, stringCount);
+
+            row = 0;
+            for (Item item : items) {
+                data.putLong(HEADER_BYTES + row * 8, item.getWeightUnits());
+                data.putInt(layout.idColumn + row * 4, item.getId());
+                data.putInt(layout.quantityColumn + row * 4, item.getQuantity());
+                data.putInt(layout.templateColumn + row * 4, templateOf[row]);
+                row++;
+            }
+            for (int t = 0; t < templateCount; t++) {
+                ItemTemplate template = templateList.get(t);
+                data.putInt(layout.nameColumn + t * 4, stringRef(stringRefs, template.getName()));
+                data.putInt(layout.typeColumn + t * 4, stringRef(stringRefs, template.getType()));
+                data.putInt(layout.descriptionColumn + t * 4, stringRef(stringRefs, template.getDescription()));
+            }
+            int end = 0;
+            data.position(layout.stringBytes);
+            for (int s = 0; s < stringCount; s++) {
+                byte[] bytes = stringList.get(s);
+                data.put(bytes);
+                end += bytes.length;
+                data.putInt(layout.stringEnds + s * 4, end);
+            }
+
+            data.putInt(0, MAGIC);
+            data.putInt(4, VERSION);
+            data.putInt(8, itemCount);
+            data.putInt(12, templateCount);
+            data.putInt(16, stringCount);
+            data.putInt(20, 0); // Reserved
+            data.putLong(CHECKSUM_OFFSET, checksum(data));
+            data.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int stringRef(Map<String, Integer> stringRefs, String value) {
+        return value == null ? -1 : stringRefs.get(value);
+    }
+
+    // CRC32 of everything after the header, computed straight from the mapped pages
+    private static long checksum(ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate().position(HEADER_BYTES));
+        return crc.getValue();
+    }
+
+    public int size() {
+        return itemCount;
+    }
+
+    // Reads one column value without decoding the rest of the item
+    public int idAt(int index) {
+        return data.getInt(idColumn + checkIndex(index) * 4);
+    }
+
+    /**
+     * Decodes the item at the given position. Each call returns a new Item.
+     *
+     * @param index the position of the item in the snapshot
+     * @return the decoded item
+     */
+
+    public Item get(int index) {
+        checkIndex(index);
+        return Item.fromTemplate(data.getInt(idColumn + index * 4), template(data.getInt(templateColumn + index * 4)),
+                data.getInt(quantityColumn + index * 4), data.getLong(HEADER_BYTES + index * 8));
+    }
+
+    /**
+     * Returns the items as a read-only list that decodes each item when it is read.
+     *
+     * @return a lazily decoded view of the items
+     */
+
+    public List<Item> items() {
+        return new Items();
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= itemCount) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + itemCount + " items");
+        }
+        return index;
+    }
+
+    // Snapshots are read one at a time during a load, so the caches are not synchronized
+    private ItemTemplate template(int ref) {
+        ItemTemplate template = templates[ref];
+        if (template == null) {
+            template = ItemTemplate.of(string(data.getInt(nameColumn + ref * 4)), string(data.getInt(typeColumn + ref * 4)),
+                    string(data.getInt(descriptionColumn + ref * 4)));
+            templates[ref] = template;
+        }
+        return template;
+    }
+
+    private String string(int ref) {
+        if (ref < 0) {
+            return null;
+        }
+        String value = strings[ref];
+        if (value == null) {
+            int start = ref == 0 ? 0 : data.getInt(stringEnds + (ref - 1) * 4);
+            int end = data.getInt(stringEnds + ref * 4);
+            byte[] bytes = new byte[end - start];
+            data.get(stringBytes + start, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[ref] = value;
+        }
+        return value;
+    }
+
+    private class Items extends AbstractList<Item> implements RandomAccess {
+        @Override
+        public Item get(int index) {
+            return ItemSnapshot.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return itemCount;
+        }
+    }
+}
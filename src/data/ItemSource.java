@@ -0,0 +1,41 @@
+package data;
+
+import exceptions.StorageException;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ItemSource reads single rows of a stored table by primary key, for containers such as CachedFloor that
+ * keep only part of a table in memory and fetch the rest when it is asked for.
+ */
+
+public interface ItemSource {
+    /**
+     * Reads one item.
+     *
+     * @param id the item ID
+     * @return the stored item, or null if there is none with that ID
+     * @throws StorageException if the table cannot be read
+     */
+    Item fetch(int id) throws StorageException;
+
+    /**
+     * Reads several items at once, in as few round trips as the backend allows.
+     *
+     * @param ids the item IDs
+     * @return the stored items among them, in no particular order; IDs without a row are left out
+     * @throws StorageException if the table cannot be read
+     */
+    List<Item> fetchAll(Collection<Integer> ids) throws StorageException;
+
+    /**
+     * Reads a run of items in ID order, starting at the given ID.
+     *
+     * @param fromId the smallest ID to read
+     * @param limit the most items to read
+     * @return up to limit items with IDs of at least fromId, in ascending ID order
+     * @throws StorageException if the table cannot be read
+     */
+    List<Item> fetchRange(int fromId, int limit) throws StorageException;
+}
@@ -0,0 +1,156 @@
+package data;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ItemTable is the storage shared by Inventory and Floor.
+ * It holds the primary ID index together with the secondary indexes built on top of it,
+ * and every mutation goes through here so the indexes never drift out of step with the items.
+ *
+ * <p>Items are kept as objects rather than as parallel primitive columns. The indexes, the sorted orders,
+ * transfers and the UI all hold Item references, and at a million items a columnar layout only saved about
+ * a tenth of the memory, since the per-item strings dominate and look-alike items already share one
+ * ItemTemplate.</p>
+ */
+
+class ItemTable implements Iterable<Item> {
+    private final ItemIndex items = new ItemIndex();
+    private final TypeIndex types = new TypeIndex();
+    private final NameIndex names = new NameIndex(items);
+    private final SortedViews sorted = new SortedViews();
+    private ChangeTracker changes;
+
+    /**
+     * Constructs an ItemTable that reports every change to its items to the given tracker.
+     *
+     * @param changes the tracker of the container this table belongs to
+     */
+
+    ItemTable(ChangeTracker changes) {
+        this.changes = changes;
+    }
+
+    // Reports further changes to another tracker, when a table filled off to the side is taken over by a container
+    void reportTo(ChangeTracker changes) {
+        this.changes = changes;
+    }
+
+    Item get(int id) {
+        return items.get(id);
+    }
+
+    boolean add(Item item) {
+        if (!items.add(item)) {
+            return false;
+        }
+        types.add(item);
+        names.add(item);
+        sorted.add(item);
+        changes.markInserted(item.getId());
+        return true;
+    }
+
+    // Adds an item just read from the database: indexed like any other, but not recorded as a change
+    boolean addLoaded(Item item) {
+        if (!items.add(item)) {
+            return false;
+        }
+        types.add(item);
+        names.add(item);
+        sorted.add(item);
+        return true;
+    }
+
+    void ensureCapacity(int expectedSize) {
+        items.ensureCapacity(expectedSize);
+    }
+
+    Item remove(int id) {
+        Item item = items.remove(id);
+        if (item != null) {
+            types.remove(item);
+            names.remove(item);
+            sorted.remove(item);
+            changes.markDeleted(id);
+        }
+        return item;
+    }
+
+    // Drops an item from memory without recording a delete, for caches whose rows stay in the database
+    Item evict(int id) {
+        Item item = items.remove(id);
+        if (item != null) {
+            types.remove(item);
+            names.remove(item);
+            sorted.remove(item);
+        }
+        return item;
+    }
+
+    void clear() {
+        for (Item item : items) {
+            changes.markDeleted(item.getId());
+        }
+        items.clear();
+        types.clear();
+        names.clear();
+        sorted.clear();
+    }
+
+    int size() {
+        return items.size();
+    }
+
+    boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    // Updates an indexed item in place, re-indexing it under its new type and name
+    void updateDetails(Item item, String name, String type, int quantity, double weight, String description) {
+        types.remove(item);
+        names.remove(item);
+        sorted.remove(item);
+        item.updateDetails(name, type, quantity, weight, description);
+        types.add(item);
+        names.add(item);
+        sorted.add(item);
+        changes.markUpdated(item.getId());
+    }
+
+    // Stacks more of an indexed item, moving it to its new place in the quantity order
+    void addQuantity(Item item, int quantity) {
+        sorted.remove(item);
+        item.setQuantity(item.getQuantity() + quantity);
+        sorted.add(item);
+        changes.markUpdated(item.getId());
+    }
+
+    // Read-only live view; see ItemIndex.asList
+    List<Item> asList() {
+        return items.asList();
+    }
+
+    // Read-only live view in the given order; see SortedViews
+    List<Item> sortedBy(SortKey key) {
+        return sorted.sortedBy(key);
+    }
+
+    List<Item> filterByType(String type) {
+        return types.itemsOfType(type);
+    }
+
+    List<Item> searchByName(String query) {
+        return names.search(query);
+    }
+
+    Set<String> categories() {
+        return types.categories();
+    }
+
+    @Override
+    public Iterator<Item> iterator() {
+        return items.iterator();
+    }
+}
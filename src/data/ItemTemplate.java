@@ -0,0 +1,143 @@
+package data;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ItemTemplate is the shared, immutable part of an item: its name, type and description.
+ * Items that look the same (thousands of "Health Potion"s on a floor) all point at one template
+ * instead of each holding their own copies of the strings, so an Item only carries its ID,
+ * quantity, weight and a template reference.
+ *
+ * <p>Templates are interned through {@link #of}, which returns the canonical instance for a given
+ * combination of values. The pool only holds templates weakly, so one that no item uses any more
+ * (for example after every item with an old name was renamed) can be garbage collected. Lookups go
+ * through a concurrent map and take no shared lock, so threads creating items don't queue up on it.</p>
+ */
+
+public final class ItemTemplate {
+    // Keyed by a copy of each template's values; the entry of a collected template is removed via COLLECTED
+    private static final ConcurrentHashMap<ItemTemplate, PoolEntry> POOL = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<ItemTemplate> COLLECTED = new ReferenceQueue<>();
+
+    private final String name;
+    private final String type;
+    private final String description;
+    private final int hash;
+
+    private ItemTemplate(String name, String type, String description) {
+        this.name = name;
+        this.type = type;
+        this.description = description;
+        this.hash = Objects.hash(name, type, description);
+    }
+
+    /**
+     * Returns the canonical template for the given values, creating it on first use.
+     *
+     * @param name the item name
+     * @param type the item type/category
+     * @param description the item description
+     * @return the shared template with those values
+     */
+
+    public static ItemTemplate of(String name, String type, String description) {
+        removeCollected();
+        ItemTemplate key = new ItemTemplate(name, type, description);
+        while (true) {
+            PoolEntry entry = POOL.get(key);
+            ItemTemplate template = entry == null ? null : entry.get();
+            if (template != null) {
+                return template;
+            }
+            // Type names repeat across many templates, so only they are interned; names and descriptions are kept as given
+            ItemTemplate storedKey = new ItemTemplate(name, intern(type), description);
+            template = new ItemTemplate(name, storedKey.type, description);
+            PoolEntry created = new PoolEntry(template, storedKey);
+            boolean stored = entry == null ? POOL.putIfAbsent(storedKey, created) == null : POOL.replace(key, entry, created);
+            if (stored) {
+                return template;
+            }
+            // Another thread added or replaced the entry first; use whatever it stored
+        }
+    }
+
+    // Number of distinct templates currently alive in the pool
+    public static int poolSize() {
+        removeCollected();
+        return POOL.size();
+    }
+
+    // Drops the entries of templates the garbage collector has cleared
+    private static void removeCollected() {
+        Reference<? extends ItemTemplate> ref;
+        while ((ref = COLLECTED.poll()) != null) {
+            PoolEntry entry = (PoolEntry) ref;
+            POOL.remove(entry.key, entry);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    // Templates are immutable, so a changed field means a (possibly already shared) different template
+    ItemTemplate withName(String name) {
+        return of(name, type, description);
+    }
+
+    ItemTemplate withType(String type) {
+        return of(name, type, description);
+    }
+
+    ItemTemplate withDescription(String description) {
+        return of(name, type, description);
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ItemTemplate)) {
+            return false;
+        }
+        ItemTemplate other = (ItemTemplate) o;
+        return hash == other.hash && Objects.equals(name, other.name)
+                && Objects.equals(type, other.type) && Objects.equals(description, other.description);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * PoolEntry is a weak reference to a pooled template that remembers its map key, so the entry can be
+     * removed once the template is collected.
+     */
+
+    private static final class PoolEntry extends WeakReference<ItemTemplate> {
+        private final ItemTemplate key;
+
+        PoolEntry(ItemTemplate template, ItemTemplate key) {
+            super(template, COLLECTED);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * NameIndex answers case-insensitive substring queries on item names without scanning every item.
+ * Each name is broken into overlapping three-character grams, and every gram keeps a posting list of
+ * the IDs of items whose name contained it when they were indexed. A query walks the shortest posting
+ * list among its own grams and confirms each candidate against the item's current name.
+ *
+ * <p>Posting lists are append-only int arrays, so indexing an item is a handful of array writes.
+ * Removals and renames only count the entries they leave stale; the confirmation step already filters
+ * those out, and the postings are rebuilt once stale entries outnumber live ones. A rebuild re-indexes
+ * the items as they are, so it only runs once the items and the index agree again: after an add, or
+ * after an item has left the primary index, never between the two halves of a rename.</p>
+ *
+ * <p>Queries shorter than a gram cannot use the postings, so they fall back to a scan of the items
+ * that compares characters in place instead of lower-casing every name.</p>
+ */
+
+class NameIndex {
+    private static final int GRAM = 3;
+
+    private final ItemIndex items;
+    private long[] gramKeys = new long[64];          // Open-addressing table from gram to posting list,
+    private Posting[] gramPostings = new Posting[64]; // keyed by primitive longs so lookups never box
+    private int gramCount;
+    private final IdTable entryCounts = new IdTable(); // Item ID -> posting entries its current name added
+    private long liveEntries;
+    private long staleEntries;
+
+    private static class Posting {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void append(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return; // The same gram appearing twice in one name
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size << 1);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Constructs a NameIndex over the given primary index, which is used to resolve and confirm matches.
+     *
+     * @param items the primary index holding the items being indexed
+     */
+
+    NameIndex(ItemIndex items) {
+        this.items = items;
+    }
+
+    void add(Item item) {
+        String name = item.getName();
+        if (name == null) {
+            return;
+        }
+        int added = 0;
+        for (int i = 0; i + GRAM <= name.length(); i++) {
+            Posting posting = postingFor(gramAt(name, i), true);
+            int before = posting.size;
+            posting.append(item.getId());
+            added += posting.size - before;
+        }
+        int previous = entryCounts.put(item.getId(), added);
+        if (previous != IdTable.NO_VALUE) {
+            entryCounts.put(item.getId(), previous + added);
+        }
+        liveEntries += added;
+        rebuildIfStale();
+    }
+
+    // Must be called before the item's name changes; its entries are left in place but counted as stale
+    void remove(Item item) {
+        int entries = entryCounts.remove(item.getId());
+        if (entries == IdTable.NO_VALUE) {
+            return;
+        }
+        liveEntries -= entries;
+        staleEntries += entries;
+        if (items.get(item.getId()) != item) {
+            rebuildIfStale(); // Gone from the primary index, not about to be re-added under a new name
+        }
+    }
+
+    void clear() {
+        gramKeys = new long[64];
+        gramPostings = new Posting[64];
+        gramCount = 0;
+        entryCounts.clear();
+        liveEntries = 0;
+        staleEntries = 0;
+    }
+
+    /**
+     * Finds the items whose name contains the query, ignoring case.
+     *
+     * @param query the text to look for
+     * @return the matching items
+     */
+
+    List<Item> search(String query) {
+        List<Item> matches = new ArrayList<>();
+        if (query.length() < GRAM) {
+            for (Item item : items) {
+                if (containsIgnoreCase(item.getName(), query)) {
+                    matches.add(item);
+                }
+            }
+            return matches;
+        }
+
+        Posting shortest = null;
+        for (int i = 0; i + GRAM <= query.length(); i++) {
+            Posting posting = postingFor(gramAt(query, i), false);
+            if (posting == null) {
+                return matches; // Some gram of the query appears in no name at all
+            }
+            if (shortest == null || posting.size < shortest.size) {
+                shortest = posting;
+            }
+        }
+
+        // Stale entries can repeat an ID, so only report each item once
+        IdTable reported = staleEntries > 0 ? new IdTable() : null;
+        for (int i = 0; i < shortest.size; i++) {
+            Item candidate = items.get(shortest.ids[i]);
+            if (candidate != null && containsIgnoreCase(candidate.getName(), query)
+                    && (reported == null || reported.put(candidate.getId(), 0) == IdTable.NO_VALUE)) {
+                matches.add(candidate);
+            }
+        }
+        return matches;
+    }
+
+    private void rebuildIfStale() {
+        if (staleEntries > liveEntries && staleEntries > 1024) {
+            rebuild();
+        }
+    }
+
+    // Re-indexes every current item, dropping all stale entries
+    private void rebuild() {
+        clear();
+        for (Item item : items) {
+            add(item);
+        }
+    }
+
+    // Finds the posting list for a gram, optionally creating an empty one
+    private Posting postingFor(long gram, boolean create) {
+        int mask = gramKeys.length - 1;
+        int slot = slotOf(gram, mask);
+        while (gramPostings[slot] != null) {
+            if (gramKeys[slot] == gram) {
+                return gramPostings[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!create) {
+            return null;
+        }
+        Posting posting = new Posting();
+        gramKeys[slot] = gram;
+        gramPostings[slot] = posting;
+        if (++gramCount > gramKeys.length >> 1) {
+            growGrams();
+        }
+        return posting;
+    }
+
+    private void growGrams() {
+        long[] oldKeys = gramKeys;
+        Posting[] oldPostings = gramPostings;
+        gramKeys = new long[oldKeys.length << 1];
+        gramPostings = new Posting[oldKeys.length << 1];
+        int mask = gramKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldPostings[i] != null) {
+                int slot = slotOf(oldKeys[i], mask);
+                while (gramPostings[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                gramKeys[slot] = oldKeys[i];
+                gramPostings[slot] = oldPostings[i];
+            }
+        }
+    }
+
+    private static int slotOf(long gram, int mask) {
+        long h = gram * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    static boolean containsIgnoreCase(String text, String query) {
+        if (text == null) {
+            return false;
+        }
+        int last = text.length() - query.length();
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Packs three lower-cased characters into one key, so building keys never allocates a substring
+    private static long gramAt(String text, int start) {
+        return ((long) Character.toLowerCase(text.charAt(start)) << 32)
+                | ((long) Character.toLowerCase(text.charAt(start + 1)) << 16)
+                | Character.toLowerCase(text.charAt(start + 2));
+    }
+}
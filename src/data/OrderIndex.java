@@ -0,0 +1,220 @@
+package data;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * OrderIndex keeps items in one sort order in an AVL tree whose nodes also count the items below them,
+ * so adding or removing an item and reading the item at a position are all O(log n).
+ *
+ * <p>The index is itself the read-only List view of the order: get(i) walks down by the subtree counts
+ * and never changes the tree, and iteration walks it in order. Only the package adds and removes items,
+ * through {@link #insert} and {@link #delete}. As with a TreeSet, an item must be deleted before any of
+ * its sort fields change and inserted again afterwards.</p>
+ */
+
+class OrderIndex extends AbstractList<Item> {
+    private final Comparator<Item> order;
+    private Node root;
+
+    OrderIndex(Comparator<Item> order) {
+        this.order = order;
+    }
+
+    // Adds an item at its place in the order; an item that compares equal to one already there is ignored
+    void insert(Item item) {
+        root = insert(root, item);
+    }
+
+    // Removes the item, found by its current sort fields
+    void delete(Item item) {
+        root = delete(root, item);
+    }
+
+    void deleteAll() {
+        if (root != null) {
+            root = null;
+            modCount++;
+        }
+    }
+
+    @Override
+    public Item get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.item;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Iterator<Item> iterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private final Deque<Node> path = new ArrayDeque<>(); // Nodes whose item and right subtree are still to come
+
+            {
+                descendLeft(root);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public Item next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node node = path.pop();
+                descendLeft(node.right);
+                return node.item;
+            }
+
+            private void descendLeft(Node node) {
+                for (; node != null; node = node.left) {
+                    path.push(node);
+                }
+            }
+        };
+    }
+
+    private Node insert(Node node, Item item) {
+        if (node == null) {
+            modCount++;
+            return new Node(item);
+        }
+        int cmp = order.compare(item, node.item);
+        if (cmp < 0) {
+            node.left = insert(node.left, item);
+        } else if (cmp > 0) {
+            node.right = insert(node.right, item);
+        } else {
+            return node;
+        }
+        return rebalance(node);
+    }
+
+    private Node delete(Node node, Item item) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = order.compare(item, node.item);
+        if (cmp < 0) {
+            node.left = delete(node.left, item);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, item);
+        } else {
+            modCount++;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Replace the node with the first item of its right subtree
+            Node next = node.right;
+            while (next.left != null) {
+                next = next.left;
+            }
+            next.right = deleteFirst(node.right);
+            next.left = node.left;
+            return rebalance(next);
+        }
+        return rebalance(node);
+    }
+
+    private Node deleteFirst(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteFirst(node.left);
+        return rebalance(node);
+    }
+
+    // Restores the AVL balance at this node after one of its subtrees changed, and updates its counts
+    private Node rebalance(Node node) {
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        node.update();
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static final class Node {
+        private final Item item;
+        private Node left;
+        private Node right;
+        private int height = 1;
+        private int size = 1; // Items in this subtree, including this one
+
+        Node(Item item) {
+            this.item = item;
+        }
+
+        void update() {
+            height = 1 + Math.max(height(left), height(right));
+            size = 1 + size(left) + size(right);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package data;
+
+import java.util.Comparator;
+
+/**
+ * SortKey lists the orders in which item containers can present their items.
+ * Every order breaks ties by item ID, so no two distinct items ever compare as equal
+ * and each order is a strict total order that a sorted index can be keyed on.
+ */
+
+public enum SortKey {
+    ID(Comparator.comparingInt(Item::getId)),
+    NAME(Comparator.comparing(Item::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))),
+    QUANTITY(Comparator.comparingInt(Item::getQuantity)),
+    WEIGHT(Comparator.comparingLong(Item::getWeightUnits));
+
+    private final Comparator<Item> comparator;
+
+    SortKey(Comparator<Item> order) {
+        this.comparator = order.thenComparingInt(Item::getId);
+    }
+
+    public Comparator<Item> comparator() {
+        return comparator;
+    }
+}
@@ -0,0 +1,52 @@
+package data;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SortedViews keeps the items of an ItemTable in every SortKey order at once, each in an OrderIndex,
+ * so adding, removing or re-keying an item costs O(log n) per order instead of a full re-sort.
+ *
+ * <p>Every order is maintained from the start, so switching a grid to another sort key costs nothing;
+ * the price is that each change updates all SortKey orders, not only the ones being shown. Tree positions
+ * depend on the item's current values, so an item must be taken out before any of its sort fields change
+ * and put back afterwards.</p>
+ *
+ * <p>The views are Lists, so a virtualized grid can read just the rows it shows. Iterating walks the tree
+ * and a positional read walks down it by subtree counts in O(log n); reading never changes the tree.</p>
+ */
+
+class SortedViews {
+    private final Map<SortKey, OrderIndex> orders = new EnumMap<>(SortKey.class);
+
+    SortedViews() {
+        for (SortKey key : SortKey.values()) {
+            orders.put(key, new OrderIndex(key.comparator()));
+        }
+    }
+
+    void add(Item item) {
+        for (OrderIndex order : orders.values()) {
+            order.insert(item);
+        }
+    }
+
+    // Must be called before any sort field of the item changes
+    void remove(Item item) {
+        for (OrderIndex order : orders.values()) {
+            order.delete(item);
+        }
+    }
+
+    void clear() {
+        for (OrderIndex order : orders.values()) {
+            order.deleteAll();
+        }
+    }
+
+    // Read-only live view of the items in the given order
+    List<Item> sortedBy(SortKey key) {
+        return orders.get(key);
+    }
+}
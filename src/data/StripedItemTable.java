@@ -0,0 +1,142 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StripedItemTable spreads items over several independent ItemTables chosen by a hash of the item ID.
+ * Each stripe is guarded by its own monitor, so threads working on items in different stripes never
+ * contend. Callers lock a single stripe with {@code synchronized (stripeFor(id))}; whole-table reads
+ * visit the stripes one at a time and return snapshots.
+ */
+
+class StripedItemTable {
+    private final ItemTable[] stripes;
+    private final int mask;
+
+    StripedItemTable(ChangeTracker changes) {
+        this(Runtime.getRuntime().availableProcessors() * 4, changes);
+    }
+
+    // Every stripe reports to the same tracker, which does its own locking
+    StripedItemTable(int minimumStripes, ChangeTracker changes) {
+        int count = 1;
+        while (count < minimumStripes) {
+            count <<= 1;
+        }
+        this.stripes = new ItemTable[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ItemTable(changes);
+        }
+        this.mask = count - 1;
+    }
+
+    void reportTo(ChangeTracker changes) {
+        for (ItemTable stripe : stripes) {
+            stripe.reportTo(changes);
+        }
+    }
+
+    ItemTable stripeFor(int id) {
+        int h = id * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    // Adds an item just read from the database under its stripe's lock; like ItemTable.addLoaded, not recorded as a change
+    boolean addLoaded(Item item) {
+        ItemTable stripe = stripeFor(item.getId());
+        synchronized (stripe) {
+            return stripe.addLoaded(item);
+        }
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    ItemTable stripe(int index) {
+        return stripes[index];
+    }
+
+    int size() {
+        int size = 0;
+        for (ItemTable stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    boolean isEmpty() {
+        for (ItemTable stripe : stripes) {
+            synchronized (stripe) {
+                if (!stripe.isEmpty()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Items are grouped by stripe, so the snapshot is not in insertion order
+    List<Item> snapshot() {
+        List<Item> items = new ArrayList<>();
+        for (ItemTable stripe : stripes) {
+            synchronized (stripe) {
+                items.addAll(stripe.asList());
+            }
+        }
+        return items;
+    }
+
+    // Each stripe's order is already sorted, so the final sort only has to merge those runs
+    List<Item> sortedBy(SortKey key) {
+        List<Item> items = new ArrayList<>();
+        for (ItemTable stripe : stripes) {
+            synchronized (stripe) {
+                items.addAll(stripe.sortedBy(key));
+            }
+        }
+        items.sort(key.comparator());
+        return items;
+    }
+
+    List<Item> filterByType(String type) {
+        List<Item> items = new ArrayList<>();
+        for (ItemTable stripe : stripes) {
+            synchronized (stripe) {
+                items.addAll(stripe.filterByType(type));
+            }
+        }
+        return items;
+    }
+
+    List<Item> searchByName(String query) {
+        List<Item> items = new ArrayList<>();
+        for (ItemTable stripe : stripes) {
+            synchronized (stripe) {
+                items.addAll(stripe.searchByName(query));
+            }
+        }
+        return items;
+    }
+
+    Set<String> categories() {
+        Map<String, String> categories = new LinkedHashMap<>(); // Normalized type -> display name
+        for (ItemTable stripe : stripes) {
+            synchronized (stripe) {
+                for (String category : stripe.categories()) {
+                    categories.putIfAbsent(TypeIndex.normalize(category), category);
+                }
+            }
+        }
+        return Collections.unmodifiableSet(new LinkedHashSet<>(categories.values()));
+    }
+}
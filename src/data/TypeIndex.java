@@ -0,0 +1,76 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * TypeIndex groups items by their type so that category filters only touch matching items.
+ * Types are compared case-insensitively: each type is normalized and interned once when an item
+ * is indexed, and the first spelling seen for a category is kept as its display name.
+ */
+
+class TypeIndex {
+    private final Map<String, Category> byKey = new HashMap<>();
+    private final Set<String> displayNames = new LinkedHashSet<>();
+    private final Set<String> displayNamesView = Collections.unmodifiableSet(displayNames);
+
+    private static class Category {
+        private final String displayName;
+        private final ItemIndex items = new ItemIndex(4);
+
+        private Category(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+
+    void add(Item item) {
+        String key = normalize(item.getType());
+        Category category = byKey.get(key);
+        if (category == null) {
+            category = new Category(item.getType() == null ? "" : item.getType().trim());
+            byKey.put(key, category);
+            displayNames.add(category.displayName);
+        }
+        category.items.add(item);
+    }
+
+    void remove(Item item) {
+        String key = normalize(item.getType());
+        Category category = byKey.get(key);
+        if (category != null && category.items.remove(item.getId()) != null && category.items.isEmpty()) {
+            byKey.remove(key);
+            displayNames.remove(category.displayName);
+        }
+    }
+
+    void clear() {
+        byKey.clear();
+        displayNames.clear();
+    }
+
+    // Returns the items of the given type, in the order they were indexed
+    List<Item> itemsOfType(String type) {
+        Category category = byKey.get(normalize(type));
+        return category == null ? new ArrayList<>() : category.items.toList();
+    }
+
+    int countOfType(String type) {
+        Category category = byKey.get(normalize(type));
+        return category == null ? 0 : category.items.size();
+    }
+
+    // Live, read-only view of the distinct categories currently present
+    Set<String> categories() {
+        return displayNamesView;
+    }
+
+    static String normalize(String type) {
+        return type == null ? "" : type.trim().toLowerCase(Locale.ROOT).intern();
+    }
+}
@@ -0,0 +1,44 @@
+package data;
+
+/**
+ * Weights converts between the double weights used by the public API and fixed-point weight units.
+ * One weight unit is a thousandth of a weight point, so sums of unit values are exact and can be
+ * kept in a long (or an AtomicLong) without the drift that repeated double arithmetic accumulates.
+ */
+
+public final class Weights {
+    public static final long UNITS_PER_WEIGHT = 1_000;
+
+    private Weights() {
+    }
+
+    public static long toUnits(double weight) {
+        return Math.round(weight * UNITS_PER_WEIGHT);
+    }
+
+    public static double toWeight(long units) {
+        return (double) units / UNITS_PER_WEIGHT;
+    }
+
+    // Rounds to hundredths half away from zero, as %.2f does, so 1235 units (1.235) gives 124
+    public static long toHundredths(long units) {
+        long magnitude = (Math.abs(units) + 5) / 10;
+        return units < 0 ? -magnitude : magnitude;
+    }
+
+    // Appends the weight with exactly two decimals and a '.' separator, without going through a Formatter
+    public static StringBuilder appendHundredths(StringBuilder out, long units) {
+        long hundredths = toHundredths(units);
+        if (hundredths < 0) {
+            out.append('-');
+            hundredths = -hundredths;
+        }
+        long fraction = hundredths % 100;
+        return out.append(hundredths / 100).append('.').append(fraction < 10 ? "0" : "").append(fraction);
+    }
+
+    // Weight of a whole stack in units: per-item weight times quantity
+    public static long stackUnits(Item item) {
+        return item.getWeightUnits() * item.getQuantity();
+    }
+}
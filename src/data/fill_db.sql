@@ -1,11 +1,13 @@
 -- Create table for inventory items
+-- version is bumped by every write, so processes sharing the file can detect each other's changes
 CREATE TABLE IF NOT EXISTS inventory_items (
                                                id INTEGER PRIMARY KEY,
                                                name TEXT NOT NULL,
                                                type TEXT NOT NULL,
                                                quantity INTEGER NOT NULL,
                                                weight REAL NOT NULL,
-                                               description TEXT NOT NULL
+                                               description TEXT NOT NULL,
+                                               version INTEGER NOT NULL DEFAULT 0
 );
 
 -- Create table for floor items
@@ -15,9 +17,35 @@ CREATE TABLE IF NOT EXISTS floor_items (
                                            type TEXT NOT NULL,
                                            quantity INTEGER NOT NULL,
                                            weight REAL NOT NULL,
-                                           description TEXT NOT NULL
+                                           description TEXT NOT NULL,
+                                           version INTEGER NOT NULL DEFAULT 0
 );
 
+-- Databases created before the version column existed are migrated on first use by SqliteItemStorage:
+-- ALTER TABLE inventory_items ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
+-- ALTER TABLE floor_items ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
+
+-- Every changed item ID is logged here, so a process watching the file can reload just those rows.
+-- SqliteItemStorage creates the log and its triggers on first poll if they are missing. A whole-table rewrite
+-- drops the triggers while it runs and logs one row with item_id -2147483649 instead, meaning "compare the whole table".
+CREATE TABLE IF NOT EXISTS item_changes (
+                                            seq INTEGER PRIMARY KEY AUTOINCREMENT,
+                                            table_name TEXT NOT NULL,
+                                            item_id INTEGER NOT NULL
+);
+CREATE TRIGGER IF NOT EXISTS inventory_items_insert_logged AFTER INSERT ON inventory_items
+    BEGIN INSERT INTO item_changes (table_name, item_id) VALUES ('inventory_items', NEW.id); END;
+CREATE TRIGGER IF NOT EXISTS inventory_items_update_logged AFTER UPDATE ON inventory_items
+    BEGIN INSERT INTO item_changes (table_name, item_id) VALUES ('inventory_items', NEW.id); END;
+CREATE TRIGGER IF NOT EXISTS inventory_items_delete_logged AFTER DELETE ON inventory_items
+    BEGIN INSERT INTO item_changes (table_name, item_id) VALUES ('inventory_items', OLD.id); END;
+CREATE TRIGGER IF NOT EXISTS floor_items_insert_logged AFTER INSERT ON floor_items
+    BEGIN INSERT INTO item_changes (table_name, item_id) VALUES ('floor_items', NEW.id); END;
+CREATE TRIGGER IF NOT EXISTS floor_items_update_logged AFTER UPDATE ON floor_items
+    BEGIN INSERT INTO item_changes (table_name, item_id) VALUES ('floor_items', NEW.id); END;
+CREATE TRIGGER IF NOT EXISTS floor_items_delete_logged AFTER DELETE ON floor_items
+    BEGIN INSERT INTO item_changes (table_name, item_id) VALUES ('floor_items', OLD.id); END;
+
 
 -- Inserting items using INSERT OR IGNORE to skip duplicates
 INSERT OR IGNORE INTO floor_items (id, name, type, quantity, weight, description) VALUES
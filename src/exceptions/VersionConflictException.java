@@ -0,0 +1,77 @@
+package exceptions;
+
+import data.Item;
+
+import java.util.List;
+
+/**
+ * VersionConflictException is thrown when a write finds that another process changed some of its rows
+ * since they were read. None of the rows in the write were stored. Each conflict carries the row that
+ * was being written and the row that is stored now, so the caller can decide which one should win.
+ */
+
+public class VersionConflictException extends StorageException {
+    private final List<Conflict> conflicts;
+
+    public VersionConflictException(List<Conflict> conflicts) {
+        super(conflicts.size() + " item(s) were changed by another process: " + conflicts);
+        this.conflicts = List.copyOf(conflicts);
+    }
+
+    public List<Conflict> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Conflict is one row whose stored version was not the one the writer expected.
+     */
+
+    public static class Conflict {
+        private final String tableName;
+        private final int id;
+        private final Item local;
+        private final Item stored;
+        private final long storedVersion;
+
+        /**
+         * @param tableName the table of the row
+         * @param id the item ID
+         * @param local the row that was being written, or null for a delete
+         * @param stored the row stored now, or null if it has been deleted
+         * @param storedVersion the stored row's version, or -1 if it has been deleted
+         */
+
+        public Conflict(String tableName, int id, Item local, Item stored, long storedVersion) {
+            this.tableName = tableName;
+            this.id = id;
+            this.local = local;
+            this.stored = stored;
+            this.storedVersion = storedVersion;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Item getLocal() {
+            return local;
+        }
+
+        public Item getStored() {
+            return stored;
+        }
+
+        public long getStoredVersion() {
+            return storedVersion;
+        }
+
+        @Override
+        public String toString() {
+            return tableName + "/" + id;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package logic;
+
+import data.Item;
+import exceptions.VersionConflictException.Conflict;
+
+/**
+ * ConflictResolver decides what happens to an item that another process changed while this one was
+ * changing it too. InventoryManager asks it once per conflicting row, applies the answer to memory and
+ * writes again.
+ */
+
+@FunctionalInterface
+public interface ConflictResolver {
+    // The other process wrote first, so its row is taken over and the local change dropped
+    ConflictResolver KEEP_STORED = Conflict::getStored;
+
+    // The local change is written over the other process's row
+    ConflictResolver KEEP_LOCAL = Conflict::getLocal;
+
+    /**
+     * Chooses the row that should win.
+     *
+     * @param conflict the conflicting row, with the local and the stored version of it
+     * @return the row to keep: the stored row to accept it, the local row or a merge of both to write it,
+     *         or null for the item not to exist
+     */
+    Item resolve(Conflict conflict);
+}
@@ -0,0 +1,77 @@
+package logic;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DatabaseWatcher keeps a manager's inventory and floor in step with other processes writing the same
+ * database. A daemon thread polls the storage every few milliseconds; with SQLite a poll that finds no
+ * commit from another connection costs one PRAGMA data_version query. When rows did change, only those
+ * rows are handed to the apply thread, typically the JavaFX thread, which puts them into memory and then
+ * runs the change callback, so the UI shows them without a full reload.
+ */
+
+public class DatabaseWatcher implements AutoCloseable {
+    public static final long DEFAULT_POLL_MILLIS = 50;
+
+    private final InventoryManager manager;
+    private final long pollMillis;
+    private final Executor applyOn;
+    private final Runnable onChange;
+    private ScheduledExecutorService poller;
+
+    /**
+     * Constructs a watcher; polling begins with {@link #start}.
+     *
+     * @param manager the manager whose storage is watched and whose containers are updated
+     * @param pollMillis the delay between the end of one poll and the start of the next
+     * @param applyOn runs the in-memory updates, such as Platform::runLater
+     * @param onChange run on the apply thread after changes were applied, e.g. to refresh the UI
+     */
+
+    public DatabaseWatcher(InventoryManager manager, long pollMillis, Executor applyOn, Runnable onChange) {
+        this.manager = manager;
+        this.pollMillis = Math.max(1, pollMillis);
+        this.applyOn = applyOn;
+        this.onChange = onChange;
+    }
+
+    public synchronized void start() {
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "database-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Runs on the polling thread; an exception here would cancel every later poll, so none may escape
+    private void poll() {
+        try {
+            List<ExternalChange> changes = manager.pollExternalChanges();
+            if (!changes.isEmpty()) {
+                applyOn.execute(() -> {
+                    if (manager.applyExternalChanges(changes)) {
+                        onChange.run();
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Error watching database: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+}
@@ -0,0 +1,625 @@
+package logic;
+
+import data.Item;
+import data.ItemContainer;
+import data.ItemTemplate;
+import exceptions.StorageException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * EventLogItemStorage keeps items in an append-only log instead of rewriting table rows. Every write
+ * appends a single record holding the group's upserts and deletes to the current segment file, so a save
+ * is one sequential write however many items the world holds. Each record carries its length and a CRC32;
+ * a record cut short by a crash fails its check and is skipped on replay, so a group is stored whole or
+ * not at all.
+ *
+ * <p>A segment is sealed once it grows past segmentBytes and a new one is started. When enough segments
+ * are sealed, a background thread folds them and the previous snapshot into a new snapshot and deletes
+ * them. A load reads the latest snapshot and replays only the segments written after it.</p>
+ *
+ * <p>The FsyncPolicy decides how often appended records are forced to disk. A compaction or periodic sync
+ * that fails on the background thread is remembered and thrown from the next write or snapshot, so the
+ * caller learns about it instead of it only being printed. The directory must not be shared by two storages
+ * at once.</p>
+ */
+
+public class EventLogItemStorage implements ItemStorage {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    static final int COMPACT_AFTER_SEGMENTS = 4;  // Sealed segments that trigger a background snapshot
+    static final long FSYNC_INTERVAL_MILLIS = 1_000;
+
+    /**
+     * FsyncPolicy trades write latency against how much a power failure can lose.
+     * A process crash alone never loses a write that returned, whatever the policy.
+     */
+
+    public enum FsyncPolicy {
+        ALWAYS,   // Force every write to disk before it returns
+        PERIODIC, // Force from the background thread about once every FSYNC_INTERVAL_MILLIS
+        NEVER     // Leave it to the operating system
+    }
+
+    private static final int SNAPSHOT_MAGIC = 0x494E5653; // "INVS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long segmentBytes;
+    private final Object compactionLock = new Object(); // Held while files are read in bulk or replaced
+
+    private FileChannel active;    // Segment being appended to; null until first use and after close
+    private long activeSegment;
+    private long activeSize;
+    private boolean unsynced;      // Appended since the last force, under the PERIODIC policy
+    private StorageException backgroundFailure; // Last compaction or sync failure not yet thrown to a caller
+    private ScheduledExecutorService background;
+
+    /**
+     * Constructs a storage in the given directory with the default segment size.
+     *
+     * @param directory the directory holding the log; created on first use
+     * @param fsyncPolicy when appended records are forced to disk
+     */
+
+    public EventLogItemStorage(Path directory, FsyncPolicy fsyncPolicy) {
+        this(directory, fsyncPolicy, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Constructs a storage in the given directory.
+     *
+     * @param directory the directory holding the log; created on first use
+     * @param fsyncPolicy when appended records are forced to disk
+     * @param segmentBytes the size after which a segment is sealed and a new one started
+     */
+
+    public EventLogItemStorage(Path directory, FsyncPolicy fsyncPolicy, long segmentBytes) {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.segmentBytes = Math.max(1, segmentBytes);
+    }
+
+    @Override
+    public void write(Map<String, Map<Integer, Item>> rows) throws StorageException {
+        Record record = new Record();
+        for (Map.Entry<String, Map<Integer, Item>> table : rows.entrySet()) {
+            for (Map.Entry<Integer, Item> row : table.getValue().entrySet()) {
+                if (row.getValue() != null) {
+                    record.put(table.getKey(), row.getValue());
+                } else {
+                    record.delete(table.getKey(), row.getKey());
+                }
+            }
+        }
+        append(record);
+    }
+
+    // One record that clears each table and puts its items back, so the replacement is atomic like any write
+    @Override
+    public void replaceAll(Map<String, ? extends Collection<Item>> tables) throws StorageException {
+        Record record = new Record();
+        for (String tableName : tables.keySet()) {
+            record.clear(tableName);
+        }
+        for (Map.Entry<String, ? extends Collection<Item>> table : tables.entrySet()) {
+            for (Item item : table.getValue()) {
+                record.put(table.getKey(), item);
+            }
+        }
+        append(record);
+    }
+
+    @Override
+    public void load(Map<String, ItemContainer> targets, LoadProgressListener listener) throws StorageException {
+        Map<String, Map<Integer, Item>> state;
+        synchronized (compactionLock) {
+            long upTo;
+            synchronized (this) {
+                ensureOpen();
+                upTo = activeSegment + 1; // Everything written so far, including the active segment
+            }
+            state = readState(upTo);
+        }
+
+        for (Map.Entry<String, ItemContainer> target : targets.entrySet()) {
+            Map<Integer, Item> rows = state.getOrDefault(target.getKey(), Map.of());
+            List<Item> chunk = new ArrayList<>(InventoryManager.LOAD_FETCH_SIZE);
+            long rowsLoaded = 0;
+            for (Item item : rows.values()) {
+                chunk.add(item);
+                if (chunk.size() == InventoryManager.LOAD_FETCH_SIZE) {
+                    rowsLoaded += addChunk(target.getValue(), chunk, target.getKey(), rowsLoaded, rows.size(), listener);
+                }
+            }
+            addChunk(target.getValue(), chunk, target.getKey(), rowsLoaded, rows.size(), listener);
+        }
+    }
+
+    private int addChunk(ItemContainer container, List<Item> chunk, String tableName, long rowsLoaded, long totalRows, LoadProgressListener listener) {
+        int rows = chunk.size();
+        container.addLoadedItems(chunk);
+        chunk.clear();
+        if (listener != null) {
+            listener.onProgress(tableName, rowsLoaded + rows, totalRows);
+        }
+        return rows;
+    }
+
+    /**
+     * Seals the active segment and folds every sealed segment into a new snapshot right away, instead of
+     * waiting for enough segments to pile up. The next load then reads only the snapshot.
+     *
+     * @throws StorageException if the snapshot could not be written
+     */
+
+    public void snapshot() throws StorageException {
+        synchronized (this) {
+            throwBackgroundFailure();
+            ensureOpen();
+            if (activeSize > 0) {
+                try {
+                    roll();
+                } catch (IOException e) {
+                    throw new StorageException("Could not seal log segment: " + e.getMessage(), e);
+                }
+            }
+        }
+        compact(1);
+    }
+
+    // Appends one record to the active segment, sealing the segment once it is full
+    private synchronized void append(Record record) throws StorageException {
+        throwBackgroundFailure();
+        ensureOpen();
+        ByteBuffer buffer = record.toBuffer();
+        try {
+            while (buffer.hasRemaining()) {
+                active.write(buffer);
+            }
+            activeSize += buffer.limit();
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                active.force(false);
+            } else {
+                unsynced = true;
+            }
+            if (activeSize >= segmentBytes) {
+                roll();
+            }
+        } catch (IOException e) {
+            // A half-written record would hide every record appended after it, so continue in a new segment
+            closeActive();
+            throw new StorageException("Error appending to event log: " + e.getMessage(), e);
+        }
+    }
+
+    // Opens a fresh segment after the highest one on disk, and starts the background thread
+    private void ensureOpen() throws StorageException {
+        if (active != null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            long highest = 0;
+            for (long number : list("segment-", ".log").keySet()) {
+                highest = Math.max(highest, number);
+            }
+            for (long number : list("snapshot-", ".snap").keySet()) {
+                highest = Math.max(highest, number);
+            }
+            openSegment(highest + 1);
+        } catch (IOException e) {
+            throw new StorageException("Could not open event log in " + directory + ": " + e.getMessage(), e);
+        }
+        if (background == null) {
+            background = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "event-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (fsyncPolicy == FsyncPolicy.PERIODIC) {
+                background.scheduleWithFixedDelay(this::syncIfNeeded, FSYNC_INTERVAL_MILLIS, FSYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        active = FileChannel.open(directory.resolve(segmentName(number)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeSegment = number;
+        activeSize = 0;
+    }
+
+    // Seals the active segment and starts the next one; a background snapshot follows once enough are sealed
+    private void roll() throws IOException {
+        active.force(false);
+        active.close();
+        openSegment(activeSegment + 1);
+        unsynced = false;
+        background.execute(() -> {
+            try {
+                compact(COMPACT_AFTER_SEGMENTS);
+            } catch (StorageException e) {
+                System.out.println("Error compacting event log: " + e.getMessage());
+                failedInBackground(e);
+            }
+        });
+    }
+
+    private synchronized void failedInBackground(StorageException failure) {
+        backgroundFailure = failure;
+    }
+
+    // Throws the last background failure once, leaving the storage usable for the retry
+    private void throwBackgroundFailure() throws StorageException {
+        StorageException failure = backgroundFailure;
+        if (failure != null) {
+            backgroundFailure = null;
+            throw failure;
+        }
+    }
+
+    private void syncIfNeeded() {
+        FileChannel channel;
+        synchronized (this) {
+            if (!unsynced || active == null) {
+                return;
+            }
+            channel = active;
+            unsynced = false;
+        }
+        try {
+            channel.force(false); // Outside the lock, so writers keep appending while the disk catches up
+        } catch (IOException e) {
+            System.out.println("Error syncing event log: " + e.getMessage());
+            synchronized (this) {
+                unsynced |= active == channel; // Try again on the next tick; a sealed segment was forced when it was rolled
+                backgroundFailure = new StorageException("Error syncing event log: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Folds the latest snapshot and the sealed segments after it into a new snapshot, then deletes the files
+     * it replaces. Does nothing while fewer than minSealed segments are waiting.
+     */
+
+    private void compact(int minSealed) throws StorageException {
+        synchronized (compactionLock) {
+            long upTo;
+            synchronized (this) {
+                if (active == null) {
+                    return; // Closed in the meantime
+                }
+                upTo = activeSegment; // Every segment before the active one is sealed and no longer changes
+            }
+            try {
+                long sealed = list("segment-", ".log").headMap(upTo).size();
+                if (sealed < minSealed) {
+                    return;
+                }
+                Map<String, Map<Integer, Item>> state = readState(upTo);
+                writeSnapshot(upTo, state);
+                for (Path segment : list("segment-", ".log").headMap(upTo).values()) {
+                    Files.deleteIfExists(segment);
+                }
+                for (Path snapshot : list("snapshot-", ".snap").headMap(upTo).values()) {
+                    Files.deleteIfExists(snapshot);
+                }
+            } catch (IOException e) {
+                throw new StorageException("Error compacting event log: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // Rebuilds the tables from the latest snapshot and the segments numbered below upTo that follow it
+    private Map<String, Map<Integer, Item>> readState(long upTo) throws StorageException {
+        try {
+            Map<String, Map<Integer, Item>> state = new LinkedHashMap<>();
+            TreeMap<Long, Path> snapshots = list("snapshot-", ".snap");
+            Map.Entry<Long, Path> latest = snapshots.lowerEntry(upTo + 1);
+            long from = 0;
+            if (latest != null) {
+                readSnapshot(latest.getValue(), state);
+                from = latest.getKey();
+            }
+            for (Path segment : list("segment-", ".log").subMap(from, upTo).values()) {
+                replay(segment, state);
+            }
+            return state;
+        } catch (IOException e) {
+            throw new StorageException("Error reading event log: " + e.getMessage(), e);
+        }
+    }
+
+    // Applies every intact record of a segment; replay stops at the first record that is cut short or damaged
+    private void replay(Path segment, Map<String, Map<Integer, Item>> state) throws IOException {
+        long remaining = Files.size(segment);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (remaining >= 8) {
+                int length = in.readInt();
+                long checksum = in.readInt() & 0xFFFFFFFFL;
+                remaining -= 8;
+                if (length < 0 || length > remaining) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                remaining -= length;
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+                apply(new DataInputStream(new ByteArrayInputStream(payload)), state);
+            }
+        } catch (EOFException e) {
+            // The file was shorter than its size said; treat it like a torn record
+        }
+    }
+
+    private static void apply(DataInputStream in, Map<String, Map<Integer, Item>> state) throws IOException {
+        int operations = in.readInt();
+        for (int i = 0; i < operations; i++) {
+            byte op = in.readByte();
+            String tableName = in.readUTF();
+            Map<Integer, Item> rows = state.computeIfAbsent(tableName, t -> new LinkedHashMap<>());
+            if (op == CLEAR) {
+                rows.clear();
+            } else if (op == DELETE) {
+                rows.remove(in.readInt());
+            } else if (op == PUT) {
+                Item item = readItem(in);
+                rows.put(item.getId(), item);
+            } else {
+                throw new IOException("Unknown event log operation " + op);
+            }
+        }
+    }
+
+    private void writeSnapshot(long number, Map<String, Map<Integer, Item>> state) throws IOException {
+        Path temp = directory.resolve(snapshotName(number) + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(state.size());
+            for (Map.Entry<String, Map<Integer, Item>> table : state.entrySet()) {
+                out.writeUTF(table.getKey());
+                out.writeInt(table.getValue().size());
+                for (Item item : table.getValue().values()) {
+                    writeItem(out, item);
+                }
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        // The snapshot only replaces the old files once it is complete and on disk
+        Files.move(temp, directory.resolve(snapshotName(number)), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void readSnapshot(Path snapshot, Map<String, Map<Integer, Item>> state) throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(snapshot))) {
+            CheckedInputStream checked = new CheckedInputStream(file, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a snapshot file: " + snapshot);
+            }
+            int tables = in.readInt();
+            for (int t = 0; t < tables; t++) {
+                Map<Integer, Item> rows = state.computeIfAbsent(in.readUTF(), name -> new LinkedHashMap<>());
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    Item item = readItem(in);
+                    rows.put(item.getId(), item);
+                }
+            }
+            long expected = checked.getChecksum().getValue();
+            if (new DataInputStream(file).readLong() != expected) {
+                throw new IOException("Snapshot is damaged: " + snapshot);
+            }
+        }
+    }
+
+    private static void writeItem(DataOutputStream out, Item item) throws IOException {
+        out.writeInt(item.getId());
+        writeString(out, item.getName());
+        writeString(out, item.getType());
+        writeString(out, item.getDescription());
+        out.writeInt(item.getQuantity());
+        out.writeLong(item.getWeightUnits());
+    }
+
+    private static Item readItem(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        String name = readString(in);
+        String type = readString(in);
+        String description = readString(in);
+        int quantity = in.readInt();
+        long weightUnits = in.readLong();
+        return Item.fromTemplate(id, ItemTemplate.of(name, type, description), quantity, weightUnits);
+    }
+
+    // Length-prefixed UTF-8 with -1 for null; writeUTF would cap descriptions at 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Files in the directory with the given prefix and suffix, by the number in their name
+    private TreeMap<Long, Path> list(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    try {
+                        files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), path);
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            });
+        }
+        return files;
+    }
+
+    private static String segmentName(long number) {
+        return String.format("segment-%016d.log", number);
+    }
+
+    private static String snapshotName(long number) {
+        return String.format("snapshot-%016d.snap", number);
+    }
+
+    private void closeActive() {
+        if (active != null) {
+            try {
+                active.force(false);
+                active.close();
+            } catch (IOException e) {
+                System.out.println("Error closing event log segment: " + e.getMessage());
+            }
+            active = null;
+        }
+    }
+
+    /**
+     * Forces and closes the active segment and stops the background thread. Using the storage again
+     * opens a new segment.
+     */
+
+    @Override
+    public void close() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            closeActive();
+            unsynced = false;
+            stopping = background;
+            background = null;
+        }
+        if (stopping != null) {
+            stopping.shutdown(); // A compaction already running is allowed to finish
+            try {
+                stopping.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Record collects the operations of one write and frames them as [length][crc32][payload].
+     */
+
+    private static class Record {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int operations;
+
+        private Record() {
+            try {
+                out.writeInt(0); // Room for the frame header,
+                out.writeInt(0); // filled in by toBuffer
+                out.writeInt(0); // and for the operation count
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // A ByteArrayOutputStream does not fail
+            }
+        }
+
+        private void put(String tableName, Item item) {
+            try {
+                out.writeByte(PUT);
+                out.writeUTF(tableName);
+                writeItem(out, item);
+                operations++;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void delete(String tableName, int id) {
+            try {
+                out.writeByte(DELETE);
+                out.writeUTF(tableName);
+                out.writeInt(id);
+                operations++;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void clear(String tableName) {
+            try {
+                out.writeByte(CLEAR);
+                out.writeUTF(tableName);
+                operations++;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private ByteBuffer toBuffer() {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            int length = buffer.limit() - 8;
+            buffer.putInt(8, operations);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 8, length);
+            buffer.putInt(0, length);
+            buffer.putInt(4, (int) crc.getValue());
+            return buffer;
+        }
+    }
+}
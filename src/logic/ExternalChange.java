@@ -0,0 +1,49 @@
+package logic;
+
+import data.Item;
+
+/**
+ * ExternalChange is one row that another process changed, as read by ItemStorage.pollChanges.
+ */
+
+public final class ExternalChange {
+    private final String tableName;
+    private final int id;
+    private final Item stored;
+    private final long storedVersion;
+
+    /**
+     * @param tableName the table the row belongs to
+     * @param id the item ID
+     * @param stored the row as stored now, or null if it was deleted
+     * @param storedVersion the row's version, or -1 if it was deleted
+     */
+
+    public ExternalChange(String tableName, int id, Item stored, long storedVersion) {
+        this.tableName = tableName;
+        this.id = id;
+        this.stored = stored;
+        this.storedVersion = storedVersion;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Item getStored() {
+        return stored;
+    }
+
+    public long getStoredVersion() {
+        return storedVersion;
+    }
+
+    @Override
+    public String toString() {
+        return tableName + "#" + id + (stored == null ? " deleted" : " v" + storedVersion);
+    }
+}
@@ -1,23 +1,43 @@
 package logic;
 
+import data.CachedFloor;
+import data.ChangeTracker;
 import data.Floor;
 import data.Inventory;
 import data.Item;
+import data.ItemContainer;
+import data.SortKey;
 import exceptions.ItemNotFoundException;
+import exceptions.StorageException;
+import exceptions.VersionConflictException;
 
-import java.sql.*;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * InventoryManager class handles the logic for managing items in the inventory and on the floor.
- * It interacts with a SQLite database to load and save items and provides methods to update item details.
+ * It loads and saves items through an ItemStorage backend (a SQLite database by default) and provides methods
+ * to update item details.
  * This class also manages the pickup and drop operations for items between the inventory and the floor.
  */
 
 public class InventoryManager {
+    public static final int DEFAULT_BATCH_SIZE = SqliteItemStorage.DEFAULT_BATCH_SIZE;
+    public static final int LOAD_FETCH_SIZE = SqliteItemStorage.LOAD_FETCH_SIZE;
+    public static final int DEFAULT_WRITE_ATTEMPTS = 3; // Writes per save before a conflict is given up on until the next save
+
     private Inventory inventory;
     private Floor floor;
-    private String dbFilePath; // Path to the SQLite database
+    private volatile ItemStorage storage; // Where items are loaded from and saved to; null until a database file is set
+    private volatile WriteBehindWriter writer;  // Set in write-behind mode; saves then happen on its thread
+    private volatile Executor applyOn = Runnable::run; // Runs the writer's conflict resolutions on the thread that owns the containers
+    private final ItemTransfer transfers; // Striped only if both containers are thread-safe
+    private volatile ConflictResolver conflictResolver = ConflictResolver.KEEP_STORED; // For rows another process changed first
 
     /**
      * Constructs an InventoryManager object with the given inventory, floor, and database file path.
@@ -28,139 +48,452 @@ public class InventoryManager {
      */
 
     public InventoryManager(Inventory inventory, Floor floor, String dbFilePath) {
+        this(inventory, floor, sqliteStorage(dbFilePath));
+    }
+
+    /**
+     * Constructs an InventoryManager object that loads and saves through the given storage backend.
+     *
+     * @param inventory the Inventory object to manage inventory items
+     * @param floor the Floor object to manage floor items
+     * @param storage the storage backend, or null to set one later
+     */
+
+    public InventoryManager(Inventory inventory, Floor floor, ItemStorage storage) {
         this.inventory = inventory;
         this.floor = floor;
-        this.dbFilePath = dbFilePath;
+        this.storage = storage;
+        this.transfers = ItemTransfer.forContainers(inventory, floor);
+    }
+
+    private static ItemStorage sqliteStorage(String dbFilePath) {
+        return dbFilePath == null || dbFilePath.isEmpty() ? null : new SqliteItemStorage(dbFilePath);
     }
 
-    // Establish a connection to the SQLite database
-    private Connection connect() throws SQLException {
-        String url = "jdbc:sqlite:" + dbFilePath;
-        return DriverManager.getConnection(url);
+    // Read without the manager's lock: the writer thread calls this while close() may hold it waiting for a flush
+    private ItemStorage storage() {
+        return storage;
     }
 
     // Load items from the database into the inventory and floor
     public boolean loadItemsFromDatabase() {
-        if (dbFilePath == null || dbFilePath.isEmpty()) {
+        return loadItemsFromDatabase(null);
+    }
+
+    /**
+     * Loads every item from storage, replacing the current inventory and floor contents.
+     * Each table is read into a fresh container made by emptyCopy; with SQLite the tables are loaded at
+     * the same time, each on its own read connection. Only once every table has loaded are the new
+     * contents swapped into the live containers, so the UI never sees a half-loaded state and a failed
+     * load leaves the current contents untouched.
+     *
+     * @param listener told after each chunk how many rows of a table have been loaded; may be null
+     * @return true if every table was loaded
+     */
+
+    public boolean loadItemsFromDatabase(LoadProgressListener listener) {
+        ItemStorage current = storage();
+        if (current == null) {
             System.out.println("Database file path is not set.");
             return false;
         }
 
-        try (Connection conn = connect()) {
-            loadItemsFromTable(conn, "inventory_items", inventory.getItems());
-            loadItemsFromTable(conn, "floor_items", floor.getItems());
+        flush(); // Rows still waiting in write-behind mode must land before the tables are read back
 
-            // Debug: print loaded items
-            System.out.println("Inventory items loaded: " + inventory.getItems().size());
-            System.out.println("Floor items loaded: " + floor.getItems().size());
-
-            return true;
-        } catch (SQLException e) {
+        Map<String, ItemContainer> staged = new LinkedHashMap<>();
+        for (Map.Entry<String, ItemContainer> target : tables().entrySet()) {
+            staged.put(target.getKey(), target.getValue().emptyCopy());
+        }
+        try {
+            current.load(staged, listener);
+        } catch (StorageException e) {
             System.out.println("Error loading items from database: " + e.getMessage());
             return false;
         }
-    }
 
+        for (Map.Entry<String, ItemContainer> target : tables().entrySet()) {
+            target.getValue().replaceContents(staged.get(target.getKey()));
+        }
+        if (floor instanceof CachedFloor cached) {
+            cached.invalidateAll(); // Its rows are read again as they are asked for
+        }
+        resetChangeTrackers(); // Memory now matches the database, so there is nothing to save
 
-    // Helper method to load items from a specific table into an item container
-    private void loadItemsFromTable(Connection conn, String tableName, List<Item> itemContainer) throws SQLException {
-        itemContainer.clear(); // Make sure to clear the list before loading
-        String sql = "SELECT * FROM " + tableName;
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                String type = rs.getString("type");
-                int quantity = rs.getInt("quantity");
-                double weight = rs.getDouble("weight");
-                String description = rs.getString("description");
+        // Debug: print loaded items
+        System.out.println("Inventory items loaded: " + inventory.size());
+        System.out.println("Floor items loaded: " + floor.size());
 
-                // Create a new Item and add it to the container
-                Item item = new Item(id, name, type, quantity, weight, description);
-                System.out.println("Loaded item: ID=" + id + ", Name=" + name); // Debug
+        return true;
+    }
 
-                // Use addItem() to ensure it's properly added
-                if (tableName.equals("floor_items")) {
-                    floor.addItem(item); // Add directly to the Floor object
-                } else {
-                    inventory.addItem(item); // Add to the Inventory object
-                }
-            }
+    // Each table loaded and rewritten in full and the container it belongs to; a new container only needs an entry here
+    private Map<String, ItemContainer> tables() {
+        Map<String, ItemContainer> tables = new LinkedHashMap<>();
+        tables.put("inventory_items", inventory);
+        if (!(floor instanceof CachedFloor)) {
+            tables.put("floor_items", floor); // A cached floor reads floor_items row by row instead
         }
+        return tables;
     }
 
+    /**
+     * Saves the items that changed since the last save or load. Only the changed rows are written,
+     * as compare-and-set updates and deletes by item ID in one atomic write, so the cost of a save follows
+     * the size of the change rather than the number of items in the world, and processes sharing the
+     * database only meet on the rows they both changed. Such rows are settled by the conflict resolver
+     * and written again. If the write fails the changes are kept and retried on the next save.
+     */
 
-    // Save all items to the database
     public void saveItemsToDatabase() {
-        if (dbFilePath == null || dbFilePath.isEmpty()) {
+        if (storage() == null) {
             System.out.println("Database file path is not set.");
             return;
         }
 
-        try (Connection conn = connect()) {
-            clearTable(conn, "inventory_items");
-            clearTable(conn, "floor_items");
+        WriteBehindWriter currentWriter = writer;
+        if (currentWriter != null) {
+            // Queue the rows behind any already pending, so writes to one item can never be reordered
+            enqueueChanges(currentWriter);
+            currentWriter.flush();
+            return;
+        }
 
-            saveItemsToTable(conn, "inventory_items", inventory.getItems());
-            saveItemsToTable(conn, "floor_items", floor.getItems());
-        } catch (SQLException e) {
+        try {
+            saveItemsToDatabase(conflictResolver, DEFAULT_WRITE_ATTEMPTS);
+        } catch (StorageException e) {
             System.out.println("Error saving items to database: " + e.getMessage());
         }
     }
 
-    // Helper method to clear a table
-    private void clearTable(Connection conn, String tableName) throws SQLException {
-        String sql = "DELETE FROM " + tableName;
-        try (Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate(sql);
+    /**
+     * Saves the changed items synchronously and reports what could not be saved to the caller. Rows that
+     * another process changed first are handed to the resolver; its answer is applied to memory and the
+     * rows are written again, up to maxAttempts writes in all. In write-behind mode the queue is flushed
+     * first, with the manager's own conflict resolver.
+     *
+     * @param resolver decides which version of each conflicting row wins
+     * @param maxAttempts the most writes to try, at least 1
+     * @throws VersionConflictException if rows still conflicted on the last attempt; every change is kept for the next save
+     * @throws StorageException if no storage is set or the write failed; every change is kept for the next save
+     */
+
+    public void saveItemsToDatabase(ConflictResolver resolver, int maxAttempts) throws StorageException {
+        ItemStorage current = storage();
+        if (current == null) {
+            throw new StorageException("Database file path is not set.");
+        }
+        WriteBehindWriter currentWriter = writer;
+        if (currentWriter != null) {
+            enqueueChanges(currentWriter);
+            currentWriter.flush();
+        }
+
+        ChangeTracker.Changes inventoryChanges = inventory.getChangeTracker().drain();
+        ChangeTracker.Changes floorChanges = floor.getChangeTracker().drain();
+        if (inventoryChanges.isEmpty() && floorChanges.isEmpty()) {
+            return;
+        }
+
+        Map<String, Map<Integer, Item>> rows = new LinkedHashMap<>();
+        rows.put("inventory_items", changedRows(inventory, inventoryChanges));
+        rows.put("floor_items", changedRows(floor, floorChanges));
+        try {
+            writeResolving(current, rows, resolver, maxAttempts, false);
+        } catch (StorageException e) {
+            inventory.getChangeTracker().restore(inventoryChanges);
+            floor.getChangeTracker().restore(floorChanges);
+            throw e;
+        }
+    }
+
+    /**
+     * Sets how rows that another process changed first are settled by saves that do not take a resolver,
+     * including those of the write-behind writer. The default keeps the other process's rows.
+     *
+     * @param resolver decides which version of each conflicting row wins
+     */
+
+    public void setConflictResolver(ConflictResolver resolver) {
+        this.conflictResolver = Objects.requireNonNull(resolver);
+    }
+
+    // Writes rows, settling version conflicts through the resolver and writing what is left again. Settled
+    // rows are taken out of the map and winners put in, so a caller retrying the map later does not undo them.
+    // On the write-behind writer the winners are handed to applyOn rather than put into memory on its thread.
+    private void writeResolving(ItemStorage current, Map<String, Map<Integer, Item>> rows, ConflictResolver resolver,
+                                int maxAttempts, boolean onWriter) throws StorageException {
+        Map<String, Map<Integer, Item>> settled = new LinkedHashMap<>(); // Rows now matching the database
+        for (int attempt = 1; ; attempt++) {
+            try {
+                current.write(rows);
+                for (Map.Entry<String, Map<Integer, Item>> table : rows.entrySet()) {
+                    settled.computeIfAbsent(table.getKey(), t -> new LinkedHashMap<>()).putAll(table.getValue());
+                }
+                rowsSaved(settled);
+                return;
+            } catch (VersionConflictException e) {
+                if (attempt >= maxAttempts) {
+                    rowsSaved(settled);
+                    throw e;
+                }
+                for (VersionConflictException.Conflict conflict : e.getConflicts()) {
+                    Item winner = resolver.resolve(conflict);
+                    if (onWriter) {
+                        applyOn.execute(() -> applyResolution(conflict, winner, true));
+                    } else {
+                        applyResolution(conflict, winner, false);
+                    }
+                    current.acceptStoredVersion(conflict);
+                    Map<Integer, Item> tableRows = rows.computeIfAbsent(conflict.getTableName(), table -> new LinkedHashMap<>());
+                    if (winner == conflict.getStored()) {
+                        tableRows.remove(conflict.getId()); // Memory now matches the database
+                        settled.computeIfAbsent(conflict.getTableName(), table -> new LinkedHashMap<>()).put(conflict.getId(), winner);
+                    } else {
+                        tableRows.put(conflict.getId(), winner == null ? null
+                                : Item.fromTemplate(winner.getId(), winner.getTemplate(), winner.getQuantity(), winner.getWeightUnits()));
+                    }
+                }
+                System.out.println("Settled " + e.getConflicts().size() + " item(s) changed by another process.");
+            }
         }
     }
 
-    // Helper method to save items to a specific table
-    private void saveItemsToTable(Connection conn, String tableName, List<Item> items) throws SQLException {
-        String sql = "INSERT INTO " + tableName + " (id, name, type, quantity, weight, description) VALUES (?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            for (Item item : items) {
-                pstmt.setInt(1, item.getId());
-                pstmt.setString(2, item.getName());
-                pstmt.setString(3, item.getType());
-                pstmt.setInt(4, item.getQuantity());
-                pstmt.setDouble(5, item.getWeight());
-                pstmt.setString(6, item.getDescription());
-                pstmt.executeUpdate();
+    // Makes memory hold the winning row of a conflict, without recording it as a change of its own. A deferred
+    // resolution is dropped if the item changed again since its row was queued: that newer row is written over the winner.
+    private void applyResolution(VersionConflictException.Conflict conflict, Item winner, boolean deferred) {
+        if (winner == conflict.getLocal()) {
+            return; // Memory already holds the local row
+        }
+        ItemContainer container = conflict.getTableName().equals("inventory_items") ? inventory : floor;
+        ChangeTracker tracker = container == inventory ? inventory.getChangeTracker() : floor.getChangeTracker();
+        WriteBehindWriter currentWriter = writer;
+        int id = conflict.getId();
+        transfers.withItemLock(id, () -> {
+            if (deferred && (tracker.isPending(id) || (currentWriter != null && currentWriter.isWaiting(conflict.getTableName(), id)))) {
+                return null;
             }
+            container.takeItem(id);
+            if (winner != null && container.addLoadedItems(List.of(winner)) == 0) {
+                System.out.println("Item " + id + " from another process does not fit in the inventory.");
+            }
+            tracker.discard(id);
+            return null;
+        });
+    }
+
+    /**
+     * Reads the rows other processes changed since the last poll. Only reads storage, so it can run off
+     * the UI thread; the first poll on a storage starts watching and returns nothing.
+     *
+     * @return the changed rows, empty if nothing changed
+     */
+
+    public List<ExternalChange> pollExternalChanges() {
+        ItemStorage current = storage();
+        if (current == null) {
+            return List.of();
+        }
+        try {
+            return current.pollChanges(List.of("inventory_items", "floor_items"));
+        } catch (StorageException e) {
+            System.out.println("Error reading changes from database: " + e.getMessage());
+            return List.of();
         }
     }
 
-    // Method to update an item's details in the inventory and database
-    public void updateItemInInventory(int id, String name, String type, int quantity, double weight, String description) throws ItemNotFoundException {
-        Item item = inventory.getItemById(id);
-        if (item == null) {
-            throw new ItemNotFoundException("Item with ID " + id + " not found in inventory.");
+    /**
+     * Applies rows from pollExternalChanges to the inventory and floor, without recording them as changes
+     * to save. Items with changes of their own that are not written yet are left alone; writing them settles
+     * the difference through the conflict resolver. Call it on the thread that reads the containers, such
+     * as the UI thread.
+     *
+     * @param changes the changed rows
+     * @return true if anything in memory changed
+     */
+
+    public boolean applyExternalChanges(List<ExternalChange> changes) {
+        ItemStorage current = storage();
+        WriteBehindWriter currentWriter = writer;
+        boolean changed = false;
+        for (ExternalChange change : changes) {
+            ItemContainer container = change.getTableName().equals("inventory_items") ? inventory : floor;
+            ChangeTracker tracker = container == inventory ? inventory.getChangeTracker() : floor.getChangeTracker();
+            int id = change.getId();
+            changed |= transfers.withItemLock(id, () -> {
+                if (tracker.isPending(id) || (currentWriter != null && currentWriter.isQueued(change.getTableName(), id))) {
+                    return false;
+                }
+                boolean applied;
+                if (container instanceof CachedFloor cached) {
+                    cached.invalidate(id); // Read again from the table when it is next asked for
+                    applied = true;
+                } else {
+                    boolean present = container.takeItem(id) != null;
+                    if (change.getStored() != null && container.addLoadedItems(List.of(change.getStored())) == 0) {
+                        System.out.println("Item " + id + " from another process does not fit in the inventory.");
+                    }
+                    tracker.discard(id);
+                    applied = present || change.getStored() != null;
+                }
+                if (current != null) {
+                    current.acceptStoredVersion(change);
+                }
+                return applied;
+            });
         }
+        return changed;
+    }
 
-        item.updateDetails(name, type, quantity, weight, description);
+    // Rewrite both tables from scratch, e.g. to write the whole world into a different database file
+    public void saveAllItemsToDatabase() {
+        ItemStorage current = storage();
+        if (current == null) {
+            System.out.println("Database file path is not set.");
+            return;
+        }
 
-        String sql = "UPDATE inventory_items SET name = ?, type = ?, quantity = ?, weight = ?, description = ? WHERE id = ?";
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, name);
-            pstmt.setString(2, type);
-            pstmt.setInt(3, quantity);
-            pstmt.setDouble(4, weight);
-            pstmt.setString(5, description);
-            pstmt.setInt(6, id);
+        boolean cachedFloor = floor instanceof CachedFloor;
+        ChangeTracker.Changes inventoryChanges = inventory.getChangeTracker().drain();
+        ChangeTracker.Changes floorChanges = cachedFloor ? null : floor.getChangeTracker().drain();
+        Map<String, List<Item>> contents = new LinkedHashMap<>();
+        for (Map.Entry<String, ItemContainer> table : tables().entrySet()) {
+            contents.put(table.getKey(), table.getValue().getItems());
+        }
+        try {
+            current.replaceAll(contents);
+        } catch (StorageException e) {
+            inventory.getChangeTracker().restore(inventoryChanges);
+            if (floorChanges != null) {
+                floor.getChangeTracker().restore(floorChanges);
+            }
+            System.out.println("Error saving items to database: " + e.getMessage());
+            return;
+        }
+        if (cachedFloor) {
+            saveItemsToDatabase(); // Only part of a cached floor is in memory, so just its changes are written
+        }
+    }
 
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new ItemNotFoundException("Item with ID " + id + " not found in the database.");
+    // Snapshots the rows behind one container's drained changes; null rows are deletes
+    private Map<Integer, Item> changedRows(ItemContainer container, ChangeTracker.Changes changes) {
+        Map<Integer, Item> rows = new LinkedHashMap<>();
+        for (int id : changes.getUpserts()) {
+            Item item = container.getItemById(id);
+            if (item != null) {
+                // Templates are immutable, so the copy shares them and only the counters are copied
+                rows.put(id, Item.fromTemplate(id, item.getTemplate(), item.getQuantity(), item.getWeightUnits()));
             }
-        } catch (SQLException e) {
-            System.out.println("Error updating item in database: " + e.getMessage());
+            // Otherwise it was removed again since the drain; that delete is already tracked for the next save
+        }
+        for (int id : changes.getDeletes()) {
+            rows.put(id, null);
         }
+        return rows;
     }
 
+    /**
+     * Switches to write-behind persistence. From now on a pickup, drop, craft, delete or update only
+     * queues snapshots of the rows it changed and returns; a background writer commits them in groups
+     * of up to maxPendingRows rows, or after maxDelayMillis at the latest. Call {@link #flush} to wait
+     * until everything queued so far is durable.
+     *
+     * <p>Rows the writer finds changed by another process are settled by the conflict resolver on the
+     * writer's thread, but the winners are put into the inventory and floor through applyOn, like the
+     * changes of a DatabaseWatcher.</p>
+     *
+     * @param maxPendingRows commit as soon as this many distinct rows are waiting
+     * @param maxDelayMillis commit once the oldest waiting row has waited this long
+     * @param applyOn runs the in-memory updates of settled conflicts, such as Platform::runLater
+     */
+
+    public void enableWriteBehind(int maxPendingRows, long maxDelayMillis, Executor applyOn) {
+        WriteBehindWriter old;
+        synchronized (this) {
+            old = writer;
+            this.applyOn = Objects.requireNonNull(applyOn);
+            writer = new WriteBehindWriter(this::writeRows, maxPendingRows, maxDelayMillis);
+        }
+        if (old != null) {
+            enqueueChanges(old);
+            old.close(); // Outside the lock: its flush needs the writer thread, which reads the storage
+        }
+    }
+
+    /**
+     * Blocks until every change made so far has been committed to the database.
+     *
+     * @return true if the changes are durable, false if writing them failed
+     */
+
+    public boolean flush() {
+        WriteBehindWriter currentWriter = writer;
+        if (currentWriter == null) {
+            return true; // Without write-behind every mutation has already saved synchronously
+        }
+        enqueueChanges(currentWriter);
+        return currentWriter.flush();
+    }
+
+    // Save after a mutation: queue the changed rows in write-behind mode, otherwise write them now
+    private void persist() {
+        WriteBehindWriter currentWriter = writer;
+        if (currentWriter != null) {
+            enqueueChanges(currentWriter);
+        } else {
+            saveItemsToDatabase();
+        }
+    }
+
+    // Drain both trackers into the writer as row snapshots, taken here on the thread that made the changes
+    private void enqueueChanges(WriteBehindWriter target) {
+        enqueueChanges(target, "inventory_items", changedRows(inventory, inventory.getChangeTracker().drain()));
+        enqueueChanges(target, "floor_items", changedRows(floor, floor.getChangeTracker().drain()));
+    }
+
+    private void enqueueChanges(WriteBehindWriter target, String tableName, Map<Integer, Item> rows) {
+        for (Map.Entry<Integer, Item> row : rows.entrySet()) {
+            target.enqueue(tableName, row.getKey(), row.getValue());
+        }
+    }
+
+    // Write one group from the write-behind queue to whichever storage is current
+    private void writeRows(Map<String, Map<Integer, Item>> rows) throws StorageException {
+        ItemStorage current = storage();
+        if (current == null) {
+            throw new StorageException("Database file path is not set.");
+        }
+        writeResolving(current, rows, conflictResolver, DEFAULT_WRITE_ATTEMPTS, true);
+    }
+
+    // A cached floor keeps its changed items in memory until their rows are written
+    private void rowsSaved(Map<String, Map<Integer, Item>> rows) {
+        Map<Integer, Item> floorRows = rows.get("floor_items");
+        if (floorRows != null && floor instanceof CachedFloor cached) {
+            cached.rowsSaved(floorRows);
+        }
+    }
+
+    private void resetChangeTrackers() {
+        inventory.getChangeTracker().reset();
+        floor.getChangeTracker().reset();
+    }
+
+    // Method to update an item's details in the inventory and database
+    public void updateItemInInventory(int id, String name, String type, int quantity, double weight, String description) throws ItemNotFoundException {
+        Item item = transfers.withItemLock(id, () -> {
+            Item found = inventory.getItemById(id);
+            if (found != null) {
+                inventory.updateItemDetails(id, name, type, quantity, weight, description);
+            }
+            return found;
+        });
+        if (item == null) {
+            throw new ItemNotFoundException("Item with ID " + id + " not found in inventory.");
+        }
+        persist();
+    }
+
+    // Both item getters return read-only live views; nothing is copied per call
     public List<Item> getInventoryItems() {
         return inventory.getItems();
     }
@@ -169,14 +502,48 @@ public class InventoryManager {
         return floor.getItems();
     }
 
+    // Orders maintained incrementally by each container, so switching the sort key never re-sorts
+    public List<Item> getInventoryItemsSortedBy(SortKey key) {
+        return inventory.getItemsSortedBy(key);
+    }
+
+    public List<Item> getFloorItemsSortedBy(SortKey key) {
+        return floor.getItemsSortedBy(key);
+    }
+
+    public List<Item> getInventoryItemsByType(String type) {
+        return inventory.filterItemsByType(type);
+    }
+
+    public List<Item> getFloorItemsByType(String type) {
+        return floor.filterItemsByType(type);
+    }
+
+    // Case-insensitive name searches, answered by each container's name index
+    public List<Item> searchInventoryItems(String query) {
+        return inventory.searchByName(query);
+    }
+
+    public List<Item> searchFloorItems(String query) {
+        return floor.searchByName(query);
+    }
+
+    public Set<String> getInventoryCategories() {
+        return inventory.getCategories();
+    }
+
+    public Set<String> getFloorCategories() {
+        return floor.getCategories();
+    }
+
+    // Pickups and drops go through ItemTransfer, so the same item can never be moved twice at once
     public void pickUpItem(int id) throws ItemNotFoundException {
-        Item item = floor.getItemById(id);
-        if (item == null) {
+        ItemTransfer.Result result = transfers.transfer(floor, inventory, id);
+        if (result == ItemTransfer.Result.NOT_FOUND) {
             throw new ItemNotFoundException("Item with ID " + id + " not found on the floor.");
         }
-        if (inventory.addItem(item)) {
-            floor.removeItem(id);
-            saveItemsToDatabase();
+        if (result == ItemTransfer.Result.MOVED) {
+            persist();
             System.out.println("Item picked up and added to inventory.");
         } else {
             System.out.println("Could not pick up item. Exceeds inventory weight capacity.");
@@ -184,35 +551,91 @@ public class InventoryManager {
     }
 
     public void dropItem(int id) throws ItemNotFoundException {
-        Item item = inventory.getItemById(id);
-        if (item == null) {
+        ItemTransfer.Result result = transfers.transfer(inventory, floor, id);
+        if (result == ItemTransfer.Result.NOT_FOUND) {
             throw new ItemNotFoundException("Item with ID " + id + " not found in inventory.");
         }
-        inventory.removeItem(id);
-        floor.addItem(item);
-        saveItemsToDatabase();
+        persist();
         System.out.println("Item dropped from inventory to floor.");
     }
 
     public void setDatabaseFilePath(String dbFilePath) {
-        this.dbFilePath = dbFilePath;
+        ItemStorage current = storage();
+        if (current instanceof SqliteItemStorage sqlite && Objects.equals(dbFilePath, sqlite.getDatabaseFilePath())) {
+            return; // Same file, so keep its open connections
+        }
+        setStorage(sqliteStorage(dbFilePath));
+    }
+
+    /**
+     * Switches to another storage backend. Changes still queued in write-behind mode are written to the
+     * old storage first, and the old storage is closed.
+     *
+     * @param storage the new storage backend, or null for none
+     */
+
+    public void setStorage(ItemStorage storage) {
+        flush(); // Queued rows belong to the old storage
+        ItemStorage old;
+        synchronized (this) {
+            old = this.storage;
+            this.storage = storage;
+        }
+        if (old != null && old != storage) {
+            old.close();
+        }
+    }
+
+    /**
+     * Commits anything still queued and closes the storage. Call this when the application shuts down;
+     * the storage reopens its files if it is used again afterwards.
+     */
+
+    public void close() {
+        WriteBehindWriter closing;
+        synchronized (this) {
+            closing = writer;
+            writer = null;
+        }
+        if (closing != null) {
+            // Outside the lock: the flush waits for the writer thread, which reads the storage as it writes
+            enqueueChanges(closing);
+            closing.close(); // Commits whatever is still queued
+        }
+        ItemStorage current = storage();
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Sets how many rows a save sends to SQLite per batch. Every save already runs in one transaction,
+     * so this only trades driver round trips against the memory held by a pending batch. Other storage
+     * backends ignore it.
+     *
+     * @param batchSize the number of rows per batch; values below 1 are ignored
+     */
+
+    public void setBatchSize(int batchSize) {
+        if (storage() instanceof SqliteItemStorage sqlite) {
+            sqlite.setBatchSize(batchSize);
+        }
     }
 
     public void craftItemOnFloor(int id, String name, String type, int quantity, double weight, String description) throws SQLException {
         Item newItem = new Item(id, name, type, quantity, weight, description);
-        floor.addItem(newItem);
-        saveItemsToDatabase(); // Save the changes to the database
+        transfers.withItemLock(id, () -> floor.addItem(newItem));
+        persist(); // Save the changes to the database
         System.out.println("Crafted a new item on the floor: " + newItem.getDetails());
     }
 
     // Delete an item from the floor by ID
     public void deleteFloorItem(int id) throws ItemNotFoundException, SQLException {
-        Item item = floor.getItemById(id);
+        Item item = transfers.withItemLock(id, () -> floor.takeItem(id));
         if (item == null) {
             throw new ItemNotFoundException("Item with ID " + id + " not found on the floor.");
         }
-        floor.removeItem(id);
-        saveItemsToDatabase(); // Save the changes to the database
+        persist(); // Save the changes to the database
         System.out.println("Deleted item with ID " + id + " from the floor.");
     }
 }
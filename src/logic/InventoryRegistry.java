@@ -0,0 +1,593 @@
+package logic;
+
+import data.ChangeTracker;
+import data.ConcurrentFloor;
+import data.ConcurrentInventory;
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import data.ItemContainer;
+import exceptions.ItemNotFoundException;
+import exceptions.StorageException;
+import logic.SqliteConnectionPool.PooledConnection;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * InventoryRegistry manages the inventories of many players and the floors of many zones for a game
+ * server, where InventoryManager only handles one of each. Their items are spread over a fixed number of
+ * SQLite shard files, shard-000.db, shard-001.db and so on, and each player or zone ID is assigned to a
+ * shard by a 32-bit FNV-1a hash of its UTF-8 bytes, so it lands in the same file on every run.
+ *
+ * <p>A shard file is opened the first time one of its players or zones is used, and each container is
+ * loaded from its shard on first use. Every shard has its own connection pool and its own lock, so loads
+ * and saves on different shards run in parallel and never wait for each other. Inventories and floors
+ * are the thread-safe ConcurrentInventory and ConcurrentFloor.</p>
+ *
+ * <p>A move between containers on two different shards is recorded in a {@link MoveJournal}, moves.db,
+ * before either shard saves it, so a crash between the two shards' commits is finished on the next start
+ * instead of leaving the item in both files or in neither. Unloading a container removes it from its
+ * shard in the same step as its last changes are drained, so no move through the registry can change it
+ * after that.</p>
+ *
+ * <p>The shard count decides where every ID lives, so a directory must always be opened with the same
+ * count, and moves.db must stay with the shard files.</p>
+ */
+
+public class InventoryRegistry implements AutoCloseable {
+    private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+    private static final int CONNECTIONS_PER_SHARD = 2;
+
+    private final Shard[] shards;
+    private final double inventoryCapacity;
+    private final ExecutorService writers;
+    private final ItemTransfer transfers = new ItemTransfer(); // Shared by every shard: an item ID can move between any two of them
+    private final MoveJournal journal;
+    // Moves hold the read lock from finding their containers to recording the move; draining a shard takes the write lock
+    private final ReentrantReadWriteLock moving = new ReentrantReadWriteLock();
+    private final Object recovery = new Object(); // Held while finishing them; never while a shard is locked
+    private volatile boolean recovered; // Whether the moves a previous run left half saved have been finished
+
+    /**
+     * Constructs a registry over the shard files in a directory. No file is opened until a container is
+     * first asked for.
+     *
+     * @param directory the directory holding the shard files
+     * @param shardCount the number of shard files; must stay the same for the directory
+     * @param inventoryCapacity the weight capacity of each player's inventory
+     */
+
+    public InventoryRegistry(Path directory, int shardCount, double inventoryCapacity) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1.");
+        }
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, directory.resolve(String.format("shard-%03d.db", i)).toString());
+        }
+        this.inventoryCapacity = inventoryCapacity;
+        this.journal = new MoveJournal(directory.resolve("moves.db").toString());
+        this.writers = Executors.newFixedThreadPool(Math.min(shardCount, Runtime.getRuntime().availableProcessors() * 2), task -> {
+            Thread thread = new Thread(task, "shard-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the shard a player or zone ID belongs to. The hash depends only on the ID's bytes, so the
+     * answer is the same on every machine and every run.
+     *
+     * @param id a player or zone ID
+     * @param shardCount the number of shards
+     * @return the shard index, from 0 to shardCount - 1
+     */
+
+    public static int shardOf(String id, int shardCount) {
+        int hash = FNV_OFFSET_BASIS;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return Integer.remainderUnsigned(hash, shardCount);
+    }
+
+    private Shard shardFor(String id) {
+        return shards[shardOf(id, shards.length)];
+    }
+
+    /**
+     * Returns a player's inventory, loading it from its shard the first time it is asked for.
+     * A player with no stored items gets an empty inventory.
+     *
+     * @param playerId the player ID
+     * @return the player's live inventory
+     * @throws StorageException if the shard cannot be opened or read
+     */
+
+    public Inventory getInventory(String playerId) throws StorageException {
+        recoverMoves();
+        return (Inventory) shardFor(playerId).container(Shard.INVENTORY_TABLE, playerId);
+    }
+
+    /**
+     * Returns a zone's floor, loading it from its shard the first time it is asked for.
+     *
+     * @param zoneId the zone ID
+     * @return the zone's live floor
+     * @throws StorageException if the shard cannot be opened or read
+     */
+
+    public Floor getFloor(String zoneId) throws StorageException {
+        recoverMoves();
+        return (Floor) shardFor(zoneId).container(Shard.FLOOR_TABLE, zoneId);
+    }
+
+    // Replays, oldest first, the half of each journaled move that its shard never saved, before any container is loaded
+    private void recoverMoves() throws StorageException {
+        if (recovered) {
+            return;
+        }
+        synchronized (recovery) {
+            if (recovered) {
+                return;
+            }
+            try {
+                for (MoveJournal.Move move : journal.unfinished()) {
+                    Shard target = shards[move.targetShard];
+                    if (move.row != null && target.savedPosition() < move.seq) {
+                        target.restoreRow(move.targetTable, move.targetOwner, move.row);
+                    }
+                    Shard source = shards[move.sourceShard];
+                    if (source.savedPosition() < move.seq) {
+                        source.deleteRow(move.sourceTable, move.sourceOwner, move.itemId);
+                    }
+                }
+                journal.clear();
+            } catch (SQLException e) {
+                throw new StorageException("Error finishing the item moves left in the journal: " + e.getMessage(), e);
+            }
+            recovered = true;
+        }
+    }
+
+    /**
+     * Moves an item from a zone's floor into a player's inventory. Moves are locked per item ID across the
+     * whole registry, so two moves of the same item never run at once even when their containers live on
+     * different shards. When the player and the zone live on different shards the move is journaled, so it
+     * is saved on both shards or, after a crash, finished on the next start.
+     *
+     * @return MOVED, or REJECTED if the item would exceed the inventory's weight capacity
+     * @throws ItemNotFoundException if the item is not on the zone's floor
+     * @throws StorageException if a shard cannot be opened or read
+     */
+
+    public ItemTransfer.Result pickUpItem(String playerId, String zoneId, int itemId) throws ItemNotFoundException, StorageException {
+        ItemTransfer.Result result = move(Shard.FLOOR_TABLE, zoneId, Shard.INVENTORY_TABLE, playerId, itemId);
+        if (result == ItemTransfer.Result.NOT_FOUND) {
+            throw new ItemNotFoundException("Item with ID " + itemId + " not found on the floor of zone " + zoneId + ".");
+        }
+        return result;
+    }
+
+    /**
+     * Moves an item from a player's inventory onto a zone's floor, under the same lock as pickUpItem.
+     *
+     * @throws ItemNotFoundException if the item is not in the player's inventory
+     * @throws StorageException if a shard cannot be opened or read
+     */
+
+    public void dropItem(String playerId, String zoneId, int itemId) throws ItemNotFoundException, StorageException {
+        ItemTransfer.Result result = move(Shard.INVENTORY_TABLE, playerId, Shard.FLOOR_TABLE, zoneId, itemId);
+        if (result == ItemTransfer.Result.NOT_FOUND) {
+            throw new ItemNotFoundException("Item with ID " + itemId + " not found in the inventory of player " + playerId + ".");
+        }
+    }
+
+    private ItemTransfer.Result move(String sourceTable, String sourceOwner, String targetTable, String targetOwner, int itemId)
+            throws StorageException {
+        Shard sourceShard = shardFor(sourceOwner);
+        Shard targetShard = shardFor(targetOwner);
+        while (true) {
+            recoverMoves();
+            ItemContainer source = sourceShard.container(sourceTable, sourceOwner);
+            ItemContainer target = targetShard.container(targetTable, targetOwner);
+            moving.readLock().lock();
+            try {
+                if (!sourceShard.isLoaded(sourceTable, sourceOwner, source) || !targetShard.isLoaded(targetTable, targetOwner, target)) {
+                    continue; // One of them was unloaded in the meantime, so look them up again
+                }
+                ItemTransfer.Result result = transfers.transfer(source, target, itemId);
+                if (result == ItemTransfer.Result.MOVED && sourceShard != targetShard) {
+                    journal.record(new MoveJournal.Move(itemId, sourceShard.index, sourceTable, sourceOwner,
+                            targetShard.index, targetTable, targetOwner));
+                }
+                return result;
+            } finally {
+                moving.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Saves the items that changed since the last save in every open shard. The shards are written at the
+     * same time, each in one transaction over its own connection; a shard whose write fails keeps its
+     * changes for the next save while the others still commit. A move between two shards is journaled
+     * before either of them writes it, so it is never saved on one side only for good.
+     *
+     * @return true if every shard saved
+     */
+
+    public boolean saveAll() {
+        List<Future<Boolean>> saving = new ArrayList<>();
+        for (Shard shard : shards) {
+            if (shard.isOpen()) {
+                saving.add(writers.submit(shard::save));
+            }
+        }
+        boolean saved = true;
+        for (Future<Boolean> shard : saving) {
+            try {
+                saved &= shard.get();
+            } catch (ExecutionException e) {
+                System.out.println("Error saving shard: " + e.getCause().getMessage());
+                saved = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Saves a player's inventory and drops it from memory, e.g. when the player logs out. Callers must
+     * stop using the inventory they were given; asking again loads a fresh one.
+     *
+     * @param playerId the player ID
+     * @return true if the inventory was saved or was not loaded
+     */
+
+    public boolean unloadInventory(String playerId) {
+        return shardFor(playerId).unload(Shard.INVENTORY_TABLE, playerId);
+    }
+
+    /**
+     * Saves a zone's floor and drops it from memory.
+     *
+     * @param zoneId the zone ID
+     * @return true if the floor was saved or was not loaded
+     */
+
+    public boolean unloadFloor(String zoneId) {
+        return shardFor(zoneId).unload(Shard.FLOOR_TABLE, zoneId);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Shards whose file has been opened so far
+    public int getOpenShardCount() {
+        int open = 0;
+        for (Shard shard : shards) {
+            if (shard.isOpen()) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Saves every open shard and closes their connections. The registry reopens shards if it is used again.
+     */
+
+    @Override
+    public void close() {
+        saveAll();
+        for (Shard shard : shards) {
+            shard.close();
+        }
+        journal.close();
+    }
+
+    /**
+     * Shard is one SQLite file with the containers loaded from it. Its containers are looked up without
+     * locking; loading, saving and closing hold the shard's own lock, which no other shard shares. Each save
+     * also stores, in journal_position, the journal sequence number up to which the shard has saved.
+     */
+
+    private final class Shard {
+        static final String INVENTORY_TABLE = "player_inventory_items";
+        static final String FLOOR_TABLE = "zone_floor_items";
+
+        // owner_id is the player ID in player_inventory_items and the zone ID in zone_floor_items
+        private static final String[] SCHEMA = {
+                "CREATE TABLE IF NOT EXISTS player_inventory_items (owner_id TEXT NOT NULL, id INTEGER NOT NULL, name TEXT NOT NULL, "
+                        + "type TEXT NOT NULL, quantity INTEGER NOT NULL, weight REAL NOT NULL, description TEXT NOT NULL, PRIMARY KEY (owner_id, id))",
+                "CREATE TABLE IF NOT EXISTS zone_floor_items (owner_id TEXT NOT NULL, id INTEGER NOT NULL, name TEXT NOT NULL, "
+                        + "type TEXT NOT NULL, quantity INTEGER NOT NULL, weight REAL NOT NULL, description TEXT NOT NULL, PRIMARY KEY (owner_id, id))",
+                "CREATE TABLE IF NOT EXISTS journal_position (id INTEGER PRIMARY KEY CHECK (id = 0), seq INTEGER NOT NULL)"
+        };
+
+        private final int index;
+        private final String dbFilePath;
+        private final Map<String, ItemContainer> inventories = new ConcurrentHashMap<>();
+        private final Map<String, ItemContainer> floors = new ConcurrentHashMap<>();
+        private volatile SqliteConnectionPool pool; // Opened, and the schema created, on first use
+        private long position; // Journal sequence number last stored in journal_position
+
+        Shard(int index, String dbFilePath) {
+            this.index = index;
+            this.dbFilePath = dbFilePath;
+        }
+
+        boolean isOpen() {
+            return pool != null;
+        }
+
+        private Map<String, ItemContainer> containers(String tableName) {
+            return tableName.equals(INVENTORY_TABLE) ? inventories : floors;
+        }
+
+        ItemContainer container(String tableName, String ownerId) throws StorageException {
+            ItemContainer container = containers(tableName).get(ownerId);
+            if (container != null) {
+                return container;
+            }
+            synchronized (this) {
+                container = containers(tableName).get(ownerId);
+                if (container == null) {
+                    container = tableName.equals(INVENTORY_TABLE) ? new ConcurrentInventory(inventoryCapacity) : new ConcurrentFloor();
+                    try (PooledConnection conn = connect()) {
+                        loadItems(conn, tableName, ownerId, container);
+                    } catch (SQLException e) {
+                        throw new StorageException("Error loading " + ownerId + " from " + dbFilePath + ": " + e.getMessage(), e);
+                    }
+                    tracker(container).reset(); // Loaded rows are already stored
+                    containers(tableName).put(ownerId, container);
+                }
+                return container;
+            }
+        }
+
+        // Whether the container is still the one loaded for its owner, rather than one unloaded since
+        boolean isLoaded(String tableName, String ownerId, ItemContainer container) {
+            return containers(tableName).get(ownerId) == container;
+        }
+
+        private ChangeTracker tracker(ItemContainer container) {
+            return container instanceof Inventory inventory ? inventory.getChangeTracker() : ((Floor) container).getChangeTracker();
+        }
+
+        // Borrow a connection, opening the pool and creating the tables on first use
+        private PooledConnection connect() throws SQLException {
+            if (pool == null) {
+                SqliteConnectionPool opened = new SqliteConnectionPool(dbFilePath, CONNECTIONS_PER_SHARD);
+                try (PooledConnection conn = opened.acquire()) {
+                    for (String sql : SCHEMA) {
+                        conn.prepare(sql).executeUpdate();
+                    }
+                } catch (SQLException e) {
+                    opened.close();
+                    throw e;
+                }
+                pool = opened;
+            }
+            return pool.acquire();
+        }
+
+        private void loadItems(PooledConnection conn, String tableName, String ownerId, ItemContainer container) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("SELECT id, name, type, quantity, weight, description FROM " + tableName + " WHERE owner_id = ?");
+            pstmt.setString(1, ownerId);
+            List<Item> items = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new Item(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getDouble(5), rs.getString(6)));
+                }
+            }
+            container.addLoadedItems(items);
+        }
+
+        // Writes the changed rows of every container in this shard in one transaction
+        synchronized boolean save() {
+            return saveUnloading(null, null);
+        }
+
+        /**
+         * Drains and writes the changed rows of every container in this shard in one transaction. Moves
+         * recorded so far are journaled first, and no move can run between that and the drain, so every move
+         * this save writes is already in the journal. A container to unload is dropped from the shard in the
+         * same step, and put back if the save fails.
+         */
+
+        private synchronized boolean saveUnloading(String unloadTable, String unloadOwner) {
+            if (pool == null) {
+                return true;
+            }
+            List<Owner> drained = new ArrayList<>();
+            ItemContainer unloading = null;
+            long journaledUpTo;
+            moving.writeLock().lock();
+            try {
+                journaledUpTo = journal.writePending(this::rowAtTarget);
+                for (String tableName : new String[]{INVENTORY_TABLE, FLOOR_TABLE}) {
+                    for (Map.Entry<String, ItemContainer> owner : containers(tableName).entrySet()) {
+                        drained.add(new Owner(tableName, owner.getKey(), owner.getValue(), tracker(owner.getValue()).drain()));
+                    }
+                }
+                if (unloadTable != null) {
+                    unloading = containers(unloadTable).remove(unloadOwner);
+                }
+            } catch (SQLException e) {
+                System.out.println("Error journaling item moves before saving " + dbFilePath + ": " + e.getMessage());
+                return false;
+            } finally {
+                moving.writeLock().unlock();
+            }
+
+            try (PooledConnection conn = connect()) {
+                conn.setAutoCommit(false);
+                try {
+                    for (Owner owner : drained) {
+                        if (!owner.changes.isEmpty()) {
+                            writeChanges(conn, owner.tableName, owner.ownerId, owner.container, owner.changes);
+                        }
+                    }
+                    if (journaledUpTo > position) {
+                        PreparedStatement stmt = conn.prepare("INSERT OR REPLACE INTO journal_position (id, seq) VALUES (0, ?)");
+                        stmt.setLong(1, journaledUpTo);
+                        stmt.executeUpdate();
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                for (Owner owner : drained) {
+                    tracker(owner.container).restore(owner.changes);
+                }
+                if (unloading != null) {
+                    containers(unloadTable).put(unloadOwner, unloading); // Nothing could load it again while this shard was locked
+                }
+                System.out.println("Error saving items to " + dbFilePath + ": " + e.getMessage());
+                return false;
+            }
+            position = Math.max(position, journaledUpTo);
+            journal.saved(index, journaledUpTo);
+            return true;
+        }
+
+        // The moved item's row as it now is at the target of a move, copied under its item lock
+        private Item rowAtTarget(MoveJournal.Move move) {
+            Shard target = shards[move.targetShard];
+            ItemContainer container = target.containers(move.targetTable).get(move.targetOwner);
+            if (container == null) {
+                return null;
+            }
+            List<Item> rows = snapshotRows(container, Set.of(move.itemId));
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+
+        // Upserts and deletes one owner's changed rows by (owner_id, id)
+        private void writeChanges(PooledConnection conn, String tableName, String ownerId, ItemContainer container,
+                                  ChangeTracker.Changes changes) throws SQLException {
+            PreparedStatement upsert = conn.prepare("INSERT OR REPLACE INTO " + tableName
+                    + " (owner_id, id, name, type, quantity, weight, description) VALUES (?, ?, ?, ?, ?, ?, ?)");
+            for (Item item : snapshotRows(container, changes.getUpserts())) {
+                upsert.setString(1, ownerId);
+                upsert.setInt(2, item.getId());
+                upsert.setString(3, item.getName());
+                upsert.setString(4, item.getType());
+                upsert.setInt(5, item.getQuantity());
+                upsert.setDouble(6, item.getWeight());
+                upsert.setString(7, item.getDescription());
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+
+            PreparedStatement delete = conn.prepare("DELETE FROM " + tableName + " WHERE owner_id = ? AND id = ?");
+            for (int id : changes.getDeletes()) {
+                delete.setString(1, ownerId);
+                delete.setInt(2, id);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+        }
+
+        // Copies the items to write while holding their item locks, so a row never mixes the fields of two moves or updates
+        private List<Item> snapshotRows(ItemContainer container, Set<Integer> ids) {
+            int[] locked = ids.stream().mapToInt(Integer::intValue).toArray();
+            return transfers.withItemLocks(locked, () -> {
+                List<Item> rows = new ArrayList<>(locked.length);
+                for (int id : locked) {
+                    Item item = container.getItemById(id);
+                    if (item != null) { // Otherwise it was removed again since the drain, and that delete is tracked
+                        rows.add(Item.fromTemplate(id, item.getTemplate(), item.getQuantity(), item.getWeightUnits()));
+                    }
+                }
+                return rows;
+            });
+        }
+
+        synchronized boolean unload(String tableName, String ownerId) {
+            if (!containers(tableName).containsKey(ownerId)) {
+                return true;
+            }
+            return saveUnloading(tableName, ownerId);
+        }
+
+        // The journal sequence number this shard has saved up to, as stored in its file
+        synchronized long savedPosition() throws SQLException {
+            try (PooledConnection conn = connect();
+                 ResultSet rs = conn.prepare("SELECT seq FROM journal_position WHERE id = 0").executeQuery()) {
+                position = rs.next() ? rs.getLong(1) : 0;
+                return position;
+            }
+        }
+
+        // Puts back the row of a journaled move the target never saved, unless the target has one already
+        synchronized void restoreRow(String tableName, String ownerId, Item row) throws SQLException {
+            try (PooledConnection conn = connect()) {
+                PreparedStatement insert = conn.prepare("INSERT OR IGNORE INTO " + tableName
+                        + " (owner_id, id, name, type, quantity, weight, description) VALUES (?, ?, ?, ?, ?, ?, ?)");
+                insert.setString(1, ownerId);
+                insert.setInt(2, row.getId());
+                insert.setString(3, row.getName());
+                insert.setString(4, row.getType());
+                insert.setInt(5, row.getQuantity());
+                insert.setDouble(6, row.getWeight());
+                insert.setString(7, row.getDescription());
+                insert.executeUpdate();
+            }
+        }
+
+        // Deletes the source row of a journaled move the source never saved
+        synchronized void deleteRow(String tableName, String ownerId, int id) throws SQLException {
+            try (PooledConnection conn = connect()) {
+                PreparedStatement delete = conn.prepare("DELETE FROM " + tableName + " WHERE owner_id = ? AND id = ?");
+                delete.setString(1, ownerId);
+                delete.setInt(2, id);
+                delete.executeUpdate();
+            }
+        }
+
+        synchronized void close() {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+
+    // One container's changes as drained by a shard save
+    private static final class Owner {
+        final String tableName;
+        final String ownerId;
+        final ItemContainer container;
+        final ChangeTracker.Changes changes;
+
+        Owner(String tableName, String ownerId, ItemContainer container, ChangeTracker.Changes changes) {
+            this.tableName = tableName;
+            this.ownerId = ownerId;
+            this.container = container;
+            this.changes = changes;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package logic;
+
+import data.Item;
+import data.ItemContainer;
+import exceptions.StorageException;
+import exceptions.VersionConflictException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ItemStorage is the persistence backend under InventoryManager. The manager keeps the items in memory
+ * and tracks what changed; a storage only has to read every table back and write rows by table and ID.
+ * Tables are named after their SQLite tables, such as inventory_items and floor_items.
+ *
+ * <p>Implementations must be safe to call from several threads, since loads, saves and the write-behind
+ * writer can run at the same time.</p>
+ */
+
+public interface ItemStorage extends AutoCloseable {
+    /**
+     * Reads every stored item of each table into its container. The containers are fresh, empty copies
+     * that the manager only publishes once every table has loaded, so a failed load can leave them half filled.
+     *
+     * @param targets each table to read and the empty container to read it into
+     * @param listener told after each chunk how many rows of a table have been loaded; may be null
+     * @throws StorageException if the stored items cannot be read
+     */
+    void load(Map<String, ItemContainer> targets, LoadProgressListener listener) throws StorageException;
+
+    /**
+     * Writes one group of changed rows atomically: either every row of the group is stored or none is.
+     * A storage shared between processes checks that each row is still the version it last read or wrote,
+     * and stores nothing if one is not.
+     *
+     * @param rows table -> item ID -> the item's current values, or null if the item was deleted
+     * @throws VersionConflictException if another process changed some of the rows first
+     * @throws StorageException if the group could not be stored
+     */
+    void write(Map<String, Map<Integer, Item>> rows) throws StorageException;
+
+    /**
+     * Takes a conflicting row's stored version as the one the next write of that row is checked against,
+     * once the caller has resolved the conflict. Storages that only one process writes never report
+     * conflicts and ignore this.
+     *
+     * @param conflict a conflict reported by write
+     */
+    default void acceptStoredVersion(VersionConflictException.Conflict conflict) {
+    }
+
+    /**
+     * Reads the rows of the given tables that other processes changed since the last call. The first call
+     * only starts watching and returns nothing. Rows this storage wrote itself, or has already reported,
+     * are left out. Storages that only one process writes have nothing to report.
+     *
+     * @param tableNames the tables to watch
+     * @return the changed rows, empty if nothing changed
+     * @throws StorageException if the changes could not be read
+     */
+    default List<ExternalChange> pollChanges(Collection<String> tableNames) throws StorageException {
+        return List.of();
+    }
+
+    /**
+     * Records that memory now holds a polled row, so the next write of the item is checked against the
+     * row's version rather than the one loaded before. Changes that are not accepted, e.g. because the item
+     * has unsaved changes of its own, still turn into a conflict when the item is written.
+     *
+     * @param change the change that was applied
+     */
+    default void acceptStoredVersion(ExternalChange change) {
+    }
+
+    /**
+     * Replaces everything stored for the given tables with their items, atomically.
+     *
+     * @param tables each table and the complete set of items it should hold
+     * @throws StorageException if the tables could not be replaced
+     */
+    void replaceAll(Map<String, ? extends Collection<Item>> tables) throws StorageException;
+
+    /**
+     * Releases files and connections. A storage may open them again if it is used after closing.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,168 @@
+package logic;
+
+import data.Item;
+import data.ItemContainer;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * ItemTransfer moves items between containers so that each move is atomic with respect to every other
+ * operation on the same item ID. Instead of one global lock it keeps a fixed table of striped per-item
+ * locks: moves of different items almost never share a lock and run in parallel, while two players
+ * racing for the same floor item are serialized and only one of them gets it.
+ *
+ * <p>Every mutation of an item ID that can race with a transfer must run under {@link #withItemLock}.
+ * Operations that need several IDs take their locks in ascending stripe order, so they cannot deadlock.</p>
+ *
+ * <p>Per-item locks are only enough for thread-safe containers: a plain Inventory or Floor shares its
+ * indexes between all IDs. Moves involving one are therefore serialized, and {@link #forContainers}
+ * gives callers that mutate plain containers directly an ItemTransfer with a single lock.</p>
+ */
+
+public class ItemTransfer {
+    public enum Result {
+        MOVED,
+        NOT_FOUND,
+        REJECTED
+    }
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+    private final ReentrantLock plainContainers = new ReentrantLock(); // Held by moves touching a container that is not thread-safe
+
+    public ItemTransfer() {
+        this(Runtime.getRuntime().availableProcessors() * 64);
+    }
+
+    /**
+     * Constructs an ItemTransfer with at least the given number of lock stripes.
+     *
+     * @param minimumStripes the minimum number of per-item lock stripes
+     */
+
+    public ItemTransfer(int minimumStripes) {
+        int count = 1;
+        while (count < minimumStripes) {
+            count <<= 1;
+        }
+        this.locks = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Returns an ItemTransfer for the given containers: striped if all of them are thread-safe, otherwise
+     * one with a single stripe, so every operation under withItemLock runs one at a time.
+     *
+     * @param containers the containers whose items will be locked through it
+     * @return an ItemTransfer suited to the containers
+     */
+
+    public static ItemTransfer forContainers(ItemContainer... containers) {
+        for (ItemContainer container : containers) {
+            if (!container.isThreadSafe()) {
+                return new ItemTransfer(1);
+            }
+        }
+        return new ItemTransfer();
+    }
+
+    /**
+     * Moves the item with the given ID from one container to another.
+     * The target is asked to accept the item before it leaves the source, so a refused move leaves both
+     * containers untouched and the item is never lost in between. If the item leaves the source some other
+     * way before it is taken, the add is undone, so the item never ends up in both containers.
+     *
+     * @param source the container currently holding the item
+     * @param target the container to move the item into
+     * @param id the ID of the item to move
+     * @return MOVED on success, NOT_FOUND if the source does not hold the item, REJECTED if the target refused it
+     */
+
+    public Result transfer(ItemContainer source, ItemContainer target, int id) {
+        if (source.isThreadSafe() && target.isThreadSafe()) {
+            return withItemLock(id, () -> move(source, target, id));
+        }
+        plainContainers.lock();
+        try {
+            return withItemLock(id, () -> move(source, target, id));
+        } finally {
+            plainContainers.unlock();
+        }
+    }
+
+    private static Result move(ItemContainer source, ItemContainer target, int id) {
+        Item item = source.getItemById(id);
+        if (item == null) {
+            return Result.NOT_FOUND;
+        }
+        Item stack = target.getItemById(id);
+        int stackQuantity = stack == null ? 0 : stack.getQuantity();
+        if (!target.addItem(item)) {
+            return Result.REJECTED;
+        }
+        if (source.takeItem(id) == null) {
+            // Taken by something not holding the item lock; undo the add, restoring any stack it joined
+            Item added = target.takeItem(id);
+            if (stack != null && added != null) {
+                target.addItem(Item.fromTemplate(id, added.getTemplate(), stackQuantity, added.getWeightUnits()));
+            }
+            return Result.NOT_FOUND;
+        }
+        return Result.MOVED;
+    }
+
+    // Runs the action while holding the lock for the given item ID
+    public <T> T withItemLock(int id, Supplier<T> action) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action while holding the locks for all the given item IDs.
+     * Stripes are locked in ascending order, which gives every caller the same global lock order.
+     *
+     * @param ids the item IDs to lock
+     * @param action the action to run while the locks are held
+     * @return the action's result
+     */
+
+    public <T> T withItemLocks(int[] ids, Supplier<T> action) {
+        boolean[] needed = new boolean[locks.length];
+        for (int id : ids) {
+            needed[stripeOf(id)] = true;
+        }
+        int locked = 0;
+        try {
+            for (; locked < locks.length; locked++) {
+                if (needed[locked]) {
+                    locks[locked].lock();
+                }
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                if (needed[i]) {
+                    locks[i].unlock();
+                }
+            }
+        }
+    }
+
+    private ReentrantLock lockFor(int id) {
+        return locks[stripeOf(id)];
+    }
+
+    private int stripeOf(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,19 @@
+package logic;
+
+/**
+ * LoadProgressListener is told how far a database load has got, once per chunk of rows read.
+ * Tables are loaded in parallel, so it is called on the loader threads, possibly for several tables at once,
+ * and must be thread-safe.
+ */
+
+@FunctionalInterface
+public interface LoadProgressListener {
+    /**
+     * Reports progress through one table.
+     *
+     * @param tableName the table being loaded
+     * @param rowsLoaded rows of that table read so far
+     * @param totalRows rows in that table when the load started
+     */
+    void onProgress(String tableName, long rowsLoaded, long totalRows);
+}
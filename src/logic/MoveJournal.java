@@ -0,0 +1,215 @@
+package logic;
+
+import data.Item;
+import logic.SqliteConnectionPool.PooledConnection;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * MoveJournal makes a move of an item between two shards of an InventoryRegistry durable as one unit.
+ * The shards are separate SQLite files that commit separately, so without it a crash between their commits
+ * could leave the item stored in both files or in neither.
+ *
+ * <p>Cross-shard moves are {@link #record recorded} in memory as they happen. Before any shard drains its
+ * changes, the recorded moves are written to the journal file together with the item's row and committed,
+ * each under a new sequence number. Every shard stores the sequence number it has saved up to in its own
+ * save transaction, so after a crash the journal and the shards' positions tell which half of each move is
+ * missing: {@link #unfinished} returns the moves to replay in order, and a move is dropped from the journal
+ * once both of its shards have saved past it.</p>
+ */
+
+final class MoveJournal implements AutoCloseable {
+    private static final String SCHEMA = "CREATE TABLE IF NOT EXISTS item_moves (seq INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + "item_id INTEGER NOT NULL, source_shard INTEGER NOT NULL, source_table TEXT NOT NULL, source_owner TEXT NOT NULL, "
+            + "target_shard INTEGER NOT NULL, target_table TEXT NOT NULL, target_owner TEXT NOT NULL, "
+            + "name TEXT, type TEXT, quantity INTEGER, weight REAL, description TEXT)";
+
+    private final String dbFilePath;
+    private final List<Move> pending = new ArrayList<>();   // Recorded, not yet journaled
+    private final List<Move> journaled = new ArrayList<>(); // Journaled, not yet saved by both shards
+    private final Map<Integer, Long> savedUpTo = new HashMap<>(); // Shard -> sequence number it has saved up to
+    private SqliteConnectionPool pool; // Opened, and the schema created, on first use
+    private long lastSeq;
+
+    /**
+     * Move is one cross-shard move of an item: where it came from, where it went and, once journaled, its
+     * sequence number and the item's row at the target as it was then (null if it had already left again).
+     */
+
+    static final class Move {
+        final int itemId;
+        final int sourceShard;
+        final String sourceTable;
+        final String sourceOwner;
+        final int targetShard;
+        final String targetTable;
+        final String targetOwner;
+        long seq;
+        Item row;
+
+        Move(int itemId, int sourceShard, String sourceTable, String sourceOwner, int targetShard, String targetTable, String targetOwner) {
+            this.itemId = itemId;
+            this.sourceShard = sourceShard;
+            this.sourceTable = sourceTable;
+            this.sourceOwner = sourceOwner;
+            this.targetShard = targetShard;
+            this.targetTable = targetTable;
+            this.targetOwner = targetOwner;
+        }
+    }
+
+    MoveJournal(String dbFilePath) {
+        this.dbFilePath = dbFilePath;
+    }
+
+    synchronized void record(Move move) {
+        pending.add(move);
+    }
+
+    /**
+     * Writes the recorded moves to the journal in one transaction. The caller must keep new moves from being
+     * recorded until this returns and it has drained the shard's changes.
+     *
+     * @param rowOf reads the item's current row at the target of a move, or null if it is no longer there
+     * @return the sequence number of the last move journaled so far, which the shard saves up to
+     * @throws SQLException if the journal cannot be written; the moves stay recorded
+     */
+
+    synchronized long writePending(Function<Move, Item> rowOf) throws SQLException {
+        if (pending.isEmpty()) {
+            return lastSeq;
+        }
+        try (PooledConnection conn = connect()) {
+            conn.setAutoCommit(false);
+            long seq = lastSeq;
+            try {
+                PreparedStatement insert = conn.prepare("INSERT INTO item_moves (seq, item_id, source_shard, source_table, source_owner, "
+                        + "target_shard, target_table, target_owner, name, type, quantity, weight, description) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                for (Move move : pending) {
+                    move.seq = ++seq;
+                    move.row = rowOf.apply(move);
+                    insert.setLong(1, move.seq);
+                    insert.setInt(2, move.itemId);
+                    insert.setInt(3, move.sourceShard);
+                    insert.setString(4, move.sourceTable);
+                    insert.setString(5, move.sourceOwner);
+                    insert.setInt(6, move.targetShard);
+                    insert.setString(7, move.targetTable);
+                    insert.setString(8, move.targetOwner);
+                    insert.setString(9, move.row == null ? null : move.row.getName());
+                    insert.setString(10, move.row == null ? null : move.row.getType());
+                    insert.setInt(11, move.row == null ? 0 : move.row.getQuantity());
+                    insert.setDouble(12, move.row == null ? 0 : move.row.getWeight());
+                    insert.setString(13, move.row == null ? null : move.row.getDescription());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            lastSeq = seq;
+        }
+        journaled.addAll(pending);
+        pending.clear();
+        return lastSeq;
+    }
+
+    /**
+     * Notes that a shard has committed everything up to the given sequence number, and drops the moves
+     * that both of their shards have now saved from the journal. A failure to drop them is only reported,
+     * since a move saved on both sides is harmless to replay.
+     *
+     * @param shard the shard index
+     * @param seq the sequence number the shard saved up to
+     */
+
+    synchronized void saved(int shard, long seq) {
+        savedUpTo.merge(shard, seq, Math::max);
+        List<Move> finished = new ArrayList<>();
+        for (Iterator<Move> moves = journaled.iterator(); moves.hasNext(); ) {
+            Move move = moves.next();
+            if (savedUpTo.getOrDefault(move.sourceShard, 0L) >= move.seq && savedUpTo.getOrDefault(move.targetShard, 0L) >= move.seq) {
+                finished.add(move);
+                moves.remove();
+            }
+        }
+        if (finished.isEmpty()) {
+            return;
+        }
+        try (PooledConnection conn = connect()) {
+            PreparedStatement delete = conn.prepare("DELETE FROM item_moves WHERE seq = ?");
+            for (Move move : finished) {
+                delete.setLong(1, move.seq);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+        } catch (SQLException e) {
+            System.out.println("Error trimming the move journal " + dbFilePath + ": " + e.getMessage());
+        }
+    }
+
+    // Every move still in the journal, oldest first, as left by the last run
+    synchronized List<Move> unfinished() throws SQLException {
+        List<Move> moves = new ArrayList<>();
+        try (PooledConnection conn = connect()) {
+            PreparedStatement select = conn.prepare("SELECT seq, item_id, source_shard, source_table, source_owner, target_shard, "
+                    + "target_table, target_owner, name, type, quantity, weight, description FROM item_moves ORDER BY seq");
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    Move move = new Move(rs.getInt(2), rs.getInt(3), rs.getString(4), rs.getString(5), rs.getInt(6), rs.getString(7), rs.getString(8));
+                    move.seq = rs.getLong(1);
+                    if (rs.getString(9) != null) {
+                        move.row = new Item(move.itemId, rs.getString(9), rs.getString(10), rs.getInt(11), rs.getDouble(12), rs.getString(13));
+                    }
+                    moves.add(move);
+                }
+            }
+        }
+        return moves;
+    }
+
+    // Empties the journal once the moves it held have been finished
+    synchronized void clear() throws SQLException {
+        try (PooledConnection conn = connect()) {
+            conn.prepare("DELETE FROM item_moves").executeUpdate();
+        }
+    }
+
+    // Borrow the connection, opening the pool, creating the table and reading the last sequence number on first use
+    private PooledConnection connect() throws SQLException {
+        if (pool == null) {
+            SqliteConnectionPool opened = new SqliteConnectionPool(dbFilePath, 1);
+            try (PooledConnection conn = opened.acquire()) {
+                conn.prepare(SCHEMA).executeUpdate();
+                // AUTOINCREMENT keeps the highest number ever used here, so numbers never repeat once rows are deleted
+                try (ResultSet rs = conn.prepare("SELECT seq FROM sqlite_sequence WHERE name = 'item_moves'").executeQuery()) {
+                    lastSeq = rs.next() ? rs.getLong(1) : 0;
+                }
+            } catch (SQLException e) {
+                opened.close();
+                throw e;
+            }
+            pool = opened;
+        }
+        return pool.acquire();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package logic;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SqliteConnectionPool keeps a few long-lived connections to one SQLite database file, so a load or
+ * save borrows an open, already configured connection instead of opening the file again.
+ *
+ * <p>Each connection is set up once when it is opened: WAL journaling (readers never block the writer),
+ * NORMAL synchronous mode (one sync per commit at checkpoints rather than per write), a larger page
+ * cache and memory-mapped reads. Each connection also caches the statements prepared on it, so the
+ * fixed INSERT/UPDATE/DELETE/SELECT statements are only compiled once per connection.</p>
+ *
+ * <p>Connections are opened lazily up to the pool size; when all are in use, callers wait for one to be
+ * returned. {@link #close} closes idle connections at once and busy ones as soon as they come back.</p>
+ */
+
+class SqliteConnectionPool implements AutoCloseable {
+    static final int DEFAULT_POOL_SIZE = 4;
+
+    // Applied to every connection when it is opened
+    private static final String[] PRAGMAS = {
+            "PRAGMA journal_mode = WAL",
+            "PRAGMA synchronous = NORMAL",
+            "PRAGMA cache_size = -16000",    // Negative means KiB, so about 16 MB of page cache
+            "PRAGMA mmap_size = 268435456",  // Read pages through a 256 MB memory map
+            "PRAGMA busy_timeout = 5000"     // Wait for another connection's write lock instead of failing
+    };
+
+    private final String url;
+    private final int maxSize;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int opened; // Connections currently open or being opened, idle or borrowed
+    private boolean closed;
+
+    SqliteConnectionPool(String dbFilePath) {
+        this(dbFilePath, DEFAULT_POOL_SIZE);
+    }
+
+    SqliteConnectionPool(String dbFilePath, int maxSize) {
+        this.url = "jdbc:sqlite:" + dbFilePath;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * Borrows a connection, opening a new one if none is idle and the pool is not yet full, or waiting
+     * for one to be returned otherwise. Closing the borrowed connection returns it to the pool.
+     *
+     * @return an open, configured connection
+     * @throws SQLException if the pool is closed or a new connection cannot be opened
+     */
+
+    PooledConnection acquire() throws SQLException {
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("Connection pool for " + url + " is closed.");
+                }
+                if (!idle.isEmpty()) {
+                    PooledConnection connection = idle.pop();
+                    connection.returned = false;
+                    return connection;
+                }
+                if (opened < maxSize) {
+                    opened++; // Claim the slot now, then open the connection outside the lock
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection.", e);
+                }
+            }
+        }
+
+        try {
+            return new PooledConnection(open());
+        } catch (SQLException e) {
+            synchronized (this) {
+                opened--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement stmt = connection.createStatement()) {
+            for (String pragma : PRAGMAS) {
+                stmt.execute(pragma);
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private void release(PooledConnection connection) {
+        synchronized (this) {
+            if (connection.returned) {
+                return; // Already closed once; a second push would hand it to two borrowers
+            }
+            connection.returned = true;
+        }
+
+        boolean reusable;
+        try {
+            reusable = !connection.connection.isClosed();
+            if (reusable && !connection.connection.getAutoCommit()) {
+                connection.connection.rollback(); // Never hand on a half-finished transaction
+                connection.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        synchronized (this) {
+            if (reusable && !closed) {
+                idle.push(connection);
+            } else {
+                opened--;
+                connection.closeQuietly();
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Closes every idle connection and marks the pool closed; connections still borrowed are closed
+     * when they are returned. Further calls to acquire fail.
+     */
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (PooledConnection connection : idle) {
+            opened--;
+            connection.closeQuietly();
+        }
+        idle.clear();
+        notifyAll();
+    }
+
+    /**
+     * PooledConnection is a borrowed connection together with its cache of prepared statements.
+     * Statements returned by {@link #prepare} belong to the cache and must not be closed by the caller;
+     * closing the PooledConnection itself returns it to the pool. Closing it again does nothing.
+     */
+
+    class PooledConnection implements AutoCloseable {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private boolean returned; // Guarded by the pool; set once close() gave it back, cleared when borrowed again
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        // Returns the cached statement for this SQL, preparing it on first use, with no parameters or batch left over
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+            return statement;
+        }
+
+        void setAutoCommit(boolean autoCommit) throws SQLException {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        void commit() throws SQLException {
+            connection.commit();
+        }
+
+        void rollback() throws SQLException {
+            connection.rollback();
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        private void closeQuietly() {
+            try {
+                for (PreparedStatement statement : statements.values()) {
+                    statement.close();
+                }
+                statements.clear();
+                connection.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing database connection: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,741 @@
+package logic;
+
+import data.Item;
+import data.ItemContainer;
+import data.ItemSource;
+import exceptions.StorageException;
+import exceptions.VersionConflictException;
+import exceptions.VersionConflictException.Conflict;
+import logic.SqliteConnectionPool.PooledConnection;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * SqliteItemStorage keeps items in a SQLite database with one table per container, using the schema in
+ * create_database.sql. Connections come from a SqliteConnectionPool that is opened on first use.
+ *
+ * <p>Tables are loaded at the same time, each on its own pooled read connection and loader thread, and
+ * streamed in chunks of LOAD_FETCH_SIZE rows. Writes run in one transaction and send their rows in
+ * batches of batchSize.</p>
+ *
+ * <p>Several processes can share one database file. Every row has a version that each write bumps, and the
+ * storage remembers the version of every row it has read or written. A write only updates or deletes a row
+ * that still has that version and only inserts a row that does not exist yet, so rows changed by another
+ * process are reported as a VersionConflictException instead of being overwritten. Tables created before
+ * the version column existed get it added on first use.</p>
+ *
+ * <p>Changes made by other processes can be picked up with {@link #pollChanges}: triggers on each watched
+ * table log every changed ID to item_changes, and a poll reads the log only after PRAGMA data_version says
+ * another connection has committed. {@link #replaceAll} rewrites a table with its triggers dropped and logs
+ * a single marker instead, after which a poll compares the whole table.</p>
+ */
+
+public class SqliteItemStorage implements ItemStorage {
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    public static final int LOAD_FETCH_SIZE = 4_096; // Rows per driver fetch, and per bulk add into a container
+    private static final int CHANGE_LOG_RETENTION = 100_000; // Rows kept in item_changes for processes that poll rarely
+    private static final long TABLE_REWRITTEN = Integer.MIN_VALUE - 1L; // item_id logged by replaceAll; no item ID can match it
+    private static final String[][] LOG_TRIGGERS = {{"insert", "INSERT", "NEW"}, {"update", "UPDATE", "NEW"}, {"delete", "DELETE", "OLD"}};
+    private static final int FETCH_BY_ID_BATCH = 256; // IDs per "WHERE id IN (...)" query, well under SQLite's variable limit
+
+    private final String dbFilePath;
+    private int batchSize = DEFAULT_BATCH_SIZE; // Rows sent per executeBatch call when saving
+    private SqliteConnectionPool pool; // Opened on first use, and again if used after close
+    private final Map<String, Map<Integer, Long>> versions = new ConcurrentHashMap<>(); // Table -> ID -> version last read or written
+    private final Set<String> versionedTables = ConcurrentHashMap.newKeySet(); // Tables known to have the version column
+    private final Map<String, Map<Integer, Long>> reported = new ConcurrentHashMap<>(); // Versions polled but not accepted yet, -1 for deletes
+    private final Object watchLock = new Object(); // Guards the change polling state below
+    private SqliteConnectionPool watchPool; // One connection of its own, so PRAGMA data_version compares like with like
+    private long lastDataVersion;
+    private long lastChangeSeq = -1; // Last item_changes row seen; -1 until watching starts
+
+    /**
+     * Constructs a storage for the given database file. The file is not opened until it is first used.
+     *
+     * @param dbFilePath the file path to the SQLite database
+     */
+
+    public SqliteItemStorage(String dbFilePath) {
+        this.dbFilePath = dbFilePath;
+    }
+
+    public String getDatabaseFilePath() {
+        return dbFilePath;
+    }
+
+    /**
+     * Sets how many rows a save sends to SQLite per batch. Every save already runs in one transaction,
+     * so this only trades driver round trips against the memory held by a pending batch.
+     *
+     * @param batchSize the number of rows per batch; values below 1 are ignored
+     */
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize > 0) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    // Borrow a pooled connection to the SQLite database; closing it returns it to the pool
+    private PooledConnection connect() throws SQLException {
+        SqliteConnectionPool current;
+        synchronized (this) {
+            if (pool == null) {
+                pool = new SqliteConnectionPool(dbFilePath);
+            }
+            current = pool;
+        }
+        return current.acquire();
+    }
+
+    @Override
+    public void load(Map<String, ItemContainer> targets, LoadProgressListener listener) throws StorageException {
+        ExecutorService loaders = Executors.newFixedThreadPool(Math.max(1, targets.size()), task -> {
+            Thread thread = new Thread(task, "table-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> loading = new ArrayList<>();
+            for (Map.Entry<String, ItemContainer> target : targets.entrySet()) {
+                loading.add(loaders.submit(() -> loadTable(target.getKey(), target.getValue(), listener)));
+            }
+            for (Future<?> table : loading) {
+                table.get();
+            }
+        } catch (ExecutionException e) {
+            throw new StorageException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while loading items.", e);
+        } finally {
+            loaders.shutdownNow(); // Stops the other tables early if one failed
+        }
+    }
+
+    // Runs on a loader thread: streams one table into its container over a connection of its own
+    private Void loadTable(String tableName, ItemContainer container, LoadProgressListener listener) throws SQLException {
+        try (PooledConnection conn = connect()) {
+            ensureVersionColumn(conn, tableName);
+            loadItemsFromTable(conn, tableName, container, listener);
+        }
+        return null;
+    }
+
+    // Adds the version column to a table created before it existed; every existing row starts at version 0
+    private void ensureVersionColumn(PooledConnection conn, String tableName) throws SQLException {
+        if (versionedTables.contains(tableName)) {
+            return;
+        }
+        boolean exists = false;
+        boolean versioned = false;
+        try (ResultSet rs = conn.prepare("PRAGMA table_info(" + tableName + ")").executeQuery()) {
+            while (rs.next()) {
+                exists = true;
+                versioned |= "version".equalsIgnoreCase(rs.getString("name"));
+            }
+        }
+        if (exists && !versioned) {
+            try {
+                conn.prepare("ALTER TABLE " + tableName + " ADD COLUMN version INTEGER NOT NULL DEFAULT 0").executeUpdate();
+            } catch (SQLException e) {
+                if (e.getMessage() == null || !e.getMessage().contains("duplicate column")) {
+                    throw e; // Otherwise another process added it first
+                }
+            }
+        }
+        versionedTables.add(tableName);
+    }
+
+    private Map<Integer, Long> versionsOf(String tableName) {
+        return versions.computeIfAbsent(tableName, table -> new ConcurrentHashMap<>());
+    }
+
+    // Helper method to stream a table into its container, reading columns by position and adding items a chunk at a time
+    private void loadItemsFromTable(PooledConnection conn, String tableName, ItemContainer container, LoadProgressListener listener) throws SQLException {
+        long totalRows = countRows(conn, tableName);
+        PreparedStatement pstmt = conn.prepare("SELECT id, name, type, quantity, weight, description, version FROM " + tableName);
+        pstmt.setFetchSize(LOAD_FETCH_SIZE);
+
+        List<Item> chunk = new ArrayList<>(LOAD_FETCH_SIZE);
+        Map<Integer, Long> loadedVersions = new ConcurrentHashMap<>();
+        long rowsLoaded = 0;
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                chunk.add(new Item(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getDouble(5), rs.getString(6)));
+                loadedVersions.put(rs.getInt(1), rs.getLong(7));
+                if (chunk.size() == LOAD_FETCH_SIZE) {
+                    rowsLoaded += addChunk(container, chunk, tableName, rowsLoaded, totalRows, listener);
+                }
+            }
+        }
+        addChunk(container, chunk, tableName, rowsLoaded, totalRows, listener);
+        versions.put(tableName, loadedVersions); // The whole table was read, so rows missing from it are forgotten
+    }
+
+    // Bulk-adds one chunk of loaded rows, reports progress and empties the chunk for reuse
+    private int addChunk(ItemContainer container, List<Item> chunk, String tableName, long rowsLoaded, long totalRows, LoadProgressListener listener) {
+        int rows = chunk.size();
+        container.addLoadedItems(chunk);
+        chunk.clear();
+        if (listener != null) {
+            listener.onProgress(tableName, rowsLoaded + rows, totalRows);
+        }
+        return rows;
+    }
+
+    // Row count up front, so progress can be reported as a fraction
+    private long countRows(PooledConnection conn, String tableName) throws SQLException {
+        try (ResultSet rs = conn.prepare("SELECT COUNT(*) FROM " + tableName).executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Compare-and-set updates, inserts and deletes by primary key in a single transaction; null rows are deletes
+    @Override
+    public void write(Map<String, Map<Integer, Item>> rows) throws StorageException {
+        Map<String, Map<Integer, Long>> newVersions = new LinkedHashMap<>(); // -1 for deleted rows
+        try (PooledConnection conn = connect()) {
+            for (String tableName : rows.keySet()) {
+                ensureVersionColumn(conn, tableName); // Schema changes stay out of the write transaction
+            }
+            conn.setAutoCommit(false);
+            try {
+                List<Conflict> conflicts = new ArrayList<>();
+                for (Map.Entry<String, Map<Integer, Item>> table : rows.entrySet()) {
+                    Map<Integer, Long> written = new LinkedHashMap<>();
+                    writeTable(conn, table.getKey(), table.getValue(), written, conflicts);
+                    newVersions.put(table.getKey(), written);
+                }
+                if (!conflicts.isEmpty()) {
+                    conn.rollback();
+                    throw new VersionConflictException(conflicts);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+
+        for (Map.Entry<String, Map<Integer, Long>> table : newVersions.entrySet()) {
+            Map<Integer, Long> known = versionsOf(table.getKey());
+            for (Map.Entry<Integer, Long> row : table.getValue().entrySet()) {
+                if (row.getValue() < 0) {
+                    known.remove(row.getKey());
+                } else {
+                    known.put(row.getKey(), row.getValue());
+                }
+            }
+        }
+    }
+
+    // Queues one table's rows; rows another process changed first are added to conflicts instead of written
+    private void writeTable(PooledConnection conn, String tableName, Map<Integer, Item> rows, Map<Integer, Long> written,
+                            List<Conflict> conflicts) throws SQLException {
+        Map<Integer, Long> known = versionsOf(tableName);
+        CheckedBatch updates = new CheckedBatch(conn.prepare("UPDATE " + tableName
+                + " SET name = ?, type = ?, quantity = ?, weight = ?, description = ?, version = version + 1 WHERE id = ? AND version = ?"));
+        CheckedBatch inserts = new CheckedBatch(conn.prepare("INSERT OR IGNORE INTO " + tableName
+                + " (id, name, type, quantity, weight, description, version) VALUES (?, ?, ?, ?, ?, ?, 0)"));
+        CheckedBatch deletes = new CheckedBatch(conn.prepare("DELETE FROM " + tableName + " WHERE id = ? AND version = ?"));
+        for (Map.Entry<Integer, Item> row : rows.entrySet()) {
+            int id = row.getKey();
+            Item item = row.getValue();
+            Long version = known.get(id);
+            if (item != null && version != null) {
+                PreparedStatement update = updates.statement;
+                update.setString(1, item.getName());
+                update.setString(2, item.getType());
+                update.setInt(3, item.getQuantity());
+                update.setDouble(4, item.getWeight());
+                update.setString(5, item.getDescription());
+                update.setInt(6, id);
+                update.setLong(7, version);
+                updates.add(id);
+                written.put(id, version + 1);
+            } else if (item != null) {
+                bindItem(inserts.statement, item); // Never seen here, so it must not exist yet
+                inserts.add(id);
+                written.put(id, 0L);
+            } else if (version != null) {
+                deletes.statement.setInt(1, id);
+                deletes.statement.setLong(2, version);
+                deletes.add(id);
+                written.put(id, -1L);
+            }
+            // A delete of a row this storage never saw has nothing to check against and nothing to delete
+        }
+
+        List<Integer> missed = new ArrayList<>();
+        missed.addAll(updates.finish());
+        missed.addAll(inserts.finish());
+        List<Integer> missedDeletes = deletes.finish();
+        missed.addAll(missedDeletes);
+        for (int id : missed) {
+            Conflict conflict = readConflict(conn, tableName, id, rows.get(id));
+            if (conflict.getStored() != null || !missedDeletes.contains(id)) {
+                conflicts.add(conflict); // A delete of a row another process already deleted is not a conflict
+            }
+        }
+    }
+
+    private Conflict readConflict(PooledConnection conn, String tableName, int id, Item local) throws SQLException {
+        PreparedStatement pstmt = conn.prepare("SELECT id, name, type, quantity, weight, description, version FROM " + tableName + " WHERE id = ?");
+        pstmt.setInt(1, id);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                return new Conflict(tableName, id, local, null, -1);
+            }
+            Item stored = new Item(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getDouble(5), rs.getString(6));
+            return new Conflict(tableName, id, local, stored, rs.getLong(7));
+        }
+    }
+
+    @Override
+    public void acceptStoredVersion(Conflict conflict) {
+        Map<Integer, Long> known = versionsOf(conflict.getTableName());
+        if (conflict.getStoredVersion() < 0) {
+            known.remove(conflict.getId()); // Deleted, so writing it again is an insert
+        } else {
+            known.put(conflict.getId(), conflict.getStoredVersion());
+        }
+    }
+
+    /**
+     * CheckedBatch is one statement's queued rows together with their IDs, sent batchSize rows at a time,
+     * so the rows that changed nothing in the table can be told apart.
+     */
+
+    private class CheckedBatch {
+        private final PreparedStatement statement;
+        private final List<Integer> ids = new ArrayList<>();
+        private final List<Integer> missed = new ArrayList<>();
+
+        CheckedBatch(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        // Queues the bound row for the given ID
+        void add(int id) throws SQLException {
+            statement.addBatch();
+            ids.add(id);
+            if (ids.size() == batchSize) {
+                send();
+            }
+        }
+
+        // Sends the last, partly filled batch and returns the IDs of every row that changed nothing
+        List<Integer> finish() throws SQLException {
+            send();
+            return missed;
+        }
+
+        private void send() throws SQLException {
+            if (ids.isEmpty()) {
+                return;
+            }
+            int[] counts = statement.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    missed.add(ids.get(i));
+                }
+            }
+            ids.clear();
+        }
+    }
+
+    /**
+     * Rewrites the tables from scratch in one transaction, deliberately overwriting whatever other processes
+     * wrote. Every row gets a version above any the table held before, so the versions other processes
+     * remember are all out of date and their next writes report conflicts instead of undoing this one.
+     */
+
+    @Override
+    public void replaceAll(Map<String, ? extends Collection<Item>> tables) throws StorageException {
+        Map<String, Long> tableVersions = new LinkedHashMap<>();
+        try (PooledConnection conn = connect()) {
+            for (String tableName : tables.keySet()) {
+                ensureVersionColumn(conn, tableName);
+            }
+            conn.setAutoCommit(false);
+            try {
+                Set<String> logged = new HashSet<>();
+                for (String tableName : tables.keySet()) {
+                    tableVersions.put(tableName, nextTableVersion(conn, tableName));
+                    if (dropChangeLogTriggers(conn, tableName)) {
+                        logged.add(tableName);
+                    }
+                    clearTable(conn, tableName);
+                }
+                for (Map.Entry<String, ? extends Collection<Item>> table : tables.entrySet()) {
+                    saveItemsToTable(conn, table.getKey(), table.getValue(), tableVersions.get(table.getKey()));
+                }
+                // The triggers come back in the same transaction, so no other write can go unlogged
+                for (String tableName : logged) {
+                    installChangeLog(conn, tableName);
+                    PreparedStatement marker = conn.prepare("INSERT INTO item_changes (table_name, item_id) VALUES (?, ?)");
+                    marker.setString(1, tableName);
+                    marker.setLong(2, TABLE_REWRITTEN);
+                    marker.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+
+        for (Map.Entry<String, ? extends Collection<Item>> table : tables.entrySet()) {
+            Map<Integer, Long> known = new ConcurrentHashMap<>();
+            for (Item item : table.getValue()) {
+                known.put(item.getId(), tableVersions.get(table.getKey()));
+            }
+            versions.put(table.getKey(), known);
+        }
+    }
+
+    private long nextTableVersion(PooledConnection conn, String tableName) throws SQLException {
+        try (ResultSet rs = conn.prepare("SELECT COALESCE(MAX(version), -1) + 1 FROM " + tableName).executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Helper method to clear a table
+    private void clearTable(PooledConnection conn, String tableName) throws SQLException {
+        String sql = "DELETE FROM " + tableName;
+        conn.prepare(sql).executeUpdate();
+    }
+
+    // Helper method to save items to a specific table, sending the inserts in batches of batchSize rows
+    private void saveItemsToTable(PooledConnection conn, String tableName, Collection<Item> items, long version) throws SQLException {
+        String sql = "INSERT INTO " + tableName + " (id, name, type, quantity, weight, description, version) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        PreparedStatement pstmt = conn.prepare(sql);
+        int pending = 0;
+        for (Item item : items) {
+            bindItem(pstmt, item);
+            pstmt.setLong(7, version);
+            addToBatch(pstmt, ++pending);
+        }
+        pstmt.executeBatch(); // The last, partly filled batch
+    }
+
+    // Queues the bound row and sends the batch once it holds batchSize rows
+    private void addToBatch(PreparedStatement pstmt, int rowNumber) throws SQLException {
+        pstmt.addBatch();
+        if (rowNumber % batchSize == 0) {
+            pstmt.executeBatch();
+        }
+    }
+
+    // Binds an item to the (id, name, type, quantity, weight, description) parameters of a statement
+    private void bindItem(PreparedStatement pstmt, Item item) throws SQLException {
+        pstmt.setInt(1, item.getId());
+        pstmt.setString(2, item.getName());
+        pstmt.setString(3, item.getType());
+        pstmt.setInt(4, item.getQuantity());
+        pstmt.setDouble(5, item.getWeight());
+        pstmt.setString(6, item.getDescription());
+    }
+
+    @Override
+    public List<ExternalChange> pollChanges(Collection<String> tableNames) throws StorageException {
+        synchronized (watchLock) {
+            if (watchPool == null) {
+                watchPool = new SqliteConnectionPool(dbFilePath, 1);
+            }
+            try (PooledConnection conn = watchPool.acquire()) {
+                if (lastChangeSeq < 0) {
+                    for (String tableName : tableNames) {
+                        ensureVersionColumn(conn, tableName);
+                        installChangeLog(conn, tableName);
+                    }
+                    lastDataVersion = queryLong(conn, "PRAGMA data_version");
+                    lastChangeSeq = queryLong(conn, "SELECT COALESCE(MAX(seq), 0) FROM item_changes");
+                    return List.of(); // Watching starts now; what is already stored has been loaded
+                }
+
+                long dataVersion = queryLong(conn, "PRAGMA data_version");
+                if (dataVersion == lastDataVersion) {
+                    return List.of(); // No other connection has committed since the last poll
+                }
+                lastDataVersion = dataVersion;
+
+                long oldestSeq = queryLong(conn, "SELECT COALESCE(MIN(seq), 0) FROM item_changes");
+                List<ExternalChange> changes = oldestSeq > lastChangeSeq + 1
+                        ? diffTables(conn, tableNames) // Log entries we never read were pruned
+                        : readChangeLog(conn, tableNames);
+                long newestSeq = queryLong(conn, "SELECT COALESCE(MAX(seq), 0) FROM item_changes");
+                lastChangeSeq = Math.max(lastChangeSeq, newestSeq);
+                if (newestSeq > CHANGE_LOG_RETENTION) {
+                    PreparedStatement prune = conn.prepare("DELETE FROM item_changes WHERE seq <= ?");
+                    prune.setLong(1, newestSeq - CHANGE_LOG_RETENTION);
+                    prune.executeUpdate();
+                }
+                return changes;
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+    }
+
+    // Creates the change log and the triggers that fill it for one table, unless another process already has
+    private void installChangeLog(PooledConnection conn, String tableName) throws SQLException {
+        conn.prepare("CREATE TABLE IF NOT EXISTS item_changes (seq INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "table_name TEXT NOT NULL, item_id INTEGER NOT NULL)").executeUpdate();
+        for (String[] trigger : LOG_TRIGGERS) {
+            conn.prepare("CREATE TRIGGER IF NOT EXISTS " + tableName + "_" + trigger[0] + "_logged AFTER " + trigger[1] + " ON " + tableName
+                    + " BEGIN INSERT INTO item_changes (table_name, item_id) VALUES ('" + tableName + "', " + trigger[2] + ".id); END").executeUpdate();
+        }
+    }
+
+    // Drops a table's change log triggers, if some process installed them; returns whether they were there.
+    // Without them a bulk rewrite logs nothing per row, and "DELETE FROM" can empty the table in one step again.
+    private boolean dropChangeLogTriggers(PooledConnection conn, String tableName) throws SQLException {
+        PreparedStatement find = conn.prepare("SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' AND name IN (?, ?, ?)");
+        for (int i = 0; i < LOG_TRIGGERS.length; i++) {
+            find.setString(i + 1, tableName + "_" + LOG_TRIGGERS[i][0] + "_logged");
+        }
+        boolean installed;
+        try (ResultSet rs = find.executeQuery()) {
+            installed = rs.next() && rs.getInt(1) > 0;
+        }
+        if (installed) {
+            for (String[] trigger : LOG_TRIGGERS) {
+                conn.prepare("DROP TRIGGER IF EXISTS " + tableName + "_" + trigger[0] + "_logged").executeUpdate();
+            }
+        }
+        return installed;
+    }
+
+    // The rows logged since the last poll, skipping those whose version is already known or reported
+    private List<ExternalChange> readChangeLog(PooledConnection conn, Collection<String> tableNames) throws SQLException {
+        Map<String, Set<Integer>> changedIds = new LinkedHashMap<>();
+        Set<String> rewritten = new LinkedHashSet<>(); // Tables replaceAll rewrote, which only log a marker
+        PreparedStatement log = conn.prepare("SELECT table_name, item_id FROM item_changes WHERE seq > ? ORDER BY seq");
+        log.setLong(1, lastChangeSeq);
+        try (ResultSet rs = log.executeQuery()) {
+            while (rs.next()) {
+                String tableName = rs.getString(1);
+                if (!tableNames.contains(tableName)) {
+                    continue;
+                }
+                long id = rs.getLong(2);
+                if (id == TABLE_REWRITTEN) {
+                    rewritten.add(tableName);
+                } else {
+                    changedIds.computeIfAbsent(tableName, table -> new LinkedHashSet<>()).add((int) id);
+                }
+            }
+        }
+
+        List<ExternalChange> changes = diffTables(conn, rewritten);
+        changedIds.keySet().removeAll(rewritten);
+        for (Map.Entry<String, Set<Integer>> table : changedIds.entrySet()) {
+            PreparedStatement select = conn.prepare("SELECT id, name, type, quantity, weight, description, version FROM " + table.getKey() + " WHERE id = ?");
+            for (int id : table.getValue()) {
+                select.setInt(1, id);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) {
+                        noteStoredRow(changes, table.getKey(), rs);
+                    } else {
+                        noteDeletedRow(changes, table.getKey(), id);
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+    // Compares whole tables with the versions this storage knows, for when the log no longer reaches back far enough
+    private List<ExternalChange> diffTables(PooledConnection conn, Collection<String> tableNames) throws SQLException {
+        List<ExternalChange> changes = new ArrayList<>();
+        for (String tableName : tableNames) {
+            Set<Integer> missing = new HashSet<>(versionsOf(tableName).keySet());
+            try (ResultSet rs = conn.prepare("SELECT id, name, type, quantity, weight, description, version FROM " + tableName).executeQuery()) {
+                while (rs.next()) {
+                    missing.remove(rs.getInt(1));
+                    noteStoredRow(changes, tableName, rs);
+                }
+            }
+            for (int id : missing) {
+                noteDeletedRow(changes, tableName, id);
+            }
+        }
+        return changes;
+    }
+
+    private void noteStoredRow(List<ExternalChange> changes, String tableName, ResultSet rs) throws SQLException {
+        int id = rs.getInt(1);
+        long version = rs.getLong(7);
+        Long known = versionsOf(tableName).get(id);
+        Map<Integer, Long> tableReported = reported.computeIfAbsent(tableName, table -> new ConcurrentHashMap<>());
+        if ((known == null || known != version) && !Long.valueOf(version).equals(tableReported.put(id, version))) {
+            changes.add(new ExternalChange(tableName, id, new Item(id, rs.getString(2), rs.getString(3), rs.getInt(4), rs.getDouble(5), rs.getString(6)), version));
+        }
+    }
+
+    // A delete only matters if this process has seen the row
+    private void noteDeletedRow(List<ExternalChange> changes, String tableName, int id) {
+        Map<Integer, Long> tableReported = reported.computeIfAbsent(tableName, table -> new ConcurrentHashMap<>());
+        if (versionsOf(tableName).containsKey(id) && !Long.valueOf(-1).equals(tableReported.put(id, -1L))) {
+            changes.add(new ExternalChange(tableName, id, null, -1));
+        }
+    }
+
+    @Override
+    public void acceptStoredVersion(ExternalChange change) {
+        Map<Integer, Long> known = versionsOf(change.getTableName());
+        if (change.getStoredVersion() < 0) {
+            known.remove(change.getId());
+        } else {
+            known.put(change.getId(), change.getStoredVersion());
+        }
+        Map<Integer, Long> tableReported = reported.get(change.getTableName());
+        if (tableReported != null) {
+            tableReported.remove(change.getId(), change.getStoredVersion());
+        }
+    }
+
+    private long queryLong(PooledConnection conn, String sql) throws SQLException {
+        try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Returns a reader of single rows of one table by primary key, for containers such as CachedFloor that
+     * do not load the table in full. It borrows connections from this storage's pool.
+     *
+     * @param tableName the table to read, such as floor_items
+     * @return a source of the table's rows
+     */
+
+    public ItemSource itemSource(String tableName) {
+        return new TableSource(tableName);
+    }
+
+    private class TableSource implements ItemSource {
+        private final String tableName;
+        private final String select;
+        private final String selectBatch;
+        private final String selectRange;
+
+        TableSource(String tableName) {
+            this.tableName = tableName;
+            String columns = "SELECT id, name, type, quantity, weight, description, version FROM " + tableName;
+            this.select = columns + " WHERE id = ?";
+            this.selectBatch = columns + " WHERE id IN (" + String.join(", ", Collections.nCopies(FETCH_BY_ID_BATCH, "?")) + ")";
+            this.selectRange = columns + " WHERE id >= ? ORDER BY id LIMIT ?";
+        }
+
+        @Override
+        public Item fetch(int id) throws StorageException {
+            try (PooledConnection conn = connectToTable()) {
+                PreparedStatement pstmt = conn.prepare(select);
+                pstmt.setInt(1, id);
+                List<Item> rows = readItems(pstmt);
+                return rows.isEmpty() ? null : rows.get(0);
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+
+        // Always binds a full batch, repeating the last ID, so one prepared statement serves every call
+        @Override
+        public List<Item> fetchAll(Collection<Integer> ids) throws StorageException {
+            int[] all = ids.stream().mapToInt(Integer::intValue).toArray();
+            List<Item> found = new ArrayList<>();
+            try (PooledConnection conn = connectToTable()) {
+                PreparedStatement pstmt = conn.prepare(selectBatch);
+                for (int start = 0; start < all.length; start += FETCH_BY_ID_BATCH) {
+                    int[] batch = Arrays.copyOfRange(all, start, Math.min(all.length, start + FETCH_BY_ID_BATCH));
+                    for (int i = 0; i < FETCH_BY_ID_BATCH; i++) {
+                        pstmt.setInt(i + 1, batch[Math.min(i, batch.length - 1)]);
+                    }
+                    found.addAll(readItems(pstmt));
+                }
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+            return found;
+        }
+
+        @Override
+        public List<Item> fetchRange(int fromId, int limit) throws StorageException {
+            try (PooledConnection conn = connectToTable()) {
+                PreparedStatement pstmt = conn.prepare(selectRange);
+                pstmt.setInt(1, fromId);
+                pstmt.setInt(2, limit);
+                return readItems(pstmt);
+            } catch (SQLException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+
+        private PooledConnection connectToTable() throws SQLException {
+            PooledConnection conn = connect();
+            try {
+                ensureVersionColumn(conn, tableName);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            return conn;
+        }
+
+        // Remembers each row's version, so a later write of a fetched row is checked like a loaded one
+        private List<Item> readItems(PreparedStatement pstmt) throws SQLException {
+            List<Item> items = new ArrayList<>();
+            Map<Integer, Long> known = versionsOf(tableName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new Item(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getDouble(5), rs.getString(6)));
+                    known.put(rs.getInt(1), rs.getLong(7));
+                }
+            }
+            return items;
+        }
+    }
+
+    /**
+     * Closes the pooled database connections; a fresh pool is opened if the storage is used again.
+     */
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+        synchronized (watchLock) {
+            if (watchPool != null) {
+                watchPool.close();
+                watchPool = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package logic;
+
+import data.Item;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * WriteBehindWriter takes database writes off the calling thread. Callers enqueue row snapshots and
+ * return at once; a background thread collects them and writes them in group commits, one transaction
+ * per group, once enough rows are pending or the oldest pending row has waited long enough.
+ *
+ * <p>Rows are coalesced by table and item ID while they wait, so an item changed a hundred times between
+ * two commits is written once, with its latest values. A row enqueued as null stands for a delete.</p>
+ *
+ * <p>{@link #flush} is a durability barrier: it returns once everything enqueued before the call has been
+ * committed. If a group fails to commit, its rows are put back under any newer rows for the same items and
+ * retried; if the writer thread dies in the middle of a group, the rows are put back the same way and the
+ * next call to enqueue or flush starts a new writer thread.</p>
+ */
+
+public class WriteBehindWriter implements AutoCloseable {
+    /**
+     * Flusher writes one group of rows atomically, typically in a single database transaction.
+     * It must either commit every row of the group or none of them. The map it gets is its own copy:
+     * it may change it, e.g. to drop rows it settled, and if the write fails that copy is what gets retried.
+     */
+
+    public interface Flusher {
+        void write(Map<String, Map<Integer, Item>> rows) throws Exception;
+    }
+
+    private final Flusher flusher;
+    private final int maxPendingRows;
+    private final long maxDelayMillis;
+
+    private Map<String, Map<Integer, Item>> pending = new LinkedHashMap<>(); // Table -> ID -> row, null for a delete
+    private Map<String, Map<Integer, Item>> writing = Map.of(); // The group being committed right now
+    private int pendingRows;
+    private long oldestPendingNanos;
+    private long requestedFlushes;  // Barriers asked for so far
+    private long completedFlushes;  // Barriers covered by a successful commit
+    private long failedFlushes;     // Barriers covered by a failed commit attempt
+    private boolean closed;
+    private Thread thread;
+
+    /**
+     * Constructs a writer and starts its background thread.
+     *
+     * @param flusher writes each group of rows
+     * @param maxPendingRows commit as soon as this many distinct rows are pending
+     * @param maxDelayMillis commit once the oldest pending row has waited this long
+     */
+
+    public WriteBehindWriter(Flusher flusher, int maxPendingRows, long maxDelayMillis) {
+        this.flusher = flusher;
+        this.maxPendingRows = Math.max(1, maxPendingRows);
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+        synchronized (this) {
+            ensureRunning();
+        }
+    }
+
+    /**
+     * Queues the current values of an item's row, replacing any pending row for the same item.
+     *
+     * @param table the table the row belongs to
+     * @param id the item ID (primary key)
+     * @param row a snapshot of the item to write, or null to delete the row
+     */
+
+    public synchronized void enqueue(String table, int id, Item row) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind writer is closed.");
+        }
+        Map<Integer, Item> rows = pending.computeIfAbsent(table, t -> new LinkedHashMap<>());
+        boolean added = !rows.containsKey(id);
+        rows.put(id, row);
+        if (added && pendingRows++ == 0) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        ensureRunning();
+        if (pendingRows >= maxPendingRows) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until every row enqueued before this call has been committed.
+     *
+     * @return true once they are committed, false if the commit attempt covering them failed
+     */
+
+    public synchronized boolean flush() {
+        long barrier = ++requestedFlushes;
+        ensureRunning();
+        notifyAll();
+        while (completedFlushes < barrier && failedFlushes < barrier) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return completedFlushes >= barrier;
+    }
+
+    /**
+     * Tells whether a row for the item is waiting to be committed or is being committed right now.
+     *
+     * @param table the table the row belongs to
+     * @param id the item ID
+     * @return true if a write of the row has not finished yet
+     */
+
+    public synchronized boolean isQueued(String table, int id) {
+        return pending.getOrDefault(table, Map.of()).containsKey(id) || writing.getOrDefault(table, Map.of()).containsKey(id);
+    }
+
+    /**
+     * Tells whether a row for the item is waiting for a later group, not counting the group being committed.
+     *
+     * @param table the table the row belongs to
+     * @param id the item ID
+     * @return true if a newer row than the one being committed, if any, is still to be written
+     */
+
+    public synchronized boolean isWaiting(String table, int id) {
+        return pending.getOrDefault(table, Map.of()).containsKey(id);
+    }
+
+    public synchronized int pendingRows() {
+        return pendingRows;
+    }
+
+    /**
+     * Commits everything still pending and stops the background thread. Rows that cannot be committed
+     * at this point are reported and dropped.
+     */
+
+    @Override
+    public void close() {
+        if (!flush()) {
+            System.out.println("Closing write-behind writer with " + pendingRows() + " rows not written.");
+        }
+        Thread stopping;
+        synchronized (this) {
+            closed = true;
+            stopping = thread;
+            notifyAll();
+        }
+        if (stopping != null) {
+            try {
+                stopping.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Starts a writer thread if there is none, e.g. after the previous one died mid-flush
+    private void ensureRunning() {
+        if (!closed && (thread == null || !thread.isAlive())) {
+            thread = new Thread(this::run, "write-behind-writer");
+            thread.setDaemon(true);
+            thread.setUncaughtExceptionHandler((t, e) -> System.out.println("Write-behind writer stopped: " + e));
+            thread.start();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Map<String, Map<Integer, Item>> group;
+            long barrier;
+            synchronized (this) {
+                if (!awaitGroup()) {
+                    return;
+                }
+                group = pending;
+                writing = group;
+                barrier = requestedFlushes; // Every barrier asked for so far is covered by this group
+                pending = new LinkedHashMap<>();
+                pendingRows = 0;
+            }
+
+            // The flusher changes its own copy; writing is read by isQueued from other threads
+            Map<String, Map<Integer, Item>> attempt = copyOf(group);
+            boolean committed = false;
+            Error fatal = null;
+            try {
+                if (!attempt.isEmpty()) {
+                    flusher.write(attempt);
+                }
+                committed = true;
+            } catch (Exception e) {
+                System.out.println("Error writing changes to database: " + e.getMessage());
+            } catch (Error e) {
+                fatal = e; // The thread is going down; settle its group first
+            }
+
+            synchronized (this) {
+                writing = Map.of();
+                if (committed) {
+                    completedFlushes = Math.max(completedFlushes, barrier);
+                } else {
+                    restore(attempt);
+                    failedFlushes = Math.max(failedFlushes, barrier);
+                }
+                if (fatal != null && thread == Thread.currentThread()) {
+                    thread = null; // The next enqueue or flush starts a new writer for the restored rows
+                }
+                notifyAll();
+            }
+            if (fatal != null) {
+                throw fatal;
+            }
+            if (!committed) {
+                synchronized (this) {
+                    if (closed) {
+                        return; // Do not keep retrying a failing database after close
+                    }
+                }
+                pause(); // Give a failing database a moment before retrying
+            }
+        }
+    }
+
+    // Waits until a group is due; returns false once the writer is closed and has nothing left to do
+    private boolean awaitGroup() {
+        while (true) {
+            boolean barrierWaiting = requestedFlushes > Math.max(completedFlushes, failedFlushes);
+            if (barrierWaiting || pendingRows >= maxPendingRows) {
+                return true;
+            }
+            if (closed) {
+                return pendingRows > 0; // Rows enqueued while closing still get one last group
+            }
+            try {
+                if (pendingRows == 0) {
+                    wait();
+                } else {
+                    long waitedMillis = (System.nanoTime() - oldestPendingNanos) / 1_000_000;
+                    if (waitedMillis >= maxDelayMillis) {
+                        return true;
+                    }
+                    wait(maxDelayMillis - waitedMillis);
+                }
+            } catch (InterruptedException e) {
+                return true; // Write what we have before going away
+            }
+        }
+    }
+
+    private static Map<String, Map<Integer, Item>> copyOf(Map<String, Map<Integer, Item>> group) {
+        Map<String, Map<Integer, Item>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Integer, Item>> table : group.entrySet()) {
+            copy.put(table.getKey(), new LinkedHashMap<>(table.getValue()));
+        }
+        return copy;
+    }
+
+    // Puts a failed group back, keeping any newer row enqueued for the same item since it was taken
+    private void restore(Map<String, Map<Integer, Item>> group) {
+        for (Map.Entry<String, Map<Integer, Item>> table : group.entrySet()) {
+            Map<Integer, Item> rows = pending.computeIfAbsent(table.getKey(), t -> new LinkedHashMap<>());
+            for (Map.Entry<Integer, Item> row : table.getValue().entrySet()) {
+                if (!rows.containsKey(row.getKey())) {
+                    rows.put(row.getKey(), row.getValue());
+                    if (pendingRows++ == 0) {
+                        oldestPendingNanos = System.nanoTime();
+                    }
+                }
+            }
+        }
+    }
+
+    private void pause() {
+        synchronized (this) {
+            if (requestedFlushes > Math.max(completedFlushes, failedFlushes)) {
+                return; // A flush asked since the failure already notified; waiting now would miss it
+            }
+            try {
+                wait(Math.max(maxDelayMillis, 10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package test;
+
+import data.CachedFloor;
+import data.ChangeTracker;
+import data.Item;
+import data.ItemSource;
+import data.SortKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test.TestItems.item;
+import static test.TestItems.ids;
+
+class CachedFloorTest {
+
+    private static final long ITEM_BYTES = CachedFloor.estimateBytes(item(0, 1));
+
+    private TableSource table;
+
+    @BeforeEach
+    void setUp() {
+        table = new TableSource();
+        for (int id = 0; id < 1_000; id++) {
+            table.rows.put(id, item(id, 1));
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedItemsAreEvictedToStayWithinBudget() {
+        long budget = 10 * ITEM_BYTES + 16; // Room for ten items, with slack for the longer names from "Item 10" on
+        CachedFloor floor = new CachedFloor(table, budget);
+        for (int id = 0; id < 10; id++) {
+            assertNotNull(floor.getItemById(id));
+        }
+        floor.getItemById(0); // Now 1 is the least recently used
+        floor.getItemById(10);
+
+        CachedFloor.Stats stats = floor.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(11, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(10, stats.getResidentItems());
+        assertTrue(stats.getResidentBytes() <= budget);
+
+        floor.getItemById(0);
+        assertEquals(2, floor.getStats().getHits(), "The recently used item should have been kept.");
+        floor.getItemById(1);
+        assertEquals(12, floor.getStats().getMisses(), "The least recently used item should have been evicted.");
+        assertNull(floor.getItemById(5_000));
+    }
+
+    @Test
+    void changedItemsStayPinnedUntilTheirRowsAreSaved() {
+        CachedFloor floor = new CachedFloor(table, 4 * ITEM_BYTES);
+        assertNotNull(floor.takeItem(5));
+        floor.addItem(item(7, 2));     // Stacked onto the stored item 7
+        floor.addItem(item(2_000, 1)); // Not in the table yet
+        for (int id = 100; id < 200; id++) {
+            floor.getItemById(id);
+        }
+
+        assertNull(floor.getItemById(5), "A taken item must not be fetched back before its delete is saved.");
+        assertEquals(3, floor.getItemById(7).getQuantity(), "Stacking must start from the stored quantity and survive eviction.");
+        assertNotNull(floor.getItemById(2_000));
+
+        table.write(floor, floor.getChangeTracker().drain());
+        for (int id = 100; id < 200; id++) {
+            floor.getItemById(id);
+        }
+        assertTrue(floor.getStats().getResidentItems() <= 4, "Saved items can be evicted again.");
+        assertEquals(3, floor.getItemById(7).getQuantity(), "The saved row should be read back.");
+        assertNull(floor.getItemById(5));
+    }
+
+    @Test
+    void scanReadsARangeInOneQueryAndShowsUnsavedChanges() {
+        CachedFloor floor = new CachedFloor(table, 1_000 * ITEM_BYTES);
+        floor.takeItem(12);
+        floor.addItem(item(1_500, 1));
+        int queries = table.queries;
+
+        List<Item> page = floor.scan(10, 5);
+        assertEquals(queries + 1, table.queries, "The whole page should come from one range query.");
+        assertEquals(List.of(10, 11, 13, 14), ids(page), "The taken item should be left out of the page.");
+        floor.getItemById(13);
+        assertEquals(queries + 1, table.queries, "Scanned items should already be in memory.");
+
+        assertEquals(List.of(998, 999, 1_500), ids(floor.scan(998, 5)), "New items past the end of the table should show up.");
+        assertEquals(2, floor.getItemsByIds(List.of(20, 21, 5_000)).size());
+        assertEquals(queries + 3, table.queries, "Missing IDs should be read with one batched query.");
+    }
+
+    @Test
+    void sortedViewFollowsTheResidentItems() {
+        CachedFloor floor = new CachedFloor(table, 50 * ITEM_BYTES);
+        floor.getItemById(20);
+        List<Item> byId = floor.getItemsSortedBy(SortKey.ID);
+        assertEquals(1, byId.size());
+
+        floor.getItemById(10);
+        assertEquals(2, byId.size(), "The view should see an item fetched after it was taken.");
+        assertEquals(10, byId.get(0).getId());
+        assertEquals(List.of(10, 20), ids(byId));
+    }
+
+    @Test
+    void wholeFloorReadsAreSnapshotsWhileAnotherThreadEvicts() throws Exception {
+        CachedFloor floor = new CachedFloor(table, 50 * ITEM_BYTES);
+        AtomicBoolean running = new AtomicBoolean(true);
+        // Stands in for the write-behind writer, whose rowsSaved evicts on its own thread
+        Thread evictor = new Thread(() -> {
+            Random random = new Random(1);
+            while (running.get()) {
+                floor.getItemById(random.nextInt(1_000));
+            }
+        });
+        evictor.start();
+        try {
+            for (int round = 0; round < 2_000; round++) {
+                List<Item> items = floor.getItems();
+                int count = 0;
+                for (Item item : items) {
+                    assertNotNull(item);
+                    count++;
+                }
+                assertEquals(items.size(), count, "A snapshot should not change while it is read.");
+                for (Item item : floor.getItemsSortedBy(SortKey.NAME)) {
+                    assertNotNull(item);
+                }
+                assertTrue(floor.size() <= 51, "The floor should stay within its budget.");
+            }
+        } finally {
+            running.set(false);
+            evictor.join();
+        }
+    }
+
+    // floor_items in memory, counting the queries made against it
+    private static class TableSource implements ItemSource {
+        final TreeMap<Integer, Item> rows = new TreeMap<>();
+        int queries;
+
+        @Override
+        public Item fetch(int id) {
+            queries++;
+            return rows.get(id);
+        }
+
+        @Override
+        public List<Item> fetchAll(Collection<Integer> ids) {
+            queries++;
+            List<Item> found = new ArrayList<>();
+            for (int id : ids) {
+                if (rows.containsKey(id)) {
+                    found.add(rows.get(id));
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public List<Item> fetchRange(int fromId, int limit) {
+            queries++;
+            return rows.tailMap(fromId).values().stream().limit(limit).toList();
+        }
+
+        // What InventoryManager does on a save: write the drained rows, then report them saved
+        void write(CachedFloor floor, ChangeTracker.Changes changes) {
+            Map<Integer, Item> written = new LinkedHashMap<>();
+            for (int id : changes.getUpserts()) {
+                Item item = floor.getItemById(id);
+                rows.put(id, Item.fromTemplate(id, item.getTemplate(), item.getQuantity(), item.getWeightUnits()));
+                written.put(id, item);
+            }
+            for (int id : changes.getDeletes()) {
+                rows.remove(id);
+                written.put(id, null);
+            }
+            floor.rowsSaved(written);
+        }
+    }
+}
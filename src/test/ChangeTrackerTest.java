@@ -0,0 +1,95 @@
+package test;
+
+import data.ChangeTracker;
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeTrackerTest {
+
+    private Inventory inventory;
+    private Floor floor;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new Inventory(100.0);
+        inventory.addItem(new Item(101, "Sword", "Weapon", 2, 5.0, "A sharp sword"));
+        floor = new Floor();
+        floor.addItem(new Item(201, "Iron Sword", "Weapon", 1, 10.0, "A shiny sword"));
+        floor.addItem(new Item(202, "Health Potion", "Consumable", 5, 0.5, "Restores health"));
+        inventory.getChangeTracker().reset(); // As if just loaded from the database
+        floor.getChangeTracker().reset();
+    }
+
+    @Test
+    void onlyChangedItemsAreRecorded() {
+        floor.takeItem(201);
+        inventory.addItem(new Item(201, "Iron Sword", "Weapon", 1, 10.0, "A shiny sword"));
+        inventory.addItem(new Item(101, "Sword", "Weapon", 1, 5.0, "A sharp sword")); // Stacks onto 101
+
+        ChangeTracker.Changes inventoryChanges = inventory.getChangeTracker().drain();
+        assertEquals(Set.of(101, 201), inventoryChanges.getUpserts(), "Only the picked up and stacked items need writing.");
+        assertEquals(ChangeTracker.Change.INSERTED, inventoryChanges.get(201));
+        assertEquals(ChangeTracker.Change.UPDATED, inventoryChanges.get(101));
+        assertEquals(Set.of(201), floor.getChangeTracker().drain().getDeletes(), "The floor only loses the picked up item.");
+        assertTrue(inventory.getChangeTracker().drain().isEmpty(), "A drain should leave nothing pending.");
+    }
+
+    @Test
+    void changesToTheSameIdFoldTogether() {
+        floor.addItem(new Item(203, "Shield", "Armor", 1, 8.0, "Sturdy"));
+        floor.removeItem(203);
+        floor.removeItem(202);
+        floor.addItem(new Item(202, "Health Potion", "Consumable", 2, 0.5, "Restores health"));
+
+        ChangeTracker.Changes changes = floor.getChangeTracker().drain();
+        assertNull(changes.get(203), "An item added and removed between saves never reaches the database.");
+        assertEquals(ChangeTracker.Change.UPDATED, changes.get(202), "A row deleted and re-added is just updated.");
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    void failedSaveIsRestoredUnderNewerChanges() {
+        floor.removeItem(201);
+        inventory.updateItemDetails(101, "Great Sword", "Weapon", 2, 5.0, "Bigger");
+        ChangeTracker.Changes failedFloor = floor.getChangeTracker().drain();
+        ChangeTracker.Changes failedInventory = inventory.getChangeTracker().drain();
+
+        // Made while the failing save was running
+        floor.addItem(new Item(201, "Iron Sword", "Weapon", 1, 10.0, "Dropped back"));
+        floor.getChangeTracker().restore(failedFloor);
+        inventory.getChangeTracker().restore(failedInventory);
+
+        ChangeTracker.Changes floorChanges = floor.getChangeTracker().drain();
+        assertEquals(ChangeTracker.Change.UPDATED, floorChanges.get(201), "The row the failed save did not delete still exists.");
+        assertEquals(Set.of(101), inventory.getChangeTracker().drain().getUpserts(), "The failed update should be retried.");
+    }
+
+    @Test
+    void loadedItemsAreNotRecordedAsChanges() {
+        Inventory small = new Inventory(10.0);
+        int added = small.addLoadedItems(List.of(
+                new Item(1, "Sword", "Weapon", 1, 5.0, "Sharp"),
+                new Item(1, "Sword", "Weapon", 1, 5.0, "Sharp"),     // Same ID again stacks
+                new Item(2, "Anvil", "Misc", 1, 50.0, "Too heavy"))); // Over capacity is refused
+        assertEquals(2, added);
+        assertEquals(2, small.getItemById(1).getQuantity(), "A repeated ID should stack.");
+        assertNull(small.getItemById(2), "Capacity should still apply to loaded items.");
+        assertEquals(10_000L, small.getTotalWeightUnits());
+        assertEquals(List.of(1), List.copyOf(small.getChangeTracker().drain().getUpserts()),
+                "Only the stack merge is a change; the loaded row itself is already stored.");
+    }
+
+    @Test
+    void clearingRecordsEveryDelete() {
+        floor.clearItems();
+        assertEquals(Set.of(201, 202), floor.getChangeTracker().drain().getDeletes());
+    }
+}
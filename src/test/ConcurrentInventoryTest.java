@@ -0,0 +1,125 @@
+package test;
+
+import data.ConcurrentFloor;
+import data.ConcurrentInventory;
+import data.Item;
+import data.Weights;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentInventoryTest {
+
+    private static final double CAPACITY = 500.0;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 200_000;
+
+    @Test
+    void capacityHoldsUnderContention() throws Exception {
+        ConcurrentInventory inventory = new ConcurrentInventory(CAPACITY);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger overCapacity = new AtomicInteger();
+
+        // Observer: the total must never be seen above the capacity
+        Future<?> observer = pool.submit(() -> {
+            while (running.get()) {
+                if (inventory.getTotalWeight() > CAPACITY) {
+                    overCapacity.incrementAndGet();
+                }
+            }
+        });
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            workers.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    int id = random.nextInt(2_000);
+                    switch (random.nextInt(4)) {
+                        case 0, 1 -> inventory.addItem(new Item(id, "Item " + id, "Misc",
+                                1 + random.nextInt(3), (1 + random.nextInt(50)) / 10.0, "Stress item"));
+                        case 2 -> inventory.removeItem(id);
+                        default -> inventory.updateItemDetails(id, "Renamed " + id, "Misc",
+                                1 + random.nextInt(3), (1 + random.nextInt(50)) / 10.0, "Updated");
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(2, TimeUnit.MINUTES);
+        }
+        running.set(false);
+        observer.get(10, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertEquals(0, overCapacity.get(), "Total weight should never exceed the capacity.");
+        long expectedUnits = 0;
+        for (Item item : inventory.getItems()) {
+            expectedUnits += Weights.stackUnits(item);
+        }
+        assertEquals(expectedUnits, Weights.toUnits(inventory.getTotalWeight()), "Tracked weight should equal the weight of the items held.");
+        assertTrue(inventory.getTotalWeight() <= CAPACITY, "Final weight should be within capacity.");
+    }
+
+    @Test
+    void concurrentAddsNeverOverfill() throws Exception {
+        ConcurrentInventory inventory = new ConcurrentInventory(100.0);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int base = t * 1_000;
+            workers.add(pool.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    if (inventory.addItem(new Item(base + i, "Coin", "Currency", 1, 1.0, "One weight"))) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        assertEquals(100, accepted.get(), "Exactly capacity / weight adds should be accepted.");
+        assertEquals(100, inventory.size(), "Inventory should hold every accepted item.");
+        assertEquals(100.0, inventory.getTotalWeight(), "Inventory should be exactly full.");
+    }
+
+    @Test
+    void loadedItemsAreNotRecordedAsChanges() {
+        ConcurrentInventory inventory = new ConcurrentInventory(10.0);
+        ConcurrentFloor floor = new ConcurrentFloor();
+        List<Item> loaded = List.of(
+                new Item(1, "Sword", "Weapon", 1, 4.0, "Sharp"),
+                new Item(2, "Shield", "Armor", 1, 5.0, "Sturdy"),
+                new Item(3, "Anvil", "Misc", 1, 8.0, "Too heavy to fit"));
+
+        assertEquals(2, inventory.addLoadedItems(loaded), "Only the items within capacity should be loaded.");
+        assertEquals(9.0, inventory.getTotalWeight(), "Loaded items should still count towards the weight.");
+        assertTrue(inventory.getChangeTracker().drain().isEmpty(), "Loaded inventory rows are already stored.");
+
+        assertEquals(3, floor.addLoadedItems(loaded), "The floor should load every item.");
+        assertEquals(3, floor.size(), "The floor should hold every loaded item.");
+        assertTrue(floor.getChangeTracker().drain().isEmpty(), "Loaded floor rows are already stored.");
+    }
+}
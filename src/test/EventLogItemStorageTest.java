@@ -0,0 +1,155 @@
+package test;
+
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import exceptions.StorageException;
+import logic.EventLogItemStorage;
+import logic.EventLogItemStorage.FsyncPolicy;
+import logic.InventoryManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test.TestItems.item;
+import static test.TestItems.ids;
+
+class EventLogItemStorageTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("event-log-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void managerStateSurvivesRestart() throws Exception {
+        InventoryManager manager = new InventoryManager(new Inventory(100.0), new Floor(),
+                new EventLogItemStorage(directory, FsyncPolicy.ALWAYS));
+        manager.craftItemOnFloor(201, "Iron Sword", "Weapon", 1, 10.0, "A shiny sword");
+        manager.craftItemOnFloor(202, "Health Potion", "Consumable", 5, 0.5, "Restores health");
+        manager.craftItemOnFloor(203, "Rope", "Tool", 1, 1.5, "Fifty feet");
+        manager.pickUpItem(201);
+        manager.deleteFloorItem(203);
+        manager.close();
+
+        Inventory inventory = new Inventory(100.0);
+        Floor floor = new Floor();
+        InventoryManager restarted = new InventoryManager(inventory, floor, new EventLogItemStorage(directory, FsyncPolicy.ALWAYS));
+        assertTrue(restarted.loadItemsFromDatabase(), "Replaying the log should succeed.");
+        assertEquals(List.of(201), ids(inventory.getItems()), "The picked-up item should be back in the inventory.");
+        assertEquals(List.of(202), ids(floor.getItems()), "Deleted items should stay deleted.");
+        assertEquals(5, floor.getItemById(202).getQuantity());
+        restarted.close();
+    }
+
+    @Test
+    void recordCutShortByACrashIsIgnored() throws Exception {
+        EventLogItemStorage storage = new EventLogItemStorage(directory, FsyncPolicy.NEVER);
+        storage.write(rows(item(1, 1)));
+        storage.write(rows(item(1, 2), item(2, 2)));
+        storage.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5); // The second group was only partly written
+        }
+
+        EventLogItemStorage reopened = new EventLogItemStorage(directory, FsyncPolicy.NEVER);
+        Floor floor = new Floor();
+        reopened.load(Map.of("floor_items", floor), null);
+        assertEquals(List.of(1), ids(floor.getItems()), "Only the group that was written whole should be replayed.");
+        assertEquals(1, floor.getItemById(1).getQuantity(), "No part of the torn group should be applied.");
+
+        reopened.write(rows(item(3, 1)));
+        Floor again = new Floor();
+        reopened.load(Map.of("floor_items", again), null);
+        assertEquals(List.of(1, 3), ids(again.getItems()), "Writes after the torn record should still be replayed.");
+        reopened.close();
+    }
+
+    @Test
+    void snapshotReplacesSealedSegments() throws Exception {
+        EventLogItemStorage storage = new EventLogItemStorage(directory, FsyncPolicy.PERIODIC, 256);
+        for (int round = 1; round <= 50; round++) {
+            for (int id = 0; id < 20; id++) {
+                storage.write(rows(item(id, round)));
+            }
+        }
+        storage.write(Map.of("floor_items", nullRow(7)));
+        storage.snapshot();
+        storage.write(rows(item(99, 1)));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> names = files.map(path -> path.getFileName().toString()).sorted().toList();
+            assertEquals(2, names.size(), "Only the snapshot and the active segment should be left: " + names);
+        }
+
+        Floor floor = new Floor();
+        storage.load(Map.of("floor_items", floor), null);
+        assertEquals(20, floor.size(), "19 items from the snapshot plus one written after it.");
+        assertNull(floor.getItemById(7), "A delete folded into the snapshot should stay deleted.");
+        assertEquals(50, floor.getItemById(0).getQuantity(), "The latest write of each item should win.");
+        storage.close();
+    }
+
+    @Test
+    void backgroundCompactionFailureIsThrownFromTheNextWrite() throws Exception {
+        // A directory where each snapshot's temporary file would go makes every compaction fail
+        for (int number = 1; number <= 300; number++) {
+            Files.createDirectory(directory.resolve(String.format("snapshot-%016d.snap.tmp", number)));
+        }
+        EventLogItemStorage storage = new EventLogItemStorage(directory, FsyncPolicy.NEVER, 1); // Every write seals a segment
+        StorageException thrown = null;
+        for (int id = 0; id < 200 && thrown == null; id++) {
+            try {
+                storage.write(rows(item(id, 1)));
+                Thread.sleep(10);
+            } catch (StorageException e) {
+                thrown = e;
+            }
+        }
+        assertNotNull(thrown, "A failed background compaction should fail a later write.");
+        assertTrue(thrown.getMessage().contains("compacting"), thrown.getMessage());
+        storage.close();
+    }
+
+    private static Map<String, Map<Integer, Item>> rows(Item... items) {
+        Map<Integer, Item> rows = new LinkedHashMap<>();
+        for (Item item : items) {
+            rows.put(item.getId(), item);
+        }
+        return Map.of("floor_items", rows);
+    }
+
+    private static Map<Integer, Item> nullRow(int id) {
+        Map<Integer, Item> rows = new LinkedHashMap<>();
+        rows.put(id, null);
+        return rows;
+    }
+}
@@ -0,0 +1,171 @@
+package test;
+
+import data.Item;
+import exceptions.ItemNotFoundException;
+import logic.InventoryRegistry;
+import logic.ItemTransfer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryRegistryTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("registry-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void shardOfIsStableAndSpreadsIds() {
+        // FNV-1a of "a" is 0xE40C292C, so the assignment never depends on the JVM or the run
+        assertEquals(0x292C, InventoryRegistry.shardOf("a", 1 << 16));
+
+        int[] counts = new int[16];
+        for (int player = 0; player < 16_000; player++) {
+            counts[InventoryRegistry.shardOf("player-" + player, counts.length)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200, "Each shard should get about 1000 of 16000 IDs, got " + count);
+        }
+    }
+
+    @Test
+    void containersLoadFromTheirShardAfterRestart() throws Exception {
+        InventoryRegistry registry = new InventoryRegistry(directory, 8, 100.0);
+        registry.getFloor("zone-1").addItem(new Item(201, "Iron Sword", "Weapon", 1, 10.0, "A shiny sword"));
+        registry.getFloor("zone-1").addItem(new Item(202, "Health Potion", "Consumable", 5, 0.5, "Restores health"));
+        assertEquals(ItemTransfer.Result.MOVED, registry.pickUpItem("alice", "zone-1", 201));
+        int usedShards = InventoryRegistry.shardOf("alice", 8) == InventoryRegistry.shardOf("zone-1", 8) ? 1 : 2;
+        assertEquals(usedShards, registry.getOpenShardCount(), "Only the shards of alice and zone-1 should be opened.");
+        assertTrue(registry.saveAll());
+        registry.close();
+
+        InventoryRegistry restarted = new InventoryRegistry(directory, 8, 100.0);
+        assertEquals(201, restarted.getInventory("alice").getItems().get(0).getId());
+        assertEquals(1, restarted.getFloor("zone-1").size(), "The picked-up item should be gone from the floor.");
+        assertTrue(restarted.getInventory("bob").isEmpty(), "Players without stored items start empty.");
+        restarted.close();
+    }
+
+    @Test
+    void racingDropsIntoZonesOnDifferentShardsMoveTheItemOnce() throws Exception {
+        InventoryRegistry registry = new InventoryRegistry(directory, 8, 100.0);
+        String zoneA = "zone-1";
+        String zoneB = "zone-2";
+        for (int zone = 2; InventoryRegistry.shardOf(zoneB, 8) == InventoryRegistry.shardOf(zoneA, 8); zone++) {
+            zoneB = "zone-" + zone;
+        }
+        String otherZone = zoneB;
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        for (int round = 0; round < 200; round++) {
+            int itemId = 1_000 + round;
+            registry.getInventory("alice").addItem(new Item(itemId, "Gem", "Treasure", 1, 0.1, "Shiny"));
+            CountDownLatch start = new CountDownLatch(1);
+            Future<Boolean> first = pool.submit(() -> drop(registry, start, zoneA, itemId));
+            Future<Boolean> second = pool.submit(() -> drop(registry, start, otherZone, itemId));
+            start.countDown();
+            int dropped = (first.get(10, TimeUnit.SECONDS) ? 1 : 0) + (second.get(10, TimeUnit.SECONDS) ? 1 : 0);
+            int onFloors = (registry.getFloor(zoneA).getItemById(itemId) != null ? 1 : 0)
+                    + (registry.getFloor(otherZone).getItemById(itemId) != null ? 1 : 0);
+            assertEquals(1, dropped, "Only one of the racing drops should find the item.");
+            assertEquals(1, onFloors, "The item should land on exactly one floor.");
+        }
+        pool.shutdown();
+        registry.close();
+    }
+
+    @Test
+    void aMoveJournaledButNeverSavedIsFinishedOnRestart() throws Exception {
+        String player = playerOnAnotherShard("zone-1");
+        InventoryRegistry registry = new InventoryRegistry(directory, 8, 100.0);
+        registry.getFloor("zone-1").addItem(new Item(201, "Iron Sword", "Weapon", 1, 10.0, "A shiny sword"));
+        assertTrue(registry.saveAll());
+        registry.close();
+
+        // As if the registry had journaled a pick-up and crashed before either shard committed it
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + directory.resolve("moves.db"));
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO item_moves (seq, item_id, source_shard, source_table, "
+                     + "source_owner, target_shard, target_table, target_owner, name, type, quantity, weight, description) "
+                     + "VALUES (1, 201, ?, 'zone_floor_items', 'zone-1', ?, 'player_inventory_items', ?, 'Iron Sword', 'Weapon', 1, 10.0, 'A shiny sword')")) {
+            insert.setInt(1, InventoryRegistry.shardOf("zone-1", 8));
+            insert.setInt(2, InventoryRegistry.shardOf(player, 8));
+            insert.setString(3, player);
+            insert.executeUpdate();
+        }
+
+        InventoryRegistry restarted = new InventoryRegistry(directory, 8, 100.0);
+        assertEquals(201, restarted.getInventory(player).getItems().get(0).getId(), "The move should reach the inventory.");
+        assertTrue(restarted.getFloor("zone-1").isEmpty(), "The item should leave the floor.");
+        restarted.close();
+    }
+
+    @Test
+    void unloadingDuringMovesKeepsEveryItemOnce() throws Exception {
+        String player = playerOnAnotherShard("zone-1");
+        InventoryRegistry registry = new InventoryRegistry(directory, 8, 1_000.0);
+        for (int id = 0; id < 500; id++) {
+            registry.getFloor("zone-1").addItem(new Item(id, "Coin", "Currency", 1, 0.01, "A coin"));
+        }
+        Thread unloader = new Thread(() -> {
+            for (int round = 0; round < 50; round++) {
+                registry.unloadInventory(player);
+            }
+        });
+        unloader.start();
+        for (int id = 0; id < 500; id++) {
+            registry.pickUpItem(player, "zone-1", id);
+        }
+        unloader.join();
+        registry.close();
+
+        InventoryRegistry restarted = new InventoryRegistry(directory, 8, 1_000.0);
+        assertEquals(500, restarted.getInventory(player).size(), "No move should be lost to an unload.");
+        assertTrue(restarted.getFloor("zone-1").isEmpty());
+        restarted.close();
+    }
+
+    private static String playerOnAnotherShard(String zoneId) {
+        String player = "alice";
+        for (int n = 0; InventoryRegistry.shardOf(player, 8) == InventoryRegistry.shardOf(zoneId, 8); n++) {
+            player = "player-" + n;
+        }
+        return player;
+    }
+
+    private static boolean drop(InventoryRegistry registry, CountDownLatch start, String zoneId, int itemId) throws Exception {
+        start.await();
+        try {
+            registry.dropItem("alice", zoneId, itemId);
+            return true;
+        } catch (ItemNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package test;
+
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import data.SortKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test.TestItems.ids;
+
+class InventoryTest {
+
+    private Inventory inventory;
+    private Floor floor;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new Inventory(100.0);
+        inventory.addItem(new Item(101, "Sword", "Weapon", 2, 5.0, "A sharp sword"));
+        inventory.addItem(new Item(102, "Shield", "Armor", 1, 7.5, "A sturdy shield"));
+        inventory.addItem(new Item(103, "Potion", "Consumable", 5, 0.5, "A health potion"));
+        inventory.addItem(new Item(104, "Bow", "weapon", 1, 5.0, "A basic bow"));
+
+        floor = new Floor();
+        floor.addItem(new Item(201, "Iron Sword", "Weapon", 1, 10.0, "A shiny sword"));
+        floor.addItem(new Item(202, "Health Potion", "Consumable", 5, 0.5, "Restores health"));
+    }
+
+    @Test
+    void filterItemsByTypeIgnoresCase() {
+        List<Item> weapons = inventory.filterItemsByType("WEAPON");
+        assertEquals(2, weapons.size(), "Both weapons should match regardless of case.");
+        assertEquals(101, weapons.get(0).getId(), "Matches should keep insertion order.");
+        assertTrue(inventory.filterItemsByType("Scroll").isEmpty(), "Unknown type should match nothing.");
+        assertEquals(1, floor.filterItemsByType("consumable").size(), "Floor should filter by type too.");
+    }
+
+    @Test
+    void categoriesFollowAddRemoveAndUpdate() {
+        Set<String> categories = inventory.getCategories();
+        assertEquals(Set.of("Weapon", "Armor", "Consumable"), categories, "Types differing only in case share a category.");
+
+        inventory.removeItem(102);
+        assertFalse(categories.contains("Armor"), "Category should disappear with its last item.");
+
+        inventory.updateItemDetails(103, "Scroll of Light", "Scroll", 5, 0.5, "Lights the way");
+        assertTrue(inventory.filterItemsByType("Consumable").isEmpty(), "Updated item should leave its old category.");
+        assertEquals(1, inventory.filterItemsByType("scroll").size(), "Updated item should join its new category.");
+        assertEquals(Set.of("Weapon", "Scroll"), categories, "Category view should reflect the update.");
+
+        floor.removeItem(201);
+        assertEquals(Set.of("Consumable"), floor.getCategories(), "Floor categories should follow removals.");
+    }
+
+    @Test
+    void weightTotalsDoNotDrift() {
+        Inventory bag = new Inventory(0.3);
+        for (int i = 0; i < 1_000_000; i++) {
+            assertTrue(bag.addItem(new Item(1, "Feather", "Misc", 1, 0.1, "Light")), "First feather should fit.");
+            assertTrue(bag.addItem(new Item(2, "Feather", "Misc", 1, 0.1, "Light")), "Second feather should fit.");
+            assertTrue(bag.addItem(new Item(3, "Feather", "Misc", 1, 0.1, "Light")), "Third feather should fill the bag exactly.");
+            bag.removeItem(1);
+            bag.removeItem(2);
+            bag.removeItem(3);
+        }
+        assertEquals(0L, bag.getTotalWeightUnits(), "Weight should return to exactly zero.");
+        assertEquals(0.0, bag.getTotalWeight(), "Double total should be exactly zero.");
+    }
+
+    @Test
+    void searchByNameFollowsRenamesAndRemovals() {
+        assertEquals(List.of(101), ids(inventory.searchByName("SWO")), "Search should ignore case.");
+        assertEquals(List.of(101, 102, 103, 104), ids(inventory.searchByName("")), "Empty query should match everything.");
+        assertEquals(List.of(102), ids(inventory.searchByName("hi")), "Short queries should still match.");
+
+        inventory.updateItemDetails(101, "Great Axe", "Weapon", 2, 5.0, "Renamed");
+        assertTrue(inventory.searchByName("sword").isEmpty(), "Old name should no longer match.");
+        assertEquals(List.of(101), ids(inventory.searchByName("eat ax")), "New name should match.");
+
+        floor.removeItem(202);
+        assertTrue(floor.searchByName("potion").isEmpty(), "Removed item should not match.");
+    }
+
+    @Test
+    void searchByNameMatchesSubstringScan() {
+        Random random = new Random(7);
+        String[] words = {"Iron", "Sword", "Health", "Potion", "Mana", "Shield", "Bow", "Dagger", "Elixir", "Ring"};
+        Floor big = new Floor();
+        for (int id = 0; id < 20_000; id++) {
+            String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + id;
+            big.addItem(new Item(id, name, "Misc", 1, 1.0, "Generated"));
+        }
+        for (int id = 0; id < 20_000; id += 3) {
+            big.removeItem(id);
+        }
+
+        for (String query : new String[]{"ion", "SWORD POT", "r", "na sh", "1234", "xyz", "Ring 19"}) {
+            List<Integer> expected = new ArrayList<>();
+            for (Item item : big.getItems()) {
+                if (item.getName().toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT))) {
+                    expected.add(item.getId());
+                }
+            }
+            assertEquals(expected, ids(big.searchByName(query)), "Index should agree with a scan for '" + query + "'.");
+        }
+    }
+
+    @Test
+    void renamesPastTheRebuildThresholdReportEachItemOnce() {
+        Inventory bag = new Inventory(1_000_000.0);
+        for (int id = 0; id < 100; id++) {
+            bag.addItem(new Item(id, "Plain Stone " + id, "Misc", 1, 1.0, "Test item"));
+        }
+        // Names with repeated grams, so counting entries from the name length would drift
+        for (int round = 0; round < 40; round++) {
+            for (int id = 0; id < 100; id++) {
+                String name = (round % 2 == 0 ? "aaaaaa Stone " : "Plain Stone ") + id;
+                bag.updateItemDetails(id, name, "Misc", 1, 1.0, "Test item");
+                List<Integer> found = ids(bag.searchByName("stone"));
+                assertEquals(100, new HashSet<>(found).size(), "Every item should be found after renaming " + id + ".");
+                assertEquals(100, found.size(), "No item should be reported twice after renaming " + id + ".");
+            }
+        }
+        assertTrue(bag.searchByName("aaaa").isEmpty(), "Only the names from the last round should match.");
+    }
+
+    @Test
+    void sortedOrdersFollowEveryMutation() {
+        Random random = new Random(11);
+        Inventory bag = new Inventory(1_000_000.0);
+        for (int step = 0; step < 5_000; step++) {
+            int id = random.nextInt(300);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> bag.addItem(new Item(id, "Item " + random.nextInt(50), "Misc",
+                        1 + random.nextInt(5), random.nextInt(20) / 4.0, "Generated"));
+                case 2 -> bag.removeItem(id);
+                default -> bag.updateItemDetails(id, "Renamed " + random.nextInt(50), "Misc",
+                        random.nextInt(10), random.nextInt(20) / 4.0, "Updated");
+            }
+            if (step % 500 == 0) {
+                List<Item> expected = new ArrayList<>(bag.getItems());
+                expected.sort(SortKey.WEIGHT.comparator());
+                List<Item> byWeight = bag.getItemsSortedBy(SortKey.WEIGHT);
+                for (int position = 0; position < expected.size(); position++) {
+                    assertSame(expected.get(position), byWeight.get(position), "Position " + position + " at step " + step);
+                }
+            }
+        }
+
+        for (SortKey key : SortKey.values()) {
+            List<Item> expected = new ArrayList<>(bag.getItems());
+            expected.sort(key.comparator());
+            assertEquals(ids(expected), ids(new ArrayList<>(bag.getItemsSortedBy(key))), "Order by " + key + " should match a full sort.");
+        }
+
+        // Positional reads, as a virtualized grid makes them, follow later mutations too
+        List<Item> byName = bag.getItemsSortedBy(SortKey.NAME);
+        assertEquals(byName.get(0).getId(), byName.iterator().next().getId());
+        bag.addItem(new Item(1_000, "Aaa", "Misc", 1, 0.0, "Sorts first"));
+        assertEquals(1_000, byName.get(0).getId(), "The view should see the new first item.");
+        assertEquals(bag.size(), byName.size());
+        assertEquals(ids(new ArrayList<>(byName)), ids(List.copyOf(byName.subList(0, byName.size()))), "Reads by position should match iteration.");
+    }
+
+    @Test
+    void identicalItemsShareOneTemplate() {
+        Item first = new Item(301, new String("Health Potion"), "Consumable", 1, 0.5, "Restores health");
+        Item second = new Item(302, new String("Health Potion"), "Consumable", 3, 0.5, "Restores health");
+        assertSame(first.getTemplate(), second.getTemplate(), "Items with the same details should share a template.");
+        assertSame(first.getName(), second.getName(), "Shared templates should share their strings.");
+
+        second.setName("Mana Potion");
+        assertEquals("Health Potion", first.getName(), "Renaming one item should not rename the other.");
+        assertSame(new Item(303, "Mana Potion", "Consumable", 1, 0.5, "Restores health").getTemplate(), second.getTemplate(),
+                "A renamed item should move to the template for its new details.");
+    }
+
+    @Test
+    void replaceContentsSwapsInStagedItems() {
+        inventory.getChangeTracker().reset();
+        Inventory staged = inventory.emptyCopy();
+        staged.addLoadedItems(List.of(new Item(401, "Lantern", "Tool", 1, 2.0, "Lights the way"),
+                new Item(402, "Rope", "Tool", 2, 1.5, "Fifty feet")));
+        assertEquals(4, inventory.size(), "Filling the staged copy should not touch the live inventory.");
+
+        inventory.replaceContents(staged);
+        assertEquals(List.of(401, 402), ids(inventory.getItems()), "The staged items should replace the old ones.");
+        assertEquals(5.0, inventory.getTotalWeight(), "The weight should come with the staged items.");
+        assertEquals(List.of(401), ids(inventory.searchByName("lant")), "The indexes should come with the staged items.");
+        assertTrue(staged.isEmpty(), "The staged copy should be left empty.");
+        assertTrue(inventory.getChangeTracker().drain().isEmpty(), "A swap is not a change to save.");
+
+        inventory.removeItem(402);
+        assertEquals(1, inventory.getChangeTracker().size(), "Later changes should be tracked by the live inventory.");
+        assertEquals(0, staged.getChangeTracker().size(), "The staged copy should not see later changes.");
+    }
+}
@@ -0,0 +1,69 @@
+package test;
+
+import data.Floor;
+import data.Item;
+import data.ItemFileExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemFileExporterTest {
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("items", ".txt");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void exportMatchesTheFormattedFileFormat() throws Exception {
+        double[] weights = {0, 0.004, 0.005, 0.125, 1.235, 2.5, 12.999, 1234567.891, -3.335};
+        String[] names = {"Sword", "\u00c9p\u00e9e", "\u5263", "Bow \ud83c\udff9", null};
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            items.add(new Item(i - 1_000, names[i % names.length], "Weapon", i * 7919, weights[i % weights.length], "Line " + i));
+        }
+
+        // A small buffer, so records straddle buffer flushes
+        assertEquals(2_000, new ItemFileExporter(64).export(file, items));
+
+        StringBuilder expected = new StringBuilder();
+        for (Item item : items) {
+            expected.append(String.format(Locale.ROOT, "%d;%s;%s;%d;%.2f;%s", item.getId(), item.getName(), item.getType(),
+                    item.getQuantity(), item.getWeight(), item.getDescription())).append('\n');
+            assertEquals(expected.substring(expected.lastIndexOf("\n", expected.length() - 2) + 1, expected.length() - 1),
+                    item.toFileString(), "toFileString should match the old formatted output.");
+        }
+        assertEquals(expected.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")), "The temporary file should be moved into place.");
+    }
+
+    @Test
+    void savedFileLoadsBack() {
+        Floor floor = new Floor();
+        floor.addItem(new Item(201, "Iron Sword", "Weapon", 1, 10.0, "A shiny sword"));
+        floor.addItem(new Item(202, "Health Potion", "Consumable", 5, 0.5, "Restores health"));
+        floor.saveItemsToFile(file.toString());
+
+        Floor loaded = new Floor();
+        assertNotNull(loaded.importItemsFromFile(file.toString()));
+        assertEquals(floor.getItemById(201).getDetails(), loaded.getItemById(201).getDetails());
+        assertEquals(floor.getItemById(202).getDetails(), loaded.getItemById(202).getDetails());
+    }
+}
@@ -0,0 +1,102 @@
+package test;
+
+import data.ChangeTracker;
+import data.Floor;
+import data.Item;
+import data.ItemFileImporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemFileImporterTest {
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("items", ".txt");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void importMatchesTheLineByLineLoader() throws Exception {
+        Floor source = new Floor();
+        for (int id = 0; id < 3_000; id++) {
+            source.addItem(new Item(id, "Item " + (id % 40), "Type " + (id % 4), 1 + id % 7, (id % 90) / 4.0, "Description " + (id % 13)));
+        }
+        source.saveItemsToFile(file.toString());
+
+        Floor expected = new Floor();
+        assertTrue(expected.loadItemsFromFile(file.toString()));
+        Floor imported = new Floor();
+        // Tiny chunks, so most chunk boundaries fall in the middle of a line
+        ItemFileImporter.Report report = new ItemFileImporter(4, 100).importItems(file, imported);
+
+        assertFalse(report.hasErrors(), "A file written by saveItemsToFile should import cleanly: " + report.getErrors());
+        assertEquals(3_000, report.getItemsImported());
+        assertEquals(details(expected.getItems()), details(imported.getItems()), "Both loaders should read the same items in the same order.");
+        for (Item item : expected.getItems()) {
+            assertEquals(item.getWeightUnits(), imported.getItemById(item.getId()).getWeightUnits(), "Weights should match exactly.");
+        }
+    }
+
+    @Test
+    void badLinesAreReportedAndTheRestIsImported() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int id = 1; id <= 200; id++) {
+            lines.add(id + "; Sword " + id + " ;Weapon;1;2.5;A sharp sword\r");
+        }
+        lines.set(9, "10;Broken;Weapon;one;2.5;Quantity is not a number");
+        lines.set(99, "100;Too;few;fields");
+        lines.set(149, "");
+        lines.set(189, "190;Heavy;Weapon;1;1e2;Exponents take the slow path");
+        Files.write(file, lines);
+
+        Floor floor = new Floor();
+        ItemFileImporter.Report report = new ItemFileImporter(3, 64).importItems(file, floor);
+        assertEquals(200, report.getLinesRead());
+        assertEquals(197, report.getItemsImported(), "Only the two bad lines and the blank one should be left out.");
+        assertEquals(2, report.getErrorCount());
+        assertEquals(10, report.getErrors().get(0).getLineNumber(), "Line numbers should count across chunks.");
+        assertEquals("Invalid quantity", report.getErrors().get(0).getMessage());
+        assertEquals(100, report.getErrors().get(1).getLineNumber());
+        assertEquals("Sword 1", floor.getItemById(1).getName(), "Fields should be trimmed.");
+        assertEquals("A sharp sword", floor.getItemById(1).getDescription(), "Line endings should be trimmed.");
+        assertEquals(100.0, floor.getItemById(190).getWeight());
+    }
+
+    @Test
+    void importReplacingLoadedItemsIsSavedAsChanges() throws Exception {
+        Floor floor = new Floor();
+        floor.addLoadedItems(List.of(new Item(1, "Sword", "Weapon", 1, 5.0, "Old"), new Item(2, "Shield", "Armor", 1, 8.0, "Old")));
+        Files.write(file, List.of("2;Shield;Armor;3;8.0;New", "3;Bow;Weapon;1;2.0;New"));
+
+        assertNotNull(floor.importItemsFromFile(file.toString()));
+        ChangeTracker.Changes changes = floor.getChangeTracker().drain();
+        assertEquals(Set.of(1), changes.getDeletes(), "The row of an item missing from the file should be deleted.");
+        assertEquals(Set.of(2, 3), changes.getUpserts(), "Every imported item should be written.");
+        assertEquals(ChangeTracker.Change.UPDATED, changes.get(2));
+        assertEquals(ChangeTracker.Change.INSERTED, changes.get(3));
+    }
+
+    private static List<String> details(List<Item> items) {
+        List<String> details = new ArrayList<>();
+        for (Item item : items) {
+            details.add(item.getDetails());
+        }
+        return details;
+    }
+}
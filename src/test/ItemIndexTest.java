@@ -0,0 +1,178 @@
+package test;
+
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import data.ItemIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test.TestItems.ids;
+
+class ItemIndexTest {
+
+    private ItemIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ItemIndex();
+    }
+
+    @Test
+    void addAndGet() {
+        Item sword = new Item(101, "Sword", "Weapon", 2, 5.0, "A sharp sword");
+        assertTrue(index.add(sword), "First add of an ID should succeed.");
+        assertFalse(index.add(new Item(101, "Other", "Misc", 1, 1.0, "Same ID")), "Duplicate ID should be rejected.");
+        assertSame(sword, index.get(101), "Lookup should return the stored item.");
+        assertNull(index.get(999), "Unknown ID should return null.");
+        assertEquals(1, index.size(), "Index should hold one item.");
+    }
+
+    @Test
+    void removeKeepsInsertionOrder() {
+        for (int id = 1; id <= 5; id++) {
+            index.add(new Item(id, "Item " + id, "Misc", 1, 1.0, "Test item"));
+        }
+        assertNotNull(index.remove(3), "Removing an existing ID should return the item.");
+        assertNull(index.remove(3), "Removing the same ID twice should return null.");
+        index.add(new Item(3, "Item 3", "Misc", 1, 1.0, "Re-added"));
+
+        assertEquals(List.of(1, 2, 4, 5, 3), ids(index.toList()), "Re-added item should move to the end.");
+    }
+
+    @Test
+    void negativeAndCollidingIds() {
+        int[] ids = {0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 16, 32, 64, 1 << 20};
+        for (int id : ids) {
+            assertTrue(index.add(new Item(id, "Item", "Misc", 1, 1.0, "Edge case")), "Add should succeed for ID " + id);
+        }
+        for (int id : ids) {
+            assertNotNull(index.get(id), "Lookup should find ID " + id);
+        }
+        for (int id : ids) {
+            assertNotNull(index.remove(id), "Remove should find ID " + id);
+            assertNull(index.get(id), "ID " + id + " should be gone after removal.");
+        }
+        assertTrue(index.isEmpty(), "Index should be empty after removing every item.");
+    }
+
+    @Test
+    void matchesListBehaviourUnderRandomOperations() {
+        Random random = new Random(42);
+        List<Item> model = new ArrayList<>();
+
+        for (int step = 0; step < 200_000; step++) {
+            int id = random.nextInt(5_000) - 1_000;
+            Item expected = findById(model, id);
+            if (random.nextInt(3) == 0) {
+                Item removed = index.remove(id);
+                assertSame(expected, removed, "Remove should agree with the list at step " + step);
+                model.remove(expected);
+            } else if (expected == null) {
+                Item item = new Item(id, "Item " + id, "Misc", 1, 1.0, "Random item");
+                assertTrue(index.add(item), "Add of a new ID should succeed at step " + step);
+                model.add(item);
+            } else {
+                assertSame(expected, index.get(id), "Lookup should agree with the list at step " + step);
+            }
+            assertEquals(model.size(), index.size(), "Sizes should agree at step " + step);
+            if (!model.isEmpty() && step % 64 == 0) {
+                int position = random.nextInt(model.size());
+                assertSame(model.get(position), index.asList().get(position), "Positional reads should agree with the list at step " + step);
+            }
+        }
+
+        assertEquals(model, index.toList(), "Iteration order should match the list.");
+        List<Item> iterated = new ArrayList<>();
+        index.forEach(iterated::add);
+        assertEquals(model, iterated, "Iterator should visit items in list order.");
+    }
+
+    @Test
+    void asListIsALiveReadOnlyView() {
+        List<Item> view = index.asList();
+        for (int id = 1; id <= 40; id++) {
+            index.add(new Item(id, "Item " + id, "Misc", 1, 1.0, "Test item"));
+        }
+        for (int id = 1; id <= 30; id++) {
+            index.remove(id);
+        }
+        assertEquals(10, view.size(), "View should reflect removals without being re-fetched.");
+        assertEquals(31, view.get(0).getId(), "Positional access should skip removed items.");
+        assertEquals(40, view.get(9).getId(), "Last position should hold the last item added.");
+        assertTrue(view.contains(index.get(35)), "View should contain an indexed item.");
+        assertThrows(UnsupportedOperationException.class, view::clear, "View should reject modification.");
+        assertThrows(UnsupportedOperationException.class,
+                () -> view.add(new Item(99, "Item", "Misc", 1, 1.0, "Rejected")), "View should reject additions.");
+    }
+
+    @Test
+    void positionalReadsDoNotDisturbIteration() {
+        for (int id = 1; id <= 40; id++) {
+            index.add(new Item(id, "Item " + id, "Misc", 1, 1.0, "Test item"));
+        }
+        for (int id = 2; id <= 40; id += 3) {
+            index.remove(id);
+        }
+        List<Item> view = index.asList();
+        int position = 0;
+        for (Item item : view) {
+            assertSame(item, view.get(position++), "Reading by position must not invalidate an open iterator.");
+        }
+        assertEquals(view.size(), position);
+    }
+
+    @Test
+    void positionalReadsSkipHolesAcrossBlocks() {
+        List<Item> model = new ArrayList<>();
+        for (int id = 0; id < 1_000; id++) {
+            Item item = new Item(id, "Item " + id, "Misc", 1, 1.0, "Test item");
+            index.add(item);
+            model.add(item);
+        }
+        for (int id = 0; id < 1_000; id += 3) {
+            model.remove(index.remove(id)); // A third of the positions become holes, below the compaction ratio
+        }
+        for (int id = 1_000; id < 1_500; id++) {
+            Item item = new Item(id, "Item " + id, "Misc", 1, 1.0, "Test item");
+            index.add(item); // Filling the array reclaims the holes or grows it
+            model.add(item);
+        }
+        List<Item> view = index.asList();
+        for (int position = 0; position < model.size(); position++) {
+            assertSame(model.get(position), view.get(position), "Position " + position + " should skip every hole before it.");
+        }
+    }
+
+    @Test
+    void inventoryAndFloorStackDuplicateIds() {
+        Inventory inventory = new Inventory(100.0);
+        inventory.addItem(new Item(202, "Health Potion", "Consumable", 5, 0.5, "Restores health."));
+        inventory.addItem(new Item(202, "Health Potion", "Consumable", 3, 0.5, "Restores health."));
+        assertEquals(1, inventory.getItems().size(), "Inventory should stack items with the same ID.");
+        assertEquals(8, inventory.getItemById(202).getQuantity(), "Stacked quantity should be the sum.");
+        assertEquals(4.0, inventory.getTotalWeight(), 1e-9, "Weight should count both stacks.");
+
+        Floor floor = new Floor();
+        floor.addItem(new Item(204, "Mana Potion", "Consumable", 3, 0.3, "Restores magic."));
+        floor.addItem(new Item(204, "Mana Potion", "Consumable", 2, 0.3, "Restores magic."));
+        assertEquals(1, floor.getItems().size(), "Floor should stack items with the same ID.");
+        assertEquals(5, floor.getItemById(204).getQuantity(), "Stacked quantity should be the sum.");
+        assertTrue(floor.removeItem(204), "Removing a floor item should succeed.");
+        assertNull(floor.getItemById(204), "Removed item should no longer be found.");
+    }
+
+    private static Item findById(List<Item> items, int id) {
+        for (Item item : items) {
+            if (item.getId() == id) {
+                return item;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,104 @@
+package test;
+
+import data.ChangeTracker;
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import data.ItemSnapshot;
+import exceptions.InvalidItemFormatException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemSnapshotTest {
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("items", ".snap");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void snapshotRoundTripsEveryField() throws Exception {
+        Floor floor = new Floor();
+        for (int id = 0; id < 5_000; id++) {
+            floor.addItem(new Item(id, "Item " + (id % 50), "Type " + (id % 5), 1 + id % 9, (id % 40) / 8.0, "\u00dcn\u00efcode " + (id % 7)));
+        }
+        floor.saveItemsToSnapshot(file.toString());
+
+        ItemSnapshot snapshot = ItemSnapshot.open(file);
+        assertEquals(5_000, snapshot.size());
+        assertEquals(1234, snapshot.idAt(1234), "Columns should be readable without decoding whole items.");
+
+        Floor loaded = new Floor();
+        loaded.addItem(new Item(9_999, "Old", "Misc", 1, 1.0, "Replaced by the load"));
+        assertTrue(loaded.loadItemsFromSnapshot(file.toString()));
+        assertNull(loaded.getItemById(9_999), "Loading should replace the previous items.");
+        assertEquals(floor.size(), loaded.size());
+        for (Item expected : floor.getItems()) {
+            Item actual = loaded.getItemById(expected.getId());
+            assertEquals(expected.getDetails(), actual.getDetails(), "Item " + expected.getId() + " should round-trip.");
+            assertEquals(expected.getWeightUnits(), actual.getWeightUnits());
+        }
+        assertSame(loaded.getItemById(0).getTemplate(), loaded.getItemById(350).getTemplate(),
+                "Items with the same details should share a template after loading.");
+        assertEquals(5_000, loaded.getChangeTracker().drain().getUpserts().size(), "Every loaded item should be saved next time.");
+
+        Inventory small = new Inventory(10.0);
+        assertTrue(small.loadItemsFromSnapshot(file.toString()));
+        assertTrue(small.getTotalWeight() <= 10.0, "An inventory load should still respect capacity.");
+    }
+
+    @Test
+    void snapshotLoadIsSavedAsChanges() throws Exception {
+        Floor source = new Floor();
+        source.addItem(new Item(2, "Shield", "Armor", 3, 8.0, "New"));
+        source.addItem(new Item(3, "Bow", "Weapon", 1, 2.0, "New"));
+        source.saveItemsToSnapshot(file.toString());
+
+        Inventory inventory = new Inventory(100.0);
+        inventory.addLoadedItems(List.of(new Item(1, "Sword", "Weapon", 1, 5.0, "Old"), new Item(2, "Shield", "Armor", 1, 8.0, "Old")));
+        inventory.addItem(new Item(4, "Arrow", "Ammo", 10, 0.1, "Never saved"));
+        assertTrue(inventory.loadItemsFromSnapshot(file.toString()));
+
+        ChangeTracker.Changes changes = inventory.getChangeTracker().drain();
+        assertEquals(Set.of(1), changes.getDeletes(), "Only the saved row missing from the snapshot should be deleted.");
+        assertEquals(Set.of(2, 3), changes.getUpserts(), "Every item of the snapshot should be written.");
+    }
+
+    @Test
+    void damagedSnapshotIsRejected() throws Exception {
+        new Floor().saveItemsToSnapshot(file.toString()); // An empty snapshot is still valid
+        assertEquals(0, ItemSnapshot.open(file).size());
+
+        Floor floor = new Floor();
+        floor.addItem(new Item(1, "Sword", "Weapon", 1, 5.0, "A sharp sword"));
+        floor.saveItemsToSnapshot(file.toString());
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(raw.length() - 1);
+            int last = raw.read();
+            raw.seek(raw.length() - 1);
+            raw.write(last ^ 0x20); // Flip one bit in the string table
+        }
+        assertThrows(InvalidItemFormatException.class, () -> ItemSnapshot.open(file));
+
+        Files.write(file, List.of("1;Sword;Weapon;1;5.00;A sharp sword"));
+        assertThrows(InvalidItemFormatException.class, () -> new Floor().loadItemsFromSnapshot(file.toString()),
+                "A text items file is not a snapshot.");
+    }
+}
@@ -0,0 +1,166 @@
+package test;
+
+import data.ConcurrentFloor;
+import data.ConcurrentInventory;
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import logic.ItemTransfer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemTransferTest {
+
+    private static final int PLAYERS = 8;
+    private static final int FLOOR_ITEMS = 20_000;
+
+    @Test
+    void rejectedTransferLeavesBothSidesUntouched() {
+        ItemTransfer transfers = new ItemTransfer();
+        Floor floor = new Floor();
+        Inventory inventory = new Inventory(10.0);
+        floor.addItem(new Item(216, "Battle Axe", "Weapon", 1, 15.0, "A heavy weapon"));
+
+        assertEquals(ItemTransfer.Result.REJECTED, transfers.transfer(floor, inventory, 216), "Too heavy an item should be rejected.");
+        assertNotNull(floor.getItemById(216), "Rejected item should stay on the floor.");
+        assertTrue(inventory.isEmpty(), "Inventory should be unchanged.");
+        assertEquals(ItemTransfer.Result.NOT_FOUND, transfers.transfer(floor, inventory, 999), "Missing item should be reported.");
+    }
+
+    @Test
+    void itemTakenElsewhereMidMoveIsNotDuplicated() {
+        ItemTransfer transfers = new ItemTransfer();
+        // Another player takes the item between the transfer's lookup and its take
+        Floor floor = new Floor() {
+            @Override
+            public Item takeItem(int id) {
+                super.takeItem(id);
+                return null;
+            }
+        };
+        Inventory inventory = new Inventory(50.0);
+        floor.addItem(new Item(202, "Health Potion", "Consumable", 5, 0.5, "Restores health."));
+        inventory.addItem(new Item(202, "Health Potion", "Consumable", 2, 0.5, "Restores health."));
+
+        assertEquals(ItemTransfer.Result.NOT_FOUND, transfers.transfer(floor, inventory, 202));
+        assertEquals(2, inventory.getItemById(202).getQuantity(), "The stack the item joined should be put back as it was.");
+        assertEquals(1.0, inventory.getTotalWeight(), 1e-9);
+    }
+
+    @Test
+    void plainContainersGetASingleLock() throws Exception {
+        Floor floor = new Floor();
+        Inventory inventory = new Inventory(1_000_000.0);
+        ItemTransfer transfers = ItemTransfer.forContainers(floor, inventory);
+        for (int id = 0; id < FLOOR_ITEMS; id++) {
+            floor.addItem(new Item(id, "Coin", "Currency", 1, 0.01, "A coin"));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(PLAYERS);
+        List<Future<?>> players = new ArrayList<>();
+        for (int p = 0; p < PLAYERS; p++) {
+            int first = p;
+            // Each player moves different items, which per-item locks alone would let race on the shared indexes
+            players.add(pool.submit(() -> {
+                for (int id = first; id < FLOOR_ITEMS; id += PLAYERS) {
+                    transfers.transfer(floor, inventory, id);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> player : players) {
+            player.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        assertTrue(floor.isEmpty(), "Floor should be empty.");
+        assertEquals(FLOOR_ITEMS, inventory.size(), "Every item should have been moved once.");
+        assertEquals(FLOOR_ITEMS, inventory.getItems().size(), "The inventory's index should agree with its size.");
+    }
+
+    @Test
+    void severalItemLocksAreHeldTogether() throws Exception {
+        ItemTransfer transfers = new ItemTransfer(64);
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> transfers.withItemLocks(new int[]{70, 3, 12}, () -> {
+            inside.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+        AtomicInteger waited = new AtomicInteger();
+        Thread mover = new Thread(() -> transfers.withItemLock(12, waited::incrementAndGet));
+        mover.start();
+        mover.join(200);
+        assertEquals(0, waited.get(), "A single item lock should wait while a multi-item action holds it.");
+
+        release.countDown();
+        mover.join(5_000);
+        holder.join(5_000);
+        assertEquals(1, waited.get());
+    }
+
+    @Test
+    void racingPlayersPickUpEachItemOnce() throws Exception {
+        ItemTransfer transfers = new ItemTransfer();
+        ConcurrentFloor floor = new ConcurrentFloor();
+        for (int id = 0; id < FLOOR_ITEMS; id++) {
+            floor.addItem(new Item(id, "Coin", "Currency", 1, 0.01, "A coin"));
+        }
+
+        List<ConcurrentInventory> inventories = new ArrayList<>();
+        for (int p = 0; p < PLAYERS; p++) {
+            inventories.add(new ConcurrentInventory(1_000_000.0));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(PLAYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger moved = new AtomicInteger();
+        List<Future<?>> players = new ArrayList<>();
+        for (ConcurrentInventory inventory : inventories) {
+            players.add(pool.submit(() -> {
+                start.await();
+                // Every player tries to grab every item, so each item is contended by all of them
+                for (int id = 0; id < FLOOR_ITEMS; id++) {
+                    if (transfers.transfer(floor, inventory, id) == ItemTransfer.Result.MOVED) {
+                        moved.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> player : players) {
+            player.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        assertEquals(FLOOR_ITEMS, moved.get(), "Each item should be picked up exactly once.");
+        assertTrue(floor.isEmpty(), "Floor should be empty.");
+        int held = 0;
+        for (ConcurrentInventory inventory : inventories) {
+            for (Item item : inventory.getItems()) {
+                assertEquals(1, item.getQuantity(), "No item should have been stacked twice.");
+                held++;
+            }
+        }
+        assertEquals(FLOOR_ITEMS, held, "Every item should end up in exactly one inventory.");
+    }
+}
@@ -0,0 +1,24 @@
+package test;
+
+import data.Item;
+
+import java.util.List;
+
+/**
+ * TestItems holds the small item helpers that several test classes share.
+ */
+
+final class TestItems {
+
+    private TestItems() {
+    }
+
+    // A throwaway item whose only interesting fields are its ID and quantity
+    static Item item(int id, int quantity) {
+        return new Item(id, "Item " + id, "Misc", quantity, 1.0, "Generated");
+    }
+
+    static List<Integer> ids(List<Item> items) {
+        return items.stream().map(Item::getId).toList();
+    }
+}
@@ -0,0 +1,266 @@
+package test;
+
+import data.Floor;
+import data.Inventory;
+import data.Item;
+import data.ItemContainer;
+import exceptions.StorageException;
+import exceptions.VersionConflictException;
+import exceptions.VersionConflictException.Conflict;
+import logic.ConflictResolver;
+import logic.ExternalChange;
+import logic.InventoryManager;
+import logic.ItemStorage;
+import logic.LoadProgressListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionConflictTest {
+
+    private SharedDatabase database;
+    private Inventory firstInventory;
+    private Inventory secondInventory;
+    private InventoryManager first;
+    private InventoryManager second;
+
+    @BeforeEach
+    void setUp() {
+        database = new SharedDatabase();
+        database.rows.put(101, new VersionedRow(new Item(101, "Sword", "Weapon", 1, 5.0, "A sharp sword"), 0));
+        firstInventory = new Inventory(50.0);
+        secondInventory = new Inventory(50.0);
+        first = new InventoryManager(firstInventory, new Floor(), new VersionedStorage(database));
+        second = new InventoryManager(secondInventory, new Floor(), new VersionedStorage(database));
+        assertTrue(first.loadItemsFromDatabase());
+        assertTrue(second.loadItemsFromDatabase());
+    }
+
+    @Test
+    void laterWriterTakesOverTheStoredRowByDefault() throws Exception {
+        first.updateItemInInventory(101, "Sword", "Weapon", 2, 5.0, "Sharpened");
+        second.updateItemInInventory(101, "Sword", "Weapon", 3, 5.0, "Blunted");
+
+        VersionedRow stored = database.rows.get(101);
+        assertEquals("Sharpened", stored.item.getDescription(), "The first write must not be overwritten.");
+        assertEquals(1, stored.version);
+        assertEquals("Sharpened", secondInventory.getItemById(101).getDescription(), "The second process should see the stored row.");
+        assertEquals(0, secondInventory.getChangeTracker().size(), "The settled row should not be saved again.");
+
+        second.updateItemInInventory(101, "Sword", "Weapon", 4, 5.0, "Polished");
+        assertEquals("Polished", database.rows.get(101).item.getDescription(), "Writes after settling should go through.");
+    }
+
+    @Test
+    void resolverCanMergeBothRows() throws Exception {
+        second.setConflictResolver(conflict -> new Item(conflict.getId(), conflict.getStored().getName(), conflict.getStored().getType(),
+                conflict.getStored().getQuantity() + conflict.getLocal().getQuantity(), conflict.getStored().getWeight(),
+                conflict.getStored().getDescription()));
+        first.updateItemInInventory(101, "Sword", "Weapon", 2, 5.0, "A sharp sword");
+        second.updateItemInInventory(101, "Sword", "Weapon", 3, 5.0, "A sharp sword");
+
+        assertEquals(5, database.rows.get(101).item.getQuantity());
+        assertEquals(2, database.rows.get(101).version);
+        assertEquals(5, secondInventory.getItemById(101).getQuantity(), "Memory should hold the merged row.");
+
+        // Changed behind the manager's back, so it is only saved by the explicit save below
+        database.rows.put(101, new VersionedRow(database.rows.get(101).item, 9));
+        secondInventory.updateItemDetails(101, "Sword", "Weapon", 1, 5.0, "A sharp sword");
+        VersionConflictException conflict = assertThrows(VersionConflictException.class,
+                () -> second.saveItemsToDatabase(ConflictResolver.KEEP_LOCAL, 1));
+        assertEquals(101, conflict.getConflicts().get(0).getId());
+        assertEquals(1, secondInventory.getChangeTracker().size(), "Changes that could not be saved are kept for the next save.");
+
+        second.saveItemsToDatabase(ConflictResolver.KEEP_LOCAL, 2);
+        assertEquals(1, database.rows.get(101).item.getQuantity(), "A retry should write the local row over the stored one.");
+        assertEquals(10, database.rows.get(101).version);
+    }
+
+    @Test
+    void pollingAppliesOnlyRowsOtherProcessesChanged() throws Exception {
+        assertTrue(second.pollExternalChanges().isEmpty(), "Nothing has changed since the load.");
+
+        first.updateItemInInventory(101, "Sword", "Weapon", 2, 5.0, "Sharpened");
+        database.rows.put(102, new VersionedRow(new Item(102, "Shield", "Armor", 1, 8.0, "A wooden shield"), 0));
+        List<ExternalChange> changes = second.pollExternalChanges();
+        assertEquals(2, changes.size());
+        assertTrue(first.pollExternalChanges().stream().noneMatch(change -> change.getId() == 101), "A process's own writes are not reported back to it.");
+
+        assertTrue(second.applyExternalChanges(changes));
+        assertEquals("Sharpened", secondInventory.getItemById(101).getDescription());
+        assertNotNull(secondInventory.getItemById(102));
+        assertEquals(0, secondInventory.getChangeTracker().size(), "Applied rows are not changes to save.");
+        assertTrue(second.pollExternalChanges().isEmpty(), "Applied rows are not reported again.");
+
+        second.updateItemInInventory(101, "Sword", "Weapon", 3, 5.0, "Oiled");
+        assertEquals("Oiled", database.rows.get(101).item.getDescription(), "Writing after an applied change should not conflict.");
+
+        // An item with unsaved changes keeps them; the other process's delete of 102 is applied
+        secondInventory.updateItemDetails(101, "Sword", "Weapon", 4, 5.0, "Mine");
+        database.rows.put(101, new VersionedRow(new Item(101, "Sword", "Weapon", 5, 5.0, "Theirs"), 7));
+        database.rows.remove(102);
+        assertTrue(second.applyExternalChanges(second.pollExternalChanges()));
+        assertNull(secondInventory.getItemById(102));
+        assertEquals("Mine", secondInventory.getItemById(101).getDescription());
+        assertThrows(VersionConflictException.class, () -> second.saveItemsToDatabase(ConflictResolver.KEEP_LOCAL, 1),
+                "Saving the skipped item should still meet the other process's row.");
+    }
+
+    @Test
+    void writeBehindHandsResolutionsBackToTheOwnerThread() throws Exception {
+        List<Runnable> deferred = Collections.synchronizedList(new ArrayList<>());
+        second.enableWriteBehind(100, 60_000, deferred::add);
+        first.updateItemInInventory(101, "Sword", "Weapon", 2, 5.0, "Sharpened");
+        second.updateItemInInventory(101, "Sword", "Weapon", 3, 5.0, "Blunted");
+        assertTrue(second.flush());
+
+        assertEquals("Sharpened", database.rows.get(101).item.getDescription(), "The stored row wins by default.");
+        assertEquals("Blunted", secondInventory.getItemById(101).getDescription(), "The writer thread must not change memory itself.");
+        assertEquals(1, deferred.size());
+        deferred.remove(0).run();
+        assertEquals("Sharpened", secondInventory.getItemById(101).getDescription(), "The owner thread applies the winner.");
+        assertEquals(0, secondInventory.getChangeTracker().size(), "The settled row should not be saved again.");
+
+        // A resolution that arrives after a newer local change must not undo that change
+        first.updateItemInInventory(101, "Sword", "Weapon", 4, 5.0, "Theirs");
+        second.updateItemInInventory(101, "Sword", "Weapon", 5, 5.0, "Mine");
+        assertTrue(second.flush());
+        second.updateItemInInventory(101, "Sword", "Weapon", 6, 5.0, "Mine again");
+        assertEquals(1, deferred.size());
+        deferred.remove(0).run();
+        assertEquals("Mine again", secondInventory.getItemById(101).getDescription());
+        assertTrue(second.flush());
+        assertEquals("Mine again", database.rows.get(101).item.getDescription(), "The newer local row is written over the winner.");
+        second.close();
+    }
+
+    @Test
+    void closingCommitsQueuedWriteBehindRows() throws Exception {
+        second.enableWriteBehind(100, 3_600_000, Runnable::run); // Nothing is written until the close
+        second.updateItemInInventory(101, "Sword", "Weapon", 2, 5.0, "Queued");
+        Thread closing = new Thread(second::close);
+        closing.start();
+        closing.join(5_000);
+        assertFalse(closing.isAlive(), "close() must not wait on the writer while holding the manager's lock.");
+        assertEquals("Queued", database.rows.get(101).item.getDescription(), "Queued rows are committed by close().");
+    }
+
+    private static class VersionedRow {
+        final Item item;
+        final long version;
+
+        VersionedRow(Item item, long version) {
+            this.item = item;
+            this.version = version;
+        }
+    }
+
+    // inventory_items as seen by several processes; floor_items is left empty
+    private static class SharedDatabase {
+        final Map<Integer, VersionedRow> rows = new HashMap<>();
+    }
+
+    // Compare-and-set writes against the shared database, remembering the versions this process has seen
+    private static class VersionedStorage implements ItemStorage {
+        private final SharedDatabase database;
+        private final Map<Integer, Long> known = new HashMap<>();
+        private final Map<Integer, Long> reported = new HashMap<>();
+
+        VersionedStorage(SharedDatabase database) {
+            this.database = database;
+        }
+
+        @Override
+        public synchronized void load(Map<String, ItemContainer> targets, LoadProgressListener listener) {
+            List<Item> items = new ArrayList<>();
+            known.clear();
+            for (VersionedRow row : database.rows.values()) {
+                items.add(row.item);
+                known.put(row.item.getId(), row.version);
+            }
+            targets.get("inventory_items").addLoadedItems(items);
+        }
+
+        @Override
+        public synchronized void write(Map<String, Map<Integer, Item>> rows) throws StorageException {
+            Map<Integer, Item> inventoryRows = rows.getOrDefault("inventory_items", Map.of());
+            List<Conflict> conflicts = new ArrayList<>();
+            for (Map.Entry<Integer, Item> row : inventoryRows.entrySet()) {
+                VersionedRow stored = database.rows.get(row.getKey());
+                Long version = known.get(row.getKey());
+                boolean matches = version == null ? stored == null : stored != null && stored.version == version;
+                if (!matches && !(row.getValue() == null && stored == null)) {
+                    conflicts.add(new Conflict("inventory_items", row.getKey(), row.getValue(),
+                            stored == null ? null : stored.item, stored == null ? -1 : stored.version));
+                }
+            }
+            if (!conflicts.isEmpty()) {
+                throw new VersionConflictException(conflicts);
+            }
+            for (Map.Entry<Integer, Item> row : inventoryRows.entrySet()) {
+                if (row.getValue() == null) {
+                    database.rows.remove(row.getKey());
+                    known.remove(row.getKey());
+                } else {
+                    long version = known.containsKey(row.getKey()) ? known.get(row.getKey()) + 1 : 0;
+                    database.rows.put(row.getKey(), new VersionedRow(row.getValue(), version));
+                    known.put(row.getKey(), version);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void acceptStoredVersion(Conflict conflict) {
+            if (conflict.getStoredVersion() < 0) {
+                known.remove(conflict.getId());
+            } else {
+                known.put(conflict.getId(), conflict.getStoredVersion());
+            }
+        }
+
+        // Compares the whole table with the known versions; a real storage reads a change log instead
+        @Override
+        public synchronized List<ExternalChange> pollChanges(Collection<String> tableNames) {
+            List<ExternalChange> changes = new ArrayList<>();
+            for (VersionedRow row : database.rows.values()) {
+                int id = row.item.getId();
+                if (!Long.valueOf(row.version).equals(known.get(id)) && !Long.valueOf(row.version).equals(reported.put(id, row.version))) {
+                    changes.add(new ExternalChange("inventory_items", id, row.item, row.version));
+                }
+            }
+            for (int id : known.keySet()) {
+                if (!database.rows.containsKey(id) && !Long.valueOf(-1).equals(reported.put(id, -1L))) {
+                    changes.add(new ExternalChange("inventory_items", id, null, -1));
+                }
+            }
+            return changes;
+        }
+
+        @Override
+        public synchronized void acceptStoredVersion(ExternalChange change) {
+            if (change.getStoredVersion() < 0) {
+                known.remove(change.getId());
+            } else {
+                known.put(change.getId(), change.getStoredVersion());
+            }
+            reported.remove(change.getId());
+        }
+
+        @Override
+        public void replaceAll(Map<String, ? extends Collection<Item>> tables) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package test;
+
+import data.Item;
+import logic.WriteBehindWriter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static test.TestItems.item;
+
+class WriteBehindWriterTest {
+
+    private static final long HOUR = 3_600_000;
+
+    @Test
+    void repeatedChangesToOneItemAreWrittenOnce() {
+        List<Map<String, Map<Integer, Item>>> groups = new ArrayList<>();
+        WriteBehindWriter writer = new WriteBehindWriter(rows -> groups.add(rows), 1_000, HOUR);
+        for (int quantity = 1; quantity <= 100; quantity++) {
+            writer.enqueue("floor_items", 202, item(202, quantity));
+        }
+        writer.enqueue("floor_items", 203, null);
+
+        assertTrue(writer.flush(), "Flush should commit the pending rows.");
+        assertEquals(1, groups.size(), "Everything pending should go out in one group.");
+        Map<Integer, Item> rows = groups.get(0).get("floor_items");
+        assertEquals(2, rows.size(), "One row per item, however often it changed.");
+        assertEquals(100, rows.get(202).getQuantity(), "The latest values should win.");
+        assertTrue(rows.containsKey(203) && rows.get(203) == null, "A delete is queued as a null row.");
+        writer.close();
+    }
+
+    @Test
+    void groupIsCommittedOnceEnoughRowsArePending() throws InterruptedException {
+        List<Map<String, Map<Integer, Item>>> groups = new ArrayList<>();
+        WriteBehindWriter writer = new WriteBehindWriter(rows -> {
+            synchronized (groups) {
+                groups.add(rows);
+                groups.notifyAll();
+            }
+        }, 10, HOUR);
+        for (int id = 0; id < 10; id++) {
+            writer.enqueue("inventory_items", id, item(id, 1));
+        }
+
+        synchronized (groups) {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (groups.isEmpty() && System.currentTimeMillis() < deadline) {
+                groups.wait(100);
+            }
+            assertEquals(1, groups.size(), "Reaching the size threshold should commit without a flush.");
+            assertEquals(10, groups.get(0).get("inventory_items").size());
+        }
+        writer.close();
+    }
+
+    @Test
+    void writerKilledMidFlushLeavesOnlyWholeGroupsAndLosesNothing() {
+        Map<Integer, Integer> durable = new HashMap<>(); // The "database": ID -> quantity
+        boolean[] crash = {false};
+        WriteBehindWriter writer = new WriteBehindWriter(rows -> {
+            // Stage the writes like an open transaction; they only become durable on commit
+            Map<Integer, Integer> staged = new HashMap<>(durable);
+            int written = 0;
+            for (Map.Entry<Integer, Item> row : rows.get("floor_items").entrySet()) {
+                staged.put(row.getKey(), row.getValue().getQuantity());
+                if (crash[0] && ++written == rows.get("floor_items").size() / 2) {
+                    throw new Error("Simulated crash before commit");
+                }
+            }
+            durable.clear();
+            durable.putAll(staged); // Commit
+        }, 1_000, HOUR);
+
+        for (int id = 0; id < 10; id++) {
+            writer.enqueue("floor_items", id, item(id, 1));
+        }
+        assertTrue(writer.flush(), "First group should commit.");
+        Map<Integer, Integer> committed = new HashMap<>(durable);
+
+        crash[0] = true;
+        for (int id = 0; id < 20; id++) {
+            writer.enqueue("floor_items", id, item(id, 2));
+        }
+        assertFalse(writer.flush(), "A flush whose writer died should report failure instead of hanging.");
+        assertEquals(committed, durable, "The half-written group must leave no trace.");
+        assertEquals(20, writer.pendingRows(), "Rows of the killed group should be queued again.");
+
+        crash[0] = false;
+        assertTrue(writer.flush(), "A new writer thread should take over and commit.");
+        assertEquals(20, durable.size());
+        for (int id = 0; id < 20; id++) {
+            assertEquals(Integer.valueOf(2), durable.get(id), "Every change should be durable after recovery.");
+        }
+        writer.close();
+    }
+
+    @Test
+    void flusherChangesOnlyItsOwnCopyOfTheGroup() {
+        List<Map<String, Map<Integer, Item>>> groups = new ArrayList<>();
+        WriteBehindWriter[] writer = new WriteBehindWriter[1];
+        boolean[] queuedWhileWriting = new boolean[1];
+        writer[0] = new WriteBehindWriter(rows -> {
+            if (groups.isEmpty()) {
+                rows.get("floor_items").remove(1); // Settled, e.g. by a conflict resolver
+                queuedWhileWriting[0] = writer[0].isQueued("floor_items", 1);
+                groups.add(rows);
+                throw new Exception("Simulated failure after settling a row");
+            }
+            groups.add(rows);
+        }, 1_000, HOUR);
+        writer[0].enqueue("floor_items", 1, item(1, 1));
+        writer[0].enqueue("floor_items", 2, item(2, 1));
+
+        assertFalse(writer[0].flush());
+        assertTrue(queuedWhileWriting[0], "Rows being committed stay visible to isQueued while the flusher edits its copy.");
+        assertTrue(writer[0].flush());
+        assertEquals(List.of(2), List.copyOf(groups.get(1).get("floor_items").keySet()), "The retry should be the flusher's edited copy.");
+        writer[0].close();
+    }
+}
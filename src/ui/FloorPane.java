@@ -1,23 +1,20 @@
 package ui;
 
 import data.Item;
+import data.SortKey;
 import exceptions.ItemNotFoundException;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
-import javafx.scene.image.ImageView;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
-import javafx.scene.control.ScrollPane;
 import logic.InventoryManager;
-import utils.IconHelper;
 
 import java.sql.SQLException;
-import java.util.Comparator;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * FloorPane class manages the UI for displaying and interacting with items placed on the floor.
@@ -28,12 +25,12 @@ public class FloorPane {
     private InventoryManager manager;
     private Main main;
     private VBox pane;
-    private GridPane floorGrid;
-    private ObservableList<Item> floorItems;
+    private VirtualItemGrid floorGrid;
+    private List<Item> floorItems; // A live sorted view of the floor, or the results of a filter
     private ChoiceBox<String> sortChoiceBox;
     private ChoiceBox<String> categoryChoiceBox;
     private TextField filterTextField;
-    private ScrollPane scrollPane;
+    private boolean updatingCategories; // Suppresses filtering while the category choices are rebuilt
 
     public FloorPane(InventoryManager manager, Main main) {
         this.manager = manager;
@@ -42,20 +39,15 @@ public class FloorPane {
         this.pane.setPadding(new Insets(20));
         this.pane.setAlignment(Pos.TOP_CENTER);
 
-        this.floorGrid = new GridPane();
-        this.floorGrid.setHgap(10);
-        this.floorGrid.setVgap(10);
-        this.floorGrid.setAlignment(Pos.CENTER);
-
-        this.scrollPane = new ScrollPane(floorGrid);
-        this.scrollPane.setFitToWidth(true);
-        this.scrollPane.setStyle("-fx-background: #2c2c2c; -fx-background-color: #2c2c2c;");
-
-        // Initialize ObservableList
-        floorItems = FXCollections.observableArrayList();
+        // Only the cells in view exist; they are rebound to other items while scrolling
+        floorItems = manager.getFloorItemsSortedBy(SortKey.ID);
+        this.floorGrid = new VirtualItemGrid(floorItems, 40, item -> main.showItemDetails(item));
+        this.floorGrid.setStyle("-fx-background-color: #2c2c2c; -fx-padding: 10;");
+        this.floorGrid.setCellStyle("-fx-border-color: #ccc; -fx-border-radius: 5; -fx-padding: 5; -fx-background-radius: 5;");
+        VBox.setVgrow(floorGrid, Priority.ALWAYS);
 
         // Add components to the pane
-        pane.getChildren().addAll(new Label("Floor Items"), createControlPanel(), scrollPane);
+        pane.getChildren().addAll(new Label("Floor Items"), createControlPanel(), floorGrid);
 
         // Pick Up Item button
         Button btnPickUp = new Button("Pick Up Item");
@@ -78,9 +70,13 @@ public class FloorPane {
         sortChoiceBox.setValue("ID");
         sortChoiceBox.setOnAction(e -> sortItems());
 
-        categoryChoiceBox = new ChoiceBox<>(FXCollections.observableArrayList("Select Category", "Weapon", "Armor", "Consumable", "Scroll", "Misc"));
+        categoryChoiceBox = new ChoiceBox<>(FXCollections.observableArrayList("Select Category"));
         categoryChoiceBox.getSelectionModel().selectFirst();
-        categoryChoiceBox.setOnAction(e -> filterByCategory());
+        categoryChoiceBox.setOnAction(e -> {
+            if (!updatingCategories) {
+                filterByCategory();
+            }
+        });
 
         filterTextField = new TextField();
         filterTextField.setPromptText("Filter by name...");
@@ -100,79 +96,78 @@ public class FloorPane {
     }
 
     private void sortItems() {
-        String sortBy = sortChoiceBox.getValue();
-        Comparator<Item> comparator = switch (sortBy) {
-            case "Name" -> Comparator.comparing(Item::getName);
-            case "Quantity" -> Comparator.comparingInt(Item::getQuantity);
-            case "Weight" -> Comparator.comparingDouble(Item::getWeight);
-            default -> Comparator.comparingInt(Item::getId);
+        SortKey key = selectedSortKey();
+        String selectedCategory = categoryChoiceBox.getValue();
+        boolean anyCategory = selectedCategory == null || "Select Category".equals(selectedCategory);
+        if (filterTextField.getText().isEmpty() && anyCategory) {
+            show(manager.getFloorItemsSortedBy(key)); // Already kept in order by the data layer
+        } else {
+            List<Item> sorted = new ArrayList<>(floorItems); // Only the filtered items need sorting
+            sorted.sort(key.comparator());
+            show(sorted);
+        }
+    }
+
+    private SortKey selectedSortKey() {
+        return switch (sortChoiceBox.getValue()) {
+            case "Name" -> SortKey.NAME;
+            case "Quantity" -> SortKey.QUANTITY;
+            case "Weight" -> SortKey.WEIGHT;
+            default -> SortKey.ID;
         };
-        floorItems.sort(comparator);
-        refreshGrid();
     }
 
     private void filterByCategory() {
         String selectedCategory = categoryChoiceBox.getValue();
-        if ("Select Category".equals(selectedCategory)) {
-            floorItems.setAll(manager.getFloorItems());
+        if (selectedCategory == null || "Select Category".equals(selectedCategory)) {
+            show(manager.getFloorItemsSortedBy(selectedSortKey()));
         } else {
-            floorItems.setAll(manager.getFloorItems().stream()
-                    .filter(item -> item.getType().equalsIgnoreCase(selectedCategory))
-                    .collect(Collectors.toList()));
+            show(manager.getFloorItemsByType(selectedCategory));
         }
-        refreshGrid();
     }
 
     private void filterItems() {
-        String filterText = filterTextField.getText().toLowerCase();
+        String filterText = filterTextField.getText();
         if (filterText.isEmpty()) {
-            floorItems.setAll(manager.getFloorItems());
+            show(manager.getFloorItemsSortedBy(selectedSortKey()));
         } else {
-            floorItems.setAll(manager.getFloorItems().stream()
-                    .filter(item -> item.getName().toLowerCase().contains(filterText))
-                    .collect(Collectors.toList()));
+            show(manager.searchFloorItems(filterText)); // Answered by the floor's name index
         }
-        refreshGrid();
     }
 
     private void clearFilter() {
         filterTextField.clear();
         categoryChoiceBox.getSelectionModel().selectFirst();
-        floorItems.setAll(manager.getFloorItems());
-        refreshGrid();
+        show(manager.getFloorItemsSortedBy(selectedSortKey()));
     }
 
-    private void refreshGrid() {
-        floorGrid.getChildren().clear();
-        int col = 0, row = 0;
-        for (Item item : floorItems) {
-            ImageView icon = new ImageView(IconHelper.getIconForCategory(item.getType()));
-            icon.setFitWidth(40);
-            icon.setFitHeight(40);
-
-            Label idLabel = new Label("ID: " + item.getId());
-            Label nameLabel = new Label(item.getName());
-            Label qtyLabel = new Label("Qty: " + item.getQuantity());
-
-            VBox itemBox = new VBox(5, idLabel, icon, nameLabel, qtyLabel);
-            itemBox.setAlignment(Pos.CENTER);
-            itemBox.setPadding(new Insets(5));
-            itemBox.setStyle("-fx-border-color: #ccc; -fx-border-radius: 5; -fx-padding: 5; -fx-background-radius: 5;");
-
-            itemBox.setOnMouseClicked(e -> main.showItemDetails(item));
-
-            floorGrid.add(itemBox, col, row);
-            col++;
-            if (col == 4) {
-                col = 0;
-                row++;
-            }
-        }
+    // Points the grid at a list; only the cells in view read from it
+    private void show(List<Item> items) {
+        floorItems = items;
+        floorGrid.setItems(items);
     }
 
+    // The sorted view is live, so this costs the visible cells rather than a copy of the floor
     public void refresh() {
-        floorItems.setAll(manager.getFloorItems());
-        refreshGrid();
+        updateCategoryChoices();
+        show(manager.getFloorItemsSortedBy(selectedSortKey()));
+    }
+
+    // Rebuilds the category choices from the floor's type index, keeping the current selection if it still exists
+    private void updateCategoryChoices() {
+        String selectedCategory = categoryChoiceBox.getValue();
+        List<String> choices = new ArrayList<>();
+        choices.add("Select Category");
+        choices.addAll(manager.getFloorCategories());
+
+        updatingCategories = true;
+        categoryChoiceBox.getItems().setAll(choices);
+        if (selectedCategory != null && choices.contains(selectedCategory)) {
+            categoryChoiceBox.setValue(selectedCategory);
+        } else {
+            categoryChoiceBox.getSelectionModel().selectFirst();
+        }
+        updatingCategories = false;
     }
 
     private void craftItem() {
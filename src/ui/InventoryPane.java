@@ -1,21 +1,19 @@
 package ui;
 
 import data.Item;
+import data.SortKey;
 import exceptions.ItemNotFoundException;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
-import javafx.scene.image.ImageView;
-import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
-import javafx.scene.control.ScrollPane;
 import logic.InventoryManager;
-import utils.IconHelper;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -26,12 +24,12 @@ public class InventoryPane {
     private InventoryManager manager;
     private Main main;
     private VBox pane;
-    private GridPane inventoryGrid;
-    private ObservableList<Item> inventoryItems;
+    private VirtualItemGrid inventoryGrid;
+    private List<Item> inventoryItems; // A live sorted view of the inventory, or the results of a filter
     private ChoiceBox<String> categoryChoiceBox;
     private ChoiceBox<String> sortChoiceBox;
     private TextField filterTextField;
-    private ScrollPane scrollPane;
+    private boolean updatingCategories; // Suppresses filtering while the category choices are rebuilt
 
     public InventoryPane(InventoryManager manager, Main main) {
         this.manager = manager;
@@ -40,17 +38,13 @@ public class InventoryPane {
         this.pane.setPadding(new Insets(20));
         this.pane.setAlignment(Pos.TOP_CENTER);
 
-        this.inventoryGrid = new GridPane();
-        this.inventoryGrid.setHgap(10);
-        this.inventoryGrid.setVgap(10);
-        this.inventoryGrid.setAlignment(Pos.CENTER);
+        // Only the cells in view exist; they are rebound to other items while scrolling
+        inventoryItems = manager.getInventoryItemsSortedBy(SortKey.ID);
+        this.inventoryGrid = new VirtualItemGrid(inventoryItems, 50, item -> main.showItemDetails(item));
+        this.inventoryGrid.setStyle("-fx-background-color: #2c2c2c; -fx-padding: 10;");
+        VBox.setVgrow(inventoryGrid, Priority.ALWAYS);
 
-        // Wrap inventoryGrid in ScrollPane and add it to pane
-        this.scrollPane = new ScrollPane(inventoryGrid);
-        this.scrollPane.setFitToWidth(true);
-        this.scrollPane.setStyle("-fx-background: #2c2c2c; -fx-background-color: #2c2c2c;");
-
-        pane.getChildren().addAll(new Label("Inventory"), createControlPanel(), scrollPane, createDropButton());
+        pane.getChildren().addAll(new Label("Inventory"), createControlPanel(), inventoryGrid, createDropButton());
 
         refresh(); // Initialize the items and refresh the grid
     }
@@ -68,9 +62,13 @@ public class InventoryPane {
         sortChoiceBox.setValue("ID");
         sortChoiceBox.setOnAction(e -> sortItems());
 
-        categoryChoiceBox = new ChoiceBox<>(FXCollections.observableArrayList("Select Category", "Weapon", "Armor", "Consumable", "Scroll", "Misc"));
+        categoryChoiceBox = new ChoiceBox<>(FXCollections.observableArrayList("Select Category"));
         categoryChoiceBox.getSelectionModel().selectFirst();
-        categoryChoiceBox.setOnAction(e -> filterItems());
+        categoryChoiceBox.setOnAction(e -> {
+            if (!updatingCategories) {
+                filterItems();
+            }
+        });
 
         filterTextField = new TextField();
         filterTextField.setPromptText("Filter by name...");
@@ -120,36 +118,49 @@ public class InventoryPane {
     }
 
     private void sortItems() {
-        String sortBy = sortChoiceBox.getValue();
-        Comparator<Item> comparator = switch (sortBy) {
-            case "Name" -> Comparator.comparing(Item::getName);
-            case "Quantity" -> Comparator.comparingInt(Item::getQuantity);
-            case "Weight" -> Comparator.comparingDouble(Item::getWeight);
-            default -> Comparator.comparingInt(Item::getId);
+        SortKey key = selectedSortKey();
+        String selectedCategory = categoryChoiceBox.getValue();
+        boolean anyCategory = selectedCategory == null || "Select Category".equals(selectedCategory);
+        if (filterTextField.getText().isEmpty() && anyCategory) {
+            show(manager.getInventoryItemsSortedBy(key)); // Already kept in order by the data layer
+        } else {
+            List<Item> sorted = new ArrayList<>(inventoryItems); // Only the filtered items need sorting
+            sorted.sort(key.comparator());
+            show(sorted);
+        }
+    }
+
+    private SortKey selectedSortKey() {
+        return switch (sortChoiceBox.getValue()) {
+            case "Name" -> SortKey.NAME;
+            case "Quantity" -> SortKey.QUANTITY;
+            case "Weight" -> SortKey.WEIGHT;
+            default -> SortKey.ID;
         };
-        inventoryItems.sort(comparator);
-        refreshGrid();
     }
 
     private void filterItems() {
-        String filterText = filterTextField.getText().toLowerCase();
+        String filterText = filterTextField.getText();
         String selectedCategory = categoryChoiceBox.getValue();
-
-        inventoryItems.setAll(manager.getInventoryItems().stream()
-                .filter(item -> {
-                    boolean matchesName = filterText.isEmpty() || item.getName().toLowerCase().contains(filterText);
-                    boolean matchesCategory = "Select Category".equals(selectedCategory) || item.getType().equalsIgnoreCase(selectedCategory);
-                    return matchesName && matchesCategory;
-                })
-                .collect(Collectors.toList()));
-        refreshGrid();
+        boolean anyCategory = selectedCategory == null || "Select Category".equals(selectedCategory);
+
+        if (filterText.isEmpty()) {
+            // Category alone is answered by the type index
+            show(anyCategory ? manager.getInventoryItemsSortedBy(selectedSortKey()) : manager.getInventoryItemsByType(selectedCategory));
+        } else if (anyCategory) {
+            show(manager.searchInventoryItems(filterText));
+        } else {
+            // The name index narrows the candidates first; checking their type is then cheap
+            show(manager.searchInventoryItems(filterText).stream()
+                    .filter(item -> item.getType().equalsIgnoreCase(selectedCategory))
+                    .collect(Collectors.toList()));
+        }
     }
 
     private void clearFilter() {
         filterTextField.clear();
         categoryChoiceBox.getSelectionModel().selectFirst();
-        inventoryItems.setAll(manager.getInventoryItems());
-        refreshGrid();
+        show(manager.getInventoryItemsSortedBy(selectedSortKey()));
     }
 
     private void updateInventoryItem() {
@@ -192,34 +203,32 @@ public class InventoryPane {
         });
     }
 
-    private void refreshGrid() {
-        inventoryGrid.getChildren().clear();
-        int col = 0, row = 0;
-        for (Item item : inventoryItems) {
-            ImageView icon = new ImageView(IconHelper.getIconForCategory(item.getType()));
-            icon.setFitWidth(50);
-            icon.setFitHeight(50);
-
-            Label idLabel = new Label("ID: " + item.getId());
-            Label nameLabel = new Label(item.getName());
-            Label qtyLabel = new Label("Qty: " + item.getQuantity());
-
-            VBox itemBox = new VBox(idLabel, icon, nameLabel, qtyLabel);
-            itemBox.setAlignment(Pos.CENTER);
-            itemBox.setPadding(new Insets(5));
-            itemBox.setOnMouseClicked(e -> main.showItemDetails(item));
-
-            inventoryGrid.add(itemBox, col, row);
-            col++;
-            if (col == 4) {
-                col = 0;
-                row++;
-            }
-        }
+    // Points the grid at a list; only the cells in view read from it
+    private void show(List<Item> items) {
+        inventoryItems = items;
+        inventoryGrid.setItems(items);
     }
 
+    // The sorted view is live, so this costs the visible cells rather than a copy of the inventory
     public void refresh() {
-        inventoryItems = FXCollections.observableArrayList(manager.getInventoryItems());
-        refreshGrid();
+        updateCategoryChoices();
+        show(manager.getInventoryItemsSortedBy(selectedSortKey()));
+    }
+
+    // Rebuilds the category choices from the inventory's type index, keeping the current selection if it still exists
+    private void updateCategoryChoices() {
+        String selectedCategory = categoryChoiceBox.getValue();
+        List<String> choices = new ArrayList<>();
+        choices.add("Select Category");
+        choices.addAll(manager.getInventoryCategories());
+
+        updatingCategories = true;
+        categoryChoiceBox.getItems().setAll(choices);
+        if (selectedCategory != null && choices.contains(selectedCategory)) {
+            categoryChoiceBox.setValue(selectedCategory);
+        } else {
+            categoryChoiceBox.getSelectionModel().selectFirst();
+        }
+        updatingCategories = false;
     }
 }
@@ -4,6 +4,7 @@ import data.Inventory;
 import data.Floor;
 import data.Item;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -12,6 +13,7 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import logic.DatabaseWatcher;
 import logic.InventoryManager;
 
 import java.util.Objects;
@@ -35,6 +37,7 @@ public class Main extends Application {
      * @param primaryStage the primary stage for this JavaFX application
      */
     private InventoryManager manager;
+    private DatabaseWatcher watcher;
     private Inventory inventory;
     private Floor floor;
     private InventoryPane inventoryPane;
@@ -46,6 +49,11 @@ public class Main extends Application {
         inventory = new Inventory(50.0);
         floor = new Floor();
         manager = new InventoryManager(inventory, floor, ""); // Initialize without a file path
+        // Saves happen off the JavaFX thread; stop() flushes them. Settled conflicts come back to it and refresh the panes
+        manager.enableWriteBehind(500, 200, settle -> Platform.runLater(() -> {
+            settle.run();
+            refreshUI();
+        }));
 
         BorderPane root = new BorderPane();
 
@@ -83,14 +91,29 @@ public class Main extends Application {
         primaryStage.setTitle("Inventory Management System");
         primaryStage.setScene(scene);
         primaryStage.show();
+
+        // Pick up rows other processes write to the open database without reloading it
+        watcher = new DatabaseWatcher(manager, DatabaseWatcher.DEFAULT_POLL_MILLIS, Platform::runLater, this::refreshUI);
+        watcher.start();
+    }
+
+    // Stop watching and close the manager's pooled database connections when the window closes
+    @Override
+    public void stop() {
+        if (watcher != null) {
+            watcher.close();
+        }
+        if (manager != null) {
+            manager.close();
+        }
     }
 
     public void refreshUI() {
-        boolean isInventoryEmpty = inventory.getItems().isEmpty();
-        boolean isFloorEmpty = floor.getItems().isEmpty();
+        boolean isInventoryEmpty = inventory.isEmpty();
+        boolean isFloorEmpty = floor.isEmpty();
 
-        System.out.println("Inventory items: " + inventory.getItems().size());
-        System.out.println("Floor items: " + floor.getItems().size()); // Debug to check items in Floor
+        System.out.println("Inventory items: " + inventory.size());
+        System.out.println("Floor items: " + floor.size()); // Debug to check items in Floor
 
         emptyMessageLabel.setVisible(isInventoryEmpty && isFloorEmpty);
         inventoryPane.refresh();
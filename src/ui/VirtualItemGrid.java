@@ -0,0 +1,227 @@
+package ui;
+
+import data.Item;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.scene.shape.Rectangle;
+import utils.IconHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * VirtualItemGrid shows a list of items as a grid of icon cells, like a GridPane inside a ScrollPane would,
+ * but only creates cells for the rows that fit in the viewport. All cells have the same size, so the grid
+ * works out which items are visible from the scroll offset alone. While scrolling, cells that leave the
+ * viewport are moved and bound to the items coming into view instead of being rebuilt.
+ *
+ * <p>The grid reads its items straight from a List, typically a live view of a container such as
+ * getItemsSortedBy, and only ever asks it for the size and the visible positions. The number of nodes, and
+ * the cost of a scroll or refresh, therefore follows the size of the viewport rather than the number of
+ * items, and nothing is copied when the items change. Columns are fitted to the width of the grid.</p>
+ */
+
+public class VirtualItemGrid extends Region {
+    private static final double CELL_WIDTH = 140;
+    private static final double GAP = 10;
+    private static final int PREF_COLUMNS = 4;
+    private static final int PREF_ROWS = 3;
+
+    private List<Item> items;
+    private final double iconSize;
+    private final double cellHeight;
+    private final Consumer<Item> onItemClicked;
+    private final Pane viewport = new Pane();
+    private final Rectangle clip = new Rectangle();
+    private final ScrollBar scrollBar = new ScrollBar();
+    private final List<ItemCell> cells = new ArrayList<>(); // Enough to fill the viewport; rebound while scrolling
+    private String cellStyle = "";
+
+    /**
+     * Constructs a grid over a list of items. The list is read again on every layout; call {@link #refresh}
+     * after it changed so the visible cells are updated.
+     *
+     * @param items the items to show, in order; may be a live view
+     * @param iconSize the width and height of each cell's icon
+     * @param onItemClicked called with the item of a clicked cell
+     */
+
+    public VirtualItemGrid(List<Item> items, double iconSize, Consumer<Item> onItemClicked) {
+        this.items = items;
+        this.iconSize = iconSize;
+        this.cellHeight = iconSize + 90; // Icon, three labels and the cell's padding
+        this.onItemClicked = onItemClicked;
+
+        scrollBar.setOrientation(Orientation.VERTICAL);
+        viewport.setClip(clip);
+        getChildren().addAll(viewport, scrollBar);
+
+        scrollBar.valueProperty().addListener((obs, oldValue, newValue) -> requestLayout());
+        setOnScroll(e -> {
+            scrollBar.setValue(Math.max(0, Math.min(scrollBar.getMax(), scrollBar.getValue() - e.getDeltaY())));
+            e.consume();
+        });
+    }
+
+    // Style applied to every cell, e.g. its border
+    public void setCellStyle(String cellStyle) {
+        this.cellStyle = cellStyle;
+        for (ItemCell cell : cells) {
+            cell.setStyle(cellStyle);
+        }
+    }
+
+    /**
+     * Shows another list of items, e.g. the results of a filter. Only the visible cells are bound to it.
+     *
+     * @param items the items to show, in order; may be a live view
+     */
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+        requestLayout();
+    }
+
+    /**
+     * Updates the visible cells after the list or the items in it changed. Cells whose item, name, type
+     * and quantity are unchanged are left alone.
+     */
+
+    public void refresh() {
+        requestLayout();
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return snappedLeftInset() + PREF_COLUMNS * (CELL_WIDTH + GAP) + scrollBar.prefWidth(-1) + snappedRightInset();
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return snappedTopInset() + PREF_ROWS * (cellHeight + GAP) + snappedBottomInset();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double left = snappedLeftInset();
+        double top = snappedTopInset();
+        double height = Math.max(0, getHeight() - top - snappedBottomInset());
+        double barWidth = scrollBar.prefWidth(-1);
+        double contentWidth = Math.max(0, getWidth() - left - snappedRightInset() - barWidth);
+
+        int columns = Math.max(1, (int) ((contentWidth + GAP) / (CELL_WIDTH + GAP)));
+        int rows = (items.size() + columns - 1) / columns;
+        double rowHeight = cellHeight + GAP;
+        double maxOffset = Math.max(0, rows * rowHeight - GAP - height);
+        scrollBar.setMax(maxOffset);
+        scrollBar.setVisibleAmount(maxOffset == 0 ? 0 : height * maxOffset / (rows * rowHeight));
+        scrollBar.setUnitIncrement(rowHeight / 2);
+        scrollBar.setBlockIncrement(Math.max(rowHeight, height - rowHeight));
+        scrollBar.setDisable(maxOffset == 0);
+        if (scrollBar.getValue() > maxOffset) {
+            scrollBar.setValue(maxOffset); // The list shrank below the old scroll position
+        }
+        scrollBar.resizeRelocate(left + contentWidth, top, barWidth, height);
+        viewport.resizeRelocate(left, top, contentWidth, height);
+        clip.setWidth(contentWidth);
+        clip.setHeight(height);
+
+        // Only the rows overlapping the viewport get cells, plus one row partly scrolled in
+        double offset = scrollBar.getValue();
+        int firstIndex = (int) (offset / rowHeight) * columns;
+        int visibleRows = (int) Math.ceil(height / rowHeight) + 1;
+        int count = Math.max(0, Math.min(items.size() - firstIndex, visibleRows * columns));
+        while (cells.size() < count) {
+            ItemCell cell = new ItemCell();
+            cells.add(cell);
+            viewport.getChildren().add(cell);
+        }
+
+        double gridWidth = columns * CELL_WIDTH + (columns - 1) * GAP;
+        double firstColumnX = Math.max(0, (contentWidth - gridWidth) / 2); // Centered, like the GridPane it replaces
+        for (int i = 0; i < cells.size(); i++) {
+            ItemCell cell = cells.get(i);
+            if (i >= count) {
+                cell.unbind();
+                cell.setVisible(false);
+                continue;
+            }
+            int index = firstIndex + i;
+            cell.bind(items.get(index));
+            cell.setVisible(true);
+            cell.resizeRelocate(firstColumnX + (index % columns) * (CELL_WIDTH + GAP), (index / columns) * rowHeight - offset,
+                    CELL_WIDTH, cellHeight);
+        }
+    }
+
+    /**
+     * ItemCell is one recycled grid cell: an icon with the item's ID, name and quantity.
+     */
+
+    private class ItemCell extends VBox {
+        private final ImageView icon = new ImageView();
+        private final Label idLabel = new Label();
+        private final Label nameLabel = new Label();
+        private final Label qtyLabel = new Label();
+        private Item item;
+        private int boundQuantity;
+        private String boundName;
+        private String boundType;
+
+        ItemCell() {
+            super(5);
+            icon.setFitWidth(iconSize);
+            icon.setFitHeight(iconSize);
+            nameLabel.setMaxWidth(CELL_WIDTH - 20); // Long names are cut short with an ellipsis
+            getChildren().addAll(idLabel, icon, nameLabel, qtyLabel);
+            setAlignment(Pos.CENTER);
+            setPadding(new Insets(5));
+            setStyle(cellStyle);
+            setManaged(false); // Placed by the grid; the viewport must not resize it to its preferred size
+            setOnMouseClicked(e -> {
+                if (item != null) {
+                    onItemClicked.accept(item);
+                }
+            });
+        }
+
+        // Shows an item, touching only the nodes whose text or image actually changes
+        void bind(Item next) {
+            if (next == item && next.getQuantity() == boundQuantity && Objects.equals(next.getName(), boundName) && Objects.equals(next.getType(), boundType)) {
+                return;
+            }
+            if (item == null || item.getId() != next.getId()) {
+                idLabel.setText("ID: " + next.getId());
+            }
+            if (item == null || !Objects.equals(next.getType(), boundType)) {
+                icon.setImage(IconHelper.getIconForCategory(next.getType()));
+            }
+            if (item == null || !Objects.equals(next.getName(), boundName)) {
+                nameLabel.setText(next.getName());
+            }
+            if (item == null || next.getQuantity() != boundQuantity) {
+                qtyLabel.setText("Qty: " + next.getQuantity());
+            }
+            item = next;
+            boundQuantity = next.getQuantity();
+            boundName = next.getName();
+            boundType = next.getType();
+        }
+
+        // Forgets the item so the next bind updates every field
+        void unbind() {
+            item = null;
+            boundName = null;
+            boundType = null;
+        }
+    }
+}